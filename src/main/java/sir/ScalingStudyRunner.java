@@ -0,0 +1,112 @@
+package sir;
+
+import sir.grid.GridSupplier;
+import sir.model.Configuration;
+import sir.model.StepStats;
+import sir.solver.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Measures how the parallel solvers scale with the number of threads.
+// Strong scaling keeps the grid fixed; weak scaling grows the grid height with the thread count so every thread
+// keeps the same amount of work. Results go to CSV files that GraphGenerator turns into scaling charts.
+public class ScalingStudyRunner {
+
+    private static final int STRONG_GRID_WIDTH = 2000;
+    private static final int STRONG_GRID_HEIGHT = 2000;
+    private static final int WEAK_GRID_WIDTH = 2000;
+    private static final int WEAK_ROWS_PER_THREAD = 250;
+    private static final int INITIAL_INFECTED_COUNT = 5;
+    private static final double INFECTION_PROBABILITY = 0.1;
+    private static final double RECOVERY_PROBABILITY = 0.05;
+    private static final Long SEED = 123456789L;
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    // Sweeping solvers pay for the whole grid every tick, so a fixed number of ticks is enough to compare step times
+    private static final int MAX_TICKS = 500;
+    private static final int NUMBER_OF_REPEATS = 2;
+    public static final String OUTPUT_DIRECTORY = "src/main/resources/scaling";
+    public static final String STRONG_SCALING_FILE = "strong_scaling.csv";
+    public static final String WEAK_SCALING_FILE = "weak_scaling.csv";
+
+    private interface ParallelSolverFactory {
+        SIRSolver create(GridSupplier gridSupplier, Configuration configuration, int threads);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outputDir = Paths.get(OUTPUT_DIRECTORY);
+        Files.createDirectories(outputDir);
+
+        Map<String, ParallelSolverFactory> solvers = new LinkedHashMap<>();
+        solvers.put("ForkJoin_Grid_SIR_Solver", (grid, config, threads) -> new ForkJoinGridSIRSolver(
+                grid.copyStates(), grid.getWidth(), grid.getHeight(),
+                config.infectionProbability(), config.recoveryProbability(), threads, config.seed()));
+        solvers.put("Simple_Parallel_Grid_SIR_Solver", (grid, config, threads) -> new SimpleParallelGridSIRSolver(
+                grid.copyNodes(), grid.getWidth(), grid.getHeight(),
+                config.infectionProbability(), config.recoveryProbability(), threads, config.seed()));
+        solvers.put("CompletableFuture_Grid_SIR_Solver", (grid, config, threads) -> new CompletableFutureSIRSolver(
+                grid.copyNodes(), grid.getWidth(), grid.getHeight(),
+                config.infectionProbability(), config.recoveryProbability(), threads, config.seed()));
+
+        List<Integer> threadCounts = threadCounts(MAX_THREADS);
+        System.out.printf("Scaling study over thread counts %s, %d ticks per run, %d repeats.%n", threadCounts, MAX_TICKS, NUMBER_OF_REPEATS);
+
+        try (PrintWriter strong = new PrintWriter(Files.newBufferedWriter(outputDir.resolve(STRONG_SCALING_FILE)));
+             PrintWriter weak = new PrintWriter(Files.newBufferedWriter(outputDir.resolve(WEAK_SCALING_FILE)))) {
+            strong.println("Mode,Solver,Threads,Width,Height,Repeat,Ticks,TotalStepTimeNs");
+            weak.println("Mode,Solver,Threads,Width,Height,Repeat,Ticks,TotalStepTimeNs");
+
+            for (var solver : solvers.entrySet()) {
+                for (int threads : threadCounts) {
+                    runMeasurements(strong, "strong", solver.getKey(), solver.getValue(), threads,
+                            STRONG_GRID_WIDTH, STRONG_GRID_HEIGHT);
+                    runMeasurements(weak, "weak", solver.getKey(), solver.getValue(), threads,
+                            WEAK_GRID_WIDTH, WEAK_ROWS_PER_THREAD * threads);
+                }
+            }
+        }
+        System.out.println("Scaling results written to: " + outputDir.toAbsolutePath());
+    }
+
+    // 1, 2, 4, ... up to and including the maximum
+    private static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+    private static void runMeasurements(PrintWriter out, String mode, String solverName, ParallelSolverFactory factory,
+                                        int threads, int width, int height) {
+        Configuration configuration = new Configuration(width, height, INITIAL_INFECTED_COUNT,
+                INFECTION_PROBABILITY, RECOVERY_PROBABILITY, SEED);
+        GridSupplier gridSupplier = new GridSupplier(width, height, INITIAL_INFECTED_COUNT, SEED);
+
+        for (int repeat = 1; repeat <= NUMBER_OF_REPEATS; repeat++) {
+            SIRSolver solver = factory.create(gridSupplier, configuration, threads);
+            int tick = 0;
+            long totalNanos = 0;
+            try {
+                while (!solver.isFinished() && tick < MAX_TICKS) {
+                    StepStats stats = solver.step(tick++);
+                    totalNanos += stats.stepTimeNanos();
+                }
+            } finally {
+                solver.shutdown();
+            }
+            out.printf("%s,%s,%d,%d,%d,%d,%d,%d%n", mode, solverName, threads, width, height, repeat, tick, totalNanos);
+            out.flush();
+            System.out.printf("[%s] %s, %d threads, %dx%d, repeat %d: %.3f ms/tick%n",
+                    mode, solverName, threads, width, height, repeat, totalNanos / 1_000_000.0 / Math.max(1, tick));
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package sir;
 
+import sir.distributed.DistributedGridSIRSolver;
+import sir.grid.CellLayout;
+import sir.grid.GridView;
+import sir.grid.HeatmapRecorder;
+import sir.grid.MemoryMonitor;
 import sir.grid.OutputManager;
 import sir.grid.GridSupplier;
+import sir.grid.ResultCache;
 import sir.grid.SimulationLogger;
 import sir.model.Configuration;
 import sir.solver.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public class SimulationRunner {
@@ -22,6 +31,15 @@ public class SimulationRunner {
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
     private static final String BASE_OUTPUT_DIRECTORY = "src/main/resources/output";
     private static final int NUMBER_OF_REPEATS = 2;
+    private static final int DISTRIBUTED_WORKER_COUNT = 4;
+    private static final String CACHE_DIRECTORY = "src/main/resources/cache";
+    private static final long CACHE_BUDGET_BYTES = 1L << 30;
+    // Ticks between heatmap frames of the first repeat, 0 turns them off. Off by default, as the background encoder
+    // competes with the solver and would make the first repeat incomparable with the others
+    private static final int HEATMAP_FRAME_INTERVAL = 0;
+    private static final int HEATMAP_LEVELS = 3;
+    // Saves the infection and recovery ticks of every cell of the first repeat, 8 bytes per cell
+    private static final boolean RECORD_TRANSITIONS = false;
 
     private static String sanitizeSolverName(String solverName) {
         return solverName.replaceAll("[^a-zA-Z0-9.-]", "_").replaceAll("__+", "_");
@@ -46,6 +64,9 @@ public class SimulationRunner {
         System.out.printf("Overall simulation run. Outputting to base directory: %s%n", currentRunGenDir.toAbsolutePath());
         System.out.printf("Each solver will be run %d times.%n%n", NUMBER_OF_REPEATS);
 
+        //Seeded runs that were already simulated with the same code are copied from the cache
+        ResultCache resultCache = new ResultCache(Paths.get(CACHE_DIRECTORY), CACHE_BUDGET_BYTES);
+
         //Create a grid supplier that will be used to create the grid for each solver
         GridSupplier gridSupplier = new GridSupplier(
                 configuration.gridWidth(),
@@ -56,57 +77,202 @@ public class SimulationRunner {
 
         //Create a supplier for each solver
         Supplier<SIRSolver> forkJoinSupplier = createForkJoinSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
+        Supplier<SIRSolver> forkJoinHilbertSupplier = createForkJoinSolverSupplier(gridSupplier, configuration, THREAD_COUNT, CellLayout.Order.HILBERT);
         Supplier<SIRSolver> completableFutureSupplier = createCompletableFutureSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
         Supplier<SIRSolver> simpleSequentialSupplier = createSimpleSequentialSolverSupplier(gridSupplier, configuration);
         Supplier<SIRSolver> simpleParallelSupplier = createSimpleParallelSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
+        Supplier<SIRSolver> timingWheelSupplier = createTimingWheelSolverSupplier(gridSupplier, configuration);
+        Supplier<SIRSolver> nextReactionSupplier = createNextReactionSolverSupplier(gridSupplier, configuration);
+        Supplier<SIRSolver> pipelinedSupplier = createPipelinedSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
+        Supplier<SIRSolver> gatherSupplier = createGatherSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
+        Supplier<SIRSolver> hybridSupplier = createHybridSolverSupplier(gridSupplier, configuration, THREAD_COUNT);
+        Supplier<SIRSolver> patchSupplier = createPatchSolverSupplier(gridSupplier, configuration);
+        Supplier<SIRSolver> distributedSupplier = createDistributedSolverSupplier(configuration, DISTRIBUTED_WORKER_COUNT);
 
         //Run each solver for the specified number of repeats
-        runSolverRepeats(forkJoinSupplier, configuration, currentRunGenDir);
-        runSolverRepeats(completableFutureSupplier, configuration, currentRunGenDir);
-        runSolverRepeats(simpleSequentialSupplier, configuration, currentRunGenDir);
-        runSolverRepeats(simpleParallelSupplier, configuration, currentRunGenDir);
+        runSolverRepeats(forkJoinSupplier, null, gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(forkJoinHilbertSupplier, null, gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(completableFutureSupplier, null, gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(simpleSequentialSupplier, new Cacheable(SimpleSequentialGridSIRSolver.NAME, SimpleSequentialGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(simpleParallelSupplier, null, gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(timingWheelSupplier, new Cacheable(TimingWheelGridSIRSolver.NAME, TimingWheelGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(nextReactionSupplier, new Cacheable(NextReactionSIRSolver.NAME, NextReactionSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(pipelinedSupplier, new Cacheable(PipelinedGridSIRSolver.NAME, PipelinedGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(gatherSupplier, new Cacheable(GatherGridSIRSolver.NAME, GatherGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(hybridSupplier, new Cacheable(HybridGridSIRSolver.NAME, HybridGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(patchSupplier, new Cacheable(PatchGridSIRSolver.NAME, PatchGridSIRSolver.class),
+                gridSupplier, configuration, currentRunGenDir, resultCache);
+        runSolverRepeats(distributedSupplier, null, gridSupplier, configuration, currentRunGenDir, resultCache);
         System.out.println("\nAll simulations completed. Overall output in: " + currentRunGenDir.toAbsolutePath());
     }
 
+    // Solver whose seeded trajectory does not depend on thread timing: every draw belongs to a fixed cell, strip or
+    // sequence, so a cached run is exactly the run it would simulate. The ForkJoin, CompletableFuture and SimpleParallel
+    // solvers race for cells or read neighbors while other threads write them; they and the distributed solver are
+    // never cached.
+    // The name is known without building the solver, so a solver whose repeats are all cached is never built.
+    private record Cacheable(String solverName, Class<? extends SIRSolver> solverClass) { }
+
+    // cacheable is null for solvers whose runs must not be served from the cache
     private static void runSolverRepeats(Supplier<SIRSolver> solverSupplier,
+                                         Cacheable cacheable,
+                                         GridSupplier gridSupplier,
                                          Configuration config,
-                                         Path currentRunGenDir) throws IOException {
-        // Create a temporary solver to get the name
-        SIRSolver tempSolverForName = solverSupplier.get();
+                                         Path currentRunGenDir,
+                                         ResultCache resultCache) throws IOException {
+        // One solver serves all repeats and is reset in between, so its pools, buffers and compiled code are reused.
+        // Cacheable solvers are built only once a repeat misses the cache
+        MeasuredSolver measured = cacheable == null ? createSolver(solverSupplier) : null;
+        String solverName = cacheable == null ? measured.solver().getName() : cacheable.solverName();
         // Use the solver's name to create a directory
-        String sanitizedSolverName = sanitizeSolverName(tempSolverForName.getName());
+        String sanitizedSolverName = sanitizeSolverName(solverName);
         Path solverSpecificBaseDir = currentRunGenDir.resolve(sanitizedSolverName);
         Files.createDirectories(solverSpecificBaseDir);
-        // Shutdown the temporary solver
-        tempSolverForName.shutdown();
-
-        System.out.printf("--- Preparing to run solver: %s ---%n", tempSolverForName.getName());
-        for (int repeat = 1; repeat <= NUMBER_OF_REPEATS; repeat++) {
-            SIRSolver solver = solverSupplier.get();
 
-            // Create a new log file for each repeat
-            Path logPath = solverSpecificBaseDir.resolve("run_" + repeat + "_stats.csv");
+        System.out.printf("--- Preparing to run solver: %s ---%n", solverName);
+        boolean used = false;
+        try {
+            for (int repeat = 1; repeat <= NUMBER_OF_REPEATS; repeat++) {
+                // Create a new log file for each repeat
+                Path logPath = solverSpecificBaseDir.resolve("run_" + repeat + "_stats.csv");
 
-            // Create a new output manager for each repeat
-            System.out.printf("-- Starting Repeat %d/%d for %s --%n", repeat, NUMBER_OF_REPEATS, solver.getName());
+                // Serve the repeat from the cache when the same seeded run was simulated before
+                Optional<String> cacheKey = cacheable == null ? Optional.empty()
+                        : ResultCache.key(config, solverName, repeat, THREAD_COUNT, cacheable.solverClass());
+                if (cacheKey.isPresent() && resultCache.restoreLog(cacheKey.get(), logPath)) {
+                    System.out.printf("-- Repeat %d/%d for %s served from cache --%n", repeat, NUMBER_OF_REPEATS, solverName);
+                    continue;
+                }
 
-            // Create a new simulation runner and run the simulation
-            new SimulationRunnerBuilder()
-                    .configuration(config)
-                    .solver(solver)
-                    .logger(new SimulationLogger(logPath.toString()), logPath)
-                    .run();
+                if (measured == null) {
+                    measured = createSolver(solverSupplier);
+                } else if (used) {
+                    try {
+                        measured.solver().reset(gridSupplier.view(), config.seed());
+                    } catch (UnsupportedOperationException e) {
+                        // Solvers without reset get a new instance; the old one must be unreachable before it is measured
+                        measured.solver().shutdown();
+                        measured = null;
+                        measured = createSolver(solverSupplier);
+                    }
+                }
+                runRepeat(measured, config, logPath, repeat, cacheKey, resultCache);
+                used = true;
 
-            if (repeat < NUMBER_OF_REPEATS) {
-                System.out.println();
+                if (repeat < NUMBER_OF_REPEATS) {
+                    System.out.println();
+                }
+            }
+        } finally {
+            if (measured != null) {
+                measured.solver().shutdown();
             }
         }
         System.out.println();
     }
 
+    // Solver with the heap it keeps resident for a whole run, -1 when it could not be measured
+    private record MeasuredSolver(SIRSolver solver, long residentBytes) { }
+
+    // The heap growth across construction is what the solver keeps resident for the whole run
+    private static MeasuredSolver createSolver(Supplier<SIRSolver> solverSupplier) {
+        long heapBefore = MemoryMonitor.settledHeapUsage();
+        SIRSolver solver = solverSupplier.get();
+        long heapGrowth = MemoryMonitor.settledHeapUsage() - heapBefore;
+        // Garbage of the previous solver that was still reachable at the first reading makes the growth meaningless
+        return new MeasuredSolver(solver, heapGrowth >= 0 ? heapGrowth : -1);
+    }
+
+    private static void runRepeat(MeasuredSolver measured,
+                                  Configuration config,
+                                  Path logPath,
+                                  int repeat,
+                                  Optional<String> cacheKey,
+                                  ResultCache resultCache) throws IOException {
+        SIRSolver solver = measured.solver();
+        System.out.printf("-- Starting Repeat %d/%d for %s --%n", repeat, NUMBER_OF_REPEATS, solver.getName());
+
+        // Create a new simulation runner and run the simulation; the solver stays up for the next repeat
+        SimulationRunnerBuilder runner = new SimulationRunnerBuilder()
+                .configuration(config)
+                .solver(solver)
+                .logger(new SimulationLogger(logPath.toString(), measured.residentBytes()), logPath)
+                .keepSolver();
+        if (repeat == 1 && HEATMAP_FRAME_INTERVAL > 0) {
+            runner.heatmap(new HeatmapRecorder(logPath.resolveSibling("frames_run_" + repeat),
+                    config.gridWidth(), config.gridHeight(), HEATMAP_FRAME_INTERVAL, HEATMAP_LEVELS, THREAD_COUNT));
+        }
+        if (repeat == 1 && RECORD_TRANSITIONS) {
+            runner.recordTransitions(logPath.resolveSibling("run_" + repeat + "_history.bin"));
+        }
+        runner.run();
+
+        if (cacheKey.isPresent()) {
+            resultCache.store(cacheKey.get(), logPath, finalState(solver));
+        }
+    }
+
+    // The solver's grid after its run, or null when it keeps no local grid
+    private static GridView finalState(SIRSolver solver) {
+        try {
+            return solver.view();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static Supplier<SIRSolver> createPipelinedSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads) {
+        return () -> new PipelinedGridSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                numThreads,
+                configuration.seed());
+    }
+
+    private static Supplier<SIRSolver> createGatherSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads) {
+        return () -> new GatherGridSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                numThreads,
+                configuration.seed());
+    }
+
+    private static Supplier<SIRSolver> createHybridSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads) {
+        return () -> new HybridGridSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                numThreads,
+                configuration.seed());
+    }
+
+    private static Supplier<SIRSolver> createPatchSolverSupplier(GridSupplier gridSupplier, Configuration configuration) {
+        return () -> new PatchGridSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                configuration.seed());
+    }
+
     private static Supplier<SIRSolver> createForkJoinSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads) {
         return () -> new ForkJoinGridSIRSolver(
-                gridSupplier.copyNodes(),
+                gridSupplier.copyStates(),
                 gridSupplier.getWidth(),
                 gridSupplier.getHeight(),
                 configuration.infectionProbability(),
@@ -115,6 +281,17 @@ public class SimulationRunner {
                 configuration.seed());
     }
 
+    private static Supplier<SIRSolver> createForkJoinSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads, CellLayout.Order order) {
+        CellLayout layout = CellLayout.of(order, gridSupplier.getWidth(), gridSupplier.getHeight());
+        return () -> new ForkJoinGridSIRSolver(
+                gridSupplier.copyStates(layout),
+                layout,
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                numThreads,
+                configuration.seed());
+    }
+
     private static Supplier<SIRSolver> createCompletableFutureSolverSupplier(GridSupplier gridSupplier, Configuration configuration, int numThreads) {
         return () -> new CompletableFutureSIRSolver(
                 gridSupplier.copyNodes(),
@@ -146,4 +323,34 @@ public class SimulationRunner {
                 numThreads,
                 configuration.seed());
     }
+
+    private static Supplier<SIRSolver> createTimingWheelSolverSupplier(GridSupplier gridSupplier, Configuration configuration) {
+        return () -> new TimingWheelGridSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                configuration.seed());
+    }
+
+    private static Supplier<SIRSolver> createNextReactionSolverSupplier(GridSupplier gridSupplier, Configuration configuration) {
+        return () -> new NextReactionSIRSolver(
+                gridSupplier.copyStates(),
+                gridSupplier.getWidth(),
+                gridSupplier.getHeight(),
+                configuration.infectionProbability(),
+                configuration.recoveryProbability(),
+                configuration.seed());
+    }
+
+    private static Supplier<SIRSolver> createDistributedSolverSupplier(Configuration configuration, int workerCount) {
+        return () -> {
+            try {
+                return new DistributedGridSIRSolver(configuration, workerCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start distributed workers", e);
+            }
+        };
+    }
 }
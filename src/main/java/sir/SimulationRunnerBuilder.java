@@ -1,18 +1,48 @@
 package sir;
 
+import sir.grid.HeatmapRecorder;
+import sir.grid.MemoryMonitor;
 import sir.grid.SimulationLogger;
+import sir.grid.TransitionHistory;
 import sir.model.Configuration;
 import sir.model.StepStats;
+import sir.pipeline.BoundedPublisher;
+import sir.pipeline.EarlyStopDetector;
+import sir.pipeline.LoggingSubscriber;
+import sir.pipeline.OverflowPolicy;
+import sir.pipeline.ProgressSubscriber;
+import sir.solver.PipelinedSIRSolver;
 import sir.solver.SIRSolver;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public class SimulationRunnerBuilder {
+    // The CSV log must see every step: it blocks the solver thread instead of dropping rows, and its large buffer
+    // keeps that from happening in practice
+    private static final int LOG_BUFFER_CAPACITY = 1 << 16;
+    private static final long PROGRESS_INTERVAL_NANOS = 5_000_000_000L;
+    private static final long SUBSCRIBER_DRAIN_TIMEOUT_SECONDS = 60;
+
     private SIRSolver solver;
     private SimulationLogger logger;
     private Path outputPath;
     private Configuration configuration;
+    private final List<Subscription> subscribers = new ArrayList<>();
+    private Predicate<StepStats> stopCondition;
+    private HeatmapRecorder heatmap;
+    private Path historyPath;
+    private boolean keepSolver;
+    private long totalNanos;
+    private long totalAllocatedBytes;
+
+    private record Subscription(Flow.Subscriber<StepStats> subscriber, int capacity, OverflowPolicy policy) { }
 
     public SimulationRunnerBuilder solver(SIRSolver solver) {
         this.solver = solver;
@@ -30,6 +60,38 @@ public class SimulationRunnerBuilder {
         return this;
     }
 
+    // Attaches an extra consumer of the step stream with its own buffer, e.g. metrics or live charts
+    public SimulationRunnerBuilder subscriber(Flow.Subscriber<StepStats> subscriber, int capacity, OverflowPolicy policy) {
+        subscribers.add(new Subscription(subscriber, capacity, policy));
+        return this;
+    }
+
+    // Stops the simulation early once a step matches the condition (checked asynchronously)
+    public SimulationRunnerBuilder stopWhen(Predicate<StepStats> condition) {
+        this.stopCondition = condition;
+        return this;
+    }
+
+    // Writes heatmap frames of the grid between steps; capture time is kept out of the step times. The recorder is
+    // closed when the run ends
+    public SimulationRunnerBuilder heatmap(HeatmapRecorder heatmap) {
+        this.heatmap = heatmap;
+        return this;
+    }
+
+    // Leaves the solver running after the run instead of shutting it down, for a caller that resets and reuses it
+    public SimulationRunnerBuilder keepSolver() {
+        this.keepSolver = true;
+        return this;
+    }
+
+    // Records the infection and recovery tick of every cell and saves them to the given file after the run,
+    // see TransitionHistory
+    public SimulationRunnerBuilder recordTransitions(Path historyPath) {
+        this.historyPath = historyPath;
+        return this;
+    }
+
     public void run() {
         if (solver == null || logger == null) {
             throw new IllegalStateException("Solver and logger must be set before running the simulation.");
@@ -44,35 +106,142 @@ public class SimulationRunnerBuilder {
             System.out.printf("Output Log: %s%n", outputPath.toAbsolutePath());
         }
 
+        // Every consumer of the step stream gets its own buffer; only the CSV log, which the Analyzer, the result store
+        // and the cache read, may stall the solver when its buffer is full
+        BoundedPublisher<StepStats> publisher = new BoundedPublisher<>();
+        LoggingSubscriber logSubscriber = new LoggingSubscriber(logger);
+        publisher.subscribe(logSubscriber, LOG_BUFFER_CAPACITY, OverflowPolicy.BLOCK, null);
+        publisher.subscribe(new ProgressSubscriber(solver.getName(), PROGRESS_INTERVAL_NANOS), 1, OverflowPolicy.DROP_OLDEST, null);
+        for (Subscription subscription : subscribers) {
+            publisher.subscribe(subscription.subscriber(), subscription.capacity(), subscription.policy(), StepStats::merge);
+        }
+        EarlyStopDetector earlyStop = null;
+        if (stopCondition != null) {
+            earlyStop = new EarlyStopDetector(stopCondition);
+            publisher.subscribe(earlyStop, BoundedPublisher.DEFAULT_CAPACITY, OverflowPolicy.COALESCE, StepStats::merge);
+        }
+
+        TransitionHistory history = startHistory();
+
+        // Allocations of the publisher threads belong to the subscribers, not to the step, the same holds for the
+        // heatmap encoder that works while steps run
+        MemoryMonitor memoryMonitor = new MemoryMonitor(Set.of(BoundedPublisher.THREAD_NAME, HeatmapRecorder.THREAD_NAME));
         int tick = 0;
-        long totalNanos = 0;
+        totalNanos = 0;
+        totalAllocatedBytes = 0;
         long startWall = System.nanoTime();
-        long lastReport = startWall;
 
         // Start the simulation
-        try (SimulationLogger log = logger) {
-            while (!solver.isFinished()) {
-                StepStats stats = solver.step(tick);
-                log.log(stats);
-                totalNanos += stats.stepTimeNanos();
-                tick++;
-
-                // Report progress every 5 seconds
-                long now = System.nanoTime();
-                if ((now - lastReport) > 5_000_000_000L) {
-                    System.out.printf("[%s progress] Tick %d, S: %d, I: %d, R: %d%n",
-                            solver.getName(), stats.tick(), stats.totalSusceptible(), stats.totalInfected(), stats.totalRecovered());
-                    lastReport = now;
+        try {
+            if (solver instanceof PipelinedSIRSolver pipelined) {
+                tick = runPipelined(pipelined, publisher, memoryMonitor, earlyStop);
+            } else {
+                while (!solver.isFinished() && (earlyStop == null || !earlyStop.isTriggered())) {
+                    memoryMonitor.beginStep();
+                    publishStep(publisher, memoryMonitor.endStep(solver.step(tick)));
+                    captureHeatmap(tick, solver);
+                    tick++;
                 }
             }
             long endWall = System.nanoTime();
-            System.out.printf("Simulation for %s ended in %d steps. Solver CPU time: %.3f s. Wall clock time: %.3f s.%n",
-                    solver.getName(), tick, totalNanos / 1_000_000_000.0, (endWall - startWall) / 1_000_000_000.0);
+            if (earlyStop != null && earlyStop.isTriggered()) {
+                System.out.printf("Simulation for %s stopped early at tick %d.%n", solver.getName(), earlyStop.getTriggeredBy().tick());
+            }
+            System.out.printf("Simulation for %s ended in %d steps. Solver CPU time: %.3f s. Wall clock time: %.3f s. Allocated: %.1f MB.%n",
+                    solver.getName(), tick, totalNanos / 1_000_000_000.0, (endWall - startWall) / 1_000_000_000.0,
+                    totalAllocatedBytes / (1024.0 * 1024.0));
+            if (heatmap != null && heatmap.getCaptureNanos() > 0) {
+                System.out.printf("Heatmap capture took %.3f s, %.1f%% of solver time (background encoding not included).%n",
+                        heatmap.getCaptureNanos() / 1_000_000_000.0, 100.0 * heatmap.getCaptureNanos() / Math.max(1, totalNanos));
+            }
+        } finally {
+            memoryMonitor.close();
+            if (heatmap != null) {
+                heatmap.close();
+            }
+            if (!keepSolver) {
+                solver.shutdown();
+            }
+            publisher.close();
+            awaitSubscribers(publisher);
+        }
+
+        if (history != null) {
+            saveHistory(history);
+        }
+
+        long droppedLogRows = publisher.getDroppedCount(logSubscriber);
+        if (droppedLogRows > 0) {
+            System.err.printf("CSV log was cancelled and missed %d steps.%n", droppedLogRows);
+        }
+    }
+
+    // Starts tick t+1 before tick t is published and checked, so the solver computes while this thread works.
+    // The termination check is therefore one tick late and the extra tick is discarded.
+    private int runPipelined(PipelinedSIRSolver pipelined, BoundedPublisher<StepStats> publisher,
+                             MemoryMonitor memoryMonitor, EarlyStopDetector earlyStop) {
+        if (pipelined.isFinished()) {
+            return 0;
+        }
+        int tick = 0;
+        memoryMonitor.beginStep();
+        pipelined.beginStep(tick);
+        StepStats stats = memoryMonitor.endStep(pipelined.awaitStep());
+        while (true) {
+            // The only moment no step is in flight
+            captureHeatmap(tick, pipelined);
+            memoryMonitor.beginStep();
+            pipelined.beginStep(tick + 1);
+            publishStep(publisher, stats);
+            tick++;
+            if (stats.totalInfected() == 0 || (earlyStop != null && earlyStop.isTriggered())) {
+                pipelined.discardStep();
+                return tick;
+            }
+            stats = memoryMonitor.endStep(pipelined.awaitStep());
+        }
+    }
+
+    private TransitionHistory startHistory() {
+        if (historyPath == null) {
+            return null;
+        }
+        try {
+            return solver.recordTransitions();
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Transition history not recorded: " + e.getMessage());
+            return null;
+        }
+    }
 
+    private void saveHistory(TransitionHistory history) {
+        try {
+            history.save(historyPath);
+            System.out.printf("Transition history: %s%n", historyPath.toAbsolutePath());
         } catch (IOException e) {
-            System.err.println("Failed to write CSV: " + e.getMessage());
-        } finally {
-            solver.shutdown();
+            System.err.println("Could not save the transition history to " + historyPath + ": " + e.getMessage());
+        }
+    }
+
+    private void captureHeatmap(int tick, SIRSolver solver) {
+        if (heatmap != null) {
+            heatmap.capture(tick, solver::view);
+        }
+    }
+
+    private void publishStep(BoundedPublisher<StepStats> publisher, StepStats stats) {
+        publisher.submit(stats);
+        totalAllocatedBytes += stats.allocatedBytes();
+        totalNanos += stats.stepTimeNanos();
+    }
+
+    private static void awaitSubscribers(BoundedPublisher<StepStats> publisher) {
+        try {
+            if (!publisher.awaitCompletion(SUBSCRIBER_DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Timed out waiting for step subscribers to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,9 @@ package sir.analyzer;
 
 import sir.model.Configuration;
 import sir.model.RunStats;
+import sir.store.Aggregate;
+import sir.store.QueryResult;
+import sir.store.Table;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -18,6 +21,10 @@ public class Analyzer {
 
     private static final String BASE_FOLDER = "src/main/resources/output/";
     public static final String OUTPUT_FOLDER = "src/main/resources/processed/";
+    // Per-tick ensemble statistics of the S/I/R curves, one folder per solver and one file per generation
+    public static final String TRAJECTORY_FOLDER = OUTPUT_FOLDER + "trajectories/";
+    // Columnar tables of all runs and logged ticks, see ResultStore
+    public static final String STORE_FOLDER = OUTPUT_FOLDER + "store/";
 
     public static void main(String[] args) throws IOException {
         Path rootDir = Paths.get(BASE_FOLDER);
@@ -28,7 +35,8 @@ public class Analyzer {
         Map<String, List<RunStats>> allStatsPerSolver = new HashMap<>();
 
         // Process each generation folder
-        try (Stream<Path> genFolders = Files.list(rootDir)) {
+        try (Stream<Path> genFolders = Files.list(rootDir);
+             ResultStore store = new ResultStore(Paths.get(STORE_FOLDER))) {
             genFolders
                     .filter(Files::isDirectory)
                     .filter(p -> p.getFileName().toString().startsWith("gen"))
@@ -36,7 +44,7 @@ public class Analyzer {
                         try {
                             // Load configuration for the generation
                             Configuration config = ConfigLoader.load(genPath.resolve("config.txt"));
-                            processSolvers(genPath, config, allStatsPerSolver);
+                            processSolvers(genPath, config, allStatsPerSolver, store);
                         } catch (IOException e) {
                             System.err.println("Skipping " + genPath + ": " + e.getMessage());
                         }
@@ -48,22 +56,53 @@ public class Analyzer {
             Path outputFile = outputDir.resolve(entry.getKey() + ".csv");
             CsvWriter.writeToCsv(outputFile, entry.getValue());
         }
+
+        printStepTimeSummary(Table.open(Paths.get(STORE_FOLDER, ResultStore.STEPS_TABLE)));
+    }
+
+    // Step time distribution of every solver and grid size over all logged ticks
+    private static void printStepTimeSummary(Table steps) {
+        long start = System.nanoTime();
+        QueryResult result = steps.query()
+                .groupBy("Solver", "Width", "Height")
+                .aggregate(Aggregate.count(),
+                        Aggregate.quantile("StepTimeNanos", 0.5),
+                        Aggregate.quantile("StepTimeNanos", 0.99))
+                .run();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("--- Step times over %d logged ticks (query took %d ms) ---%n", steps.rowCount(), elapsedMs);
+        for (QueryResult.Row row : result.rows()) {
+            System.out.printf("%-40s %5dx%-5d ticks: %8d  p50: %8.3f ms  p99: %8.3f ms%n",
+                    row.stringKey(0), row.longKey(1), row.longKey(2), (long) row.value(0),
+                    row.value(1) / 1_000_000.0, row.value(2) / 1_000_000.0);
+        }
     }
 
-    private static void processSolvers(Path genPath, Configuration config, Map<String, List<RunStats>> statsMap) throws IOException {
+    private static void processSolvers(Path genPath, Configuration config, Map<String, List<RunStats>> statsMap,
+                                       ResultStore store) throws IOException {
         try (Stream<Path> solverFolders = Files.list(genPath)) {
             solverFolders.filter(Files::isDirectory).forEach(solverPath -> {
                 String solverName = solverPath.getFileName().toString();
 
                 try {
-                    // Load run statistics for the solver
+                    // Load run statistics for the solver, folding the S/I/R curves of its runs on the way
+                    TrajectoryAggregator trajectories = new TrajectoryAggregator();
                     List<RunStats> runStats = RunStatsLoader.loadRuns(
                             solverPath,
                             genPath.getFileName().toString(),
-                            config
+                            config,
+                            trajectories,
+                            store
                     );
 
                     statsMap.computeIfAbsent(solverName, k -> new ArrayList<>()).addAll(runStats);
+
+                    if (trajectories.runCount() > 0) {
+                        Path trajectoryDir = Paths.get(TRAJECTORY_FOLDER, solverName);
+                        Files.createDirectories(trajectoryDir);
+                        trajectories.writeCsv(trajectoryDir.resolve(genPath.getFileName() + ".csv"));
+                    }
                 } catch (IOException e) {
                     System.err.println("Failed processing " + solverName + ": " + e.getMessage());
                 }
@@ -0,0 +1,237 @@
+package sir.analyzer;
+
+import org.knowm.xchart.BitmapEncoder;
+import org.knowm.xchart.internal.chartpart.Chart;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+// Renders charts to PNG files on a bounded pool and skips charts whose inputs did not change since the last run.
+// Every chart is submitted with a fingerprint of the data it is drawn from and the code that draws it (see
+// fingerprint); the fingerprints of the written files are kept in a manifest in the output folder, and a chart whose
+// file exists with the same fingerprint is not drawn again. Charts are built by the pool too, so the caller only
+// computes fingerprints.
+public class ChartRenderer implements Closeable {
+    private static final String MANIFEST_FILE = ".chart_fingerprints";
+    private static final int FORMAT_VERSION = 1;
+    // Charts waiting for a worker per worker thread; submitting more blocks the caller
+    private static final int QUEUED_PER_THREAD = 2;
+    // Hash of the class files of every generator package, read once per process
+    private static final Map<String, byte[]> PACKAGE_VERSIONS = new ConcurrentHashMap<>();
+
+    // Builds the chart to save, or returns null when there is nothing to draw
+    @FunctionalInterface
+    public interface ChartSource {
+        Chart<?, ?> create() throws IOException;
+    }
+
+    private final Path outputDir;
+    private final ExecutorService pool;
+    private final Semaphore queueSlots;
+    private final Map<String, String> previousFingerprints;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final List<Future<?>> pending = new ArrayList<>();
+    private final AtomicInteger rendered = new AtomicInteger();
+    private int skipped;
+
+    public ChartRenderer(Path outputDir, int threads) throws IOException {
+        this.outputDir = outputDir;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.queueSlots = new Semaphore(threads * QUEUED_PER_THREAD);
+        this.previousFingerprints = loadManifest(outputDir.resolve(MANIFEST_FILE));
+    }
+
+    // Hash of the inputs, in order, and of the class files of the generator's package, so a change to how charts are
+    // drawn, including in helpers such as Lttb, invalidates them as well. Paths are hashed by their file contents,
+    // everything else by its string form.
+    public static String fingerprint(Class<?> generator, Object... inputs) {
+        MessageDigest digest = sha256();
+        digest.update(("v" + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        for (Object input : inputs) {
+            digest.update((byte) '|');
+            if (input instanceof Path file) {
+                try {
+                    digest.update(Files.readAllBytes(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + file, e);
+                }
+            } else {
+                digest.update(String.valueOf(input).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        digest.update(packageVersion(generator));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Saves the chart of the source as outputFile (a PNG inside the output folder) unless the file was already
+    // written from the same fingerprint
+    public void render(Path outputFile, String fingerprint, ChartSource source) {
+        String key = outputDir.relativize(outputFile).toString().replace('\\', '/');
+        if (fingerprint.equals(previousFingerprints.get(key)) && Files.exists(outputFile)) {
+            fingerprints.put(key, fingerprint);
+            skipped++;
+            return;
+        }
+        queueSlots.acquireUninterruptibly();
+        pending.add(pool.submit(() -> {
+            try {
+                Chart<?, ?> chart = source.create();
+                if (chart == null) {
+                    System.out.println("No data to generate chart: " + outputFile.getFileName());
+                    return null;
+                }
+                Files.createDirectories(outputFile.getParent());
+                BitmapEncoder.saveBitmap(chart, outputFile.toString(), BitmapEncoder.BitmapFormat.PNG);
+                fingerprints.put(key, fingerprint);
+                rendered.incrementAndGet();
+                System.out.println("Saved chart: " + outputFile);
+                return null;
+            } finally {
+                queueSlots.release();
+            }
+        }));
+    }
+
+    // Waits for all charts and writes the manifest; rethrows the first failure after all other charts are done
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                IOException cause = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                if (failure == null) failure = cause;
+                else failure.addSuppressed(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = new IOException("Interrupted while waiting for charts", e);
+            }
+        }
+        pool.shutdown();
+
+        // Charts not submitted in this run keep their entries as long as their files exist
+        previousFingerprints.forEach((key, fingerprint) -> {
+            if (Files.exists(outputDir.resolve(key))) fingerprints.putIfAbsent(key, fingerprint);
+        });
+        writeManifest(outputDir.resolve(MANIFEST_FILE));
+        System.out.printf("Rendered %d charts, skipped %d unchanged.%n", rendered.get(), skipped);
+        if (failure != null) throw failure;
+    }
+
+    private static Map<String, String> loadManifest(Path manifest) throws IOException {
+        Map<String, String> entries = new ConcurrentHashMap<>();
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) entries.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        return entries;
+    }
+
+    private void writeManifest(Path manifest) throws IOException {
+        Files.createDirectories(outputDir);
+        Path temp = manifest.resolveSibling(MANIFEST_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (var entry : new TreeMap<>(fingerprints).entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] packageVersion(Class<?> type) {
+        return PACKAGE_VERSIONS.computeIfAbsent(type.getPackageName(), p -> hashPackage(type));
+    }
+
+    // Hash of the names and contents of the class files in the package of the type, read from its classes directory
+    // or jar; just the type's own class file when its code source cannot be read
+    private static byte[] hashPackage(Class<?> type) {
+        MessageDigest digest = sha256();
+        String prefix = type.getPackageName().replace('.', '/') + "/";
+        try {
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) {
+                throw new IOException("No code source for " + type.getName());
+            }
+            Path location = Path.of(source.getLocation().toURI());
+            if (Files.isRegularFile(location)) {
+                try (JarFile jar = new JarFile(location.toFile())) {
+                    List<JarEntry> entries = jar.stream()
+                            .filter(e -> isPackageClass(e.getName(), prefix))
+                            .sorted(Comparator.comparing(JarEntry::getName))
+                            .toList();
+                    for (JarEntry entry : entries) {
+                        digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            digest.update(in.readAllBytes());
+                        }
+                    }
+                }
+            } else {
+                try (Stream<Path> files = Files.list(location.resolve(prefix))) {
+                    for (Path file : files.sorted().toList()) {
+                        String name = prefix + file.getFileName();
+                        if (!isPackageClass(name, prefix)) continue;
+                        digest.update(name.getBytes(StandardCharsets.UTF_8));
+                        digest.update(Files.readAllBytes(file));
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            digest.update(classBytes(type));
+        }
+        return digest.digest();
+    }
+
+    // Class files directly in the package, not in subpackages
+    private static boolean isPackageClass(String name, String prefix) {
+        return name.startsWith(prefix) && name.endsWith(".class") && name.indexOf('/', prefix.length()) < 0;
+    }
+
+    private static byte[] classBytes(Class<?> type) {
+        String resource = "/" + type.getName().replace('.', '/') + ".class";
+        try (InputStream in = type.getResourceAsStream(resource)) {
+            return in == null ? type.getName().getBytes(StandardCharsets.UTF_8) : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource, e);
+        }
+    }
+}
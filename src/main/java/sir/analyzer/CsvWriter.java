@@ -14,13 +14,13 @@ public class CsvWriter {
     private CsvWriter() {}
     public static void writeToCsv(Path csvPath, List<RunStats> statsList) throws IOException {
         try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
-            writer.write("Generation,Solver,Run,Width,Height,InitInfected,InfProb,RecProb,Seed,Ticks,TotalTimeNs,AvgStepNs,MaxStepNs,MinStepNs");
+            writer.write("Generation,Solver,Run,Width,Height,InitInfected,InfProb,RecProb,Seed,Ticks,TotalTimeNs,AvgStepNs,MaxStepNs,MinStepNs,TotalAllocatedBytes,TotalGcPauseNs,ResidentBytesPerCell");
             writer.newLine();
 
             for (RunStats stats : statsList) {
                 var c = stats.config();
                 writer.write(String.format(Locale.US,
-                        "%s,%s,%d,%d,%d,%d,%.5f,%.5f,%s,%d,%d,%d,%d,%d",
+                        "%s,%s,%d,%d,%d,%d,%.5f,%.5f,%s,%d,%d,%d,%d,%d,%d,%d,%.3f",
                         stats.generation(),
                         stats.solverName(),
                         stats.runNumber(),
@@ -34,7 +34,10 @@ public class CsvWriter {
                         stats.totalTimeNs(),
                         stats.avgStepNs(),
                         stats.maxStepNs(),
-                        stats.minStepNs()
+                        stats.minStepNs(),
+                        stats.totalAllocatedBytes(),
+                        stats.totalGcPauseNs(),
+                        stats.residentBytesPerCell()
                 ));
                 writer.newLine();
             }
@@ -0,0 +1,124 @@
+package sir.analyzer;
+
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries;
+import org.knowm.xchart.style.Styler;
+import org.knowm.xchart.style.lines.SeriesLines;
+import org.knowm.xchart.style.markers.SeriesMarkers;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Draws the S/I/R curves written by TrajectoryAggregator: the mean over all runs of a solver and generation as a
+// solid line and the band holding 90% of the runs (5% and 95% quantiles) as dashed lines of the same color.
+// Runs can be far longer than the chart is wide, so every series is downsampled (see Lttb) before it is drawn.
+public class EpidemicCurveChartGenerator {
+    private static final int WIDTH = 1400;
+    private static final int HEIGHT = 700;
+    // About one point per pixel column of the plot
+    private static final int MAX_POINTS = WIDTH;
+    private static final String[] COMPARTMENTS = {"Susceptible", "Infected", "Recovered"};
+    private static final Color[] COLORS = {new Color(31, 119, 180), new Color(214, 39, 40), new Color(44, 160, 44)};
+    // Columns per compartment in the trajectory CSV: Mean, StdDev, CiLow, CiHigh, P05, P50, P95
+    private static final int COLUMNS_PER_COMPARTMENT = 7;
+
+    // trajectoryDir holds one folder per solver with one CSV per generation
+    public static void generateEpidemicCurveCharts(Path trajectoryDir, Path outputDir, ChartRenderer renderer) throws IOException {
+        try (Stream<Path> solverDirs = Files.list(trajectoryDir)) {
+            for (Path solverDir : solverDirs.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> files = Files.list(solverDir)) {
+                    for (Path csvFile : files.filter(p -> p.toString().endsWith(".csv")).toList()) {
+                        String generation = csvFile.getFileName().toString().replace(".csv", "");
+                        String solverName = solverDir.getFileName().toString();
+                        String title = solverName + " - " + generation;
+                        renderer.render(outputDir.resolve(solverName + "_" + generation + ".png"),
+                                ChartRenderer.fingerprint(EpidemicCurveChartGenerator.class, csvFile, title),
+                                () -> createChart(csvFile, title));
+                    }
+                }
+            }
+        }
+    }
+
+    private static XYChart createChart(Path csvFile, String title) throws IOException {
+        List<Integer> ticks = new ArrayList<>();
+        List<List<Double>> means = newSeriesLists();
+        List<List<Double>> lower = newSeriesLists();
+        List<List<Double>> upper = newSeriesLists();
+        long runs = 0;
+
+        List<String> lines = Files.readAllLines(csvFile).stream().skip(1).toList();
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            if (parts.length < 2 + COMPARTMENTS.length * COLUMNS_PER_COMPARTMENT) {
+                System.err.println("Skipping malformed line in " + csvFile.getFileName() + ": " + line);
+                continue;
+            }
+            try {
+                int tick = Integer.parseInt(parts[0]);
+                long tickRuns = Long.parseLong(parts[1]);
+                double[] values = new double[COMPARTMENTS.length * 3];
+                for (int c = 0; c < COMPARTMENTS.length; c++) {
+                    int base = 2 + c * COLUMNS_PER_COMPARTMENT;
+                    values[c * 3] = Double.parseDouble(parts[base]);
+                    values[c * 3 + 1] = Double.parseDouble(parts[base + 4]);
+                    values[c * 3 + 2] = Double.parseDouble(parts[base + 6]);
+                }
+                ticks.add(tick);
+                runs = Math.max(runs, tickRuns);
+                for (int c = 0; c < COMPARTMENTS.length; c++) {
+                    means.get(c).add(values[c * 3]);
+                    lower.get(c).add(values[c * 3 + 1]);
+                    upper.get(c).add(values[c * 3 + 2]);
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing line in " + csvFile.getFileName() + ": " + line + ". Error: " + e.getMessage());
+            }
+        }
+        if (ticks.isEmpty()) {
+            return null;
+        }
+
+        XYChart chart = new XYChartBuilder()
+                .width(WIDTH)
+                .height(HEIGHT)
+                .title("Epidemic Curves (" + runs + " runs) - " + title)
+                .xAxisTitle("Tick")
+                .yAxisTitle("Cells")
+                .build();
+        chart.getStyler().setLegendPosition(Styler.LegendPosition.OutsideE);
+        chart.getStyler().setToolTipsEnabled(false);
+
+        for (int c = 0; c < COMPARTMENTS.length; c++) {
+            addSeries(chart, COMPARTMENTS[c] + " mean", ticks, means.get(c), COLORS[c], SeriesLines.SOLID);
+            addSeries(chart, COMPARTMENTS[c] + " 5%", ticks, lower.get(c), COLORS[c], SeriesLines.DASH_DASH);
+            addSeries(chart, COMPARTMENTS[c] + " 95%", ticks, upper.get(c), COLORS[c], SeriesLines.DASH_DASH);
+        }
+
+        return chart;
+    }
+
+    private static List<List<Double>> newSeriesLists() {
+        List<List<Double>> lists = new ArrayList<>();
+        for (int c = 0; c < COMPARTMENTS.length; c++) {
+            lists.add(new ArrayList<>());
+        }
+        return lists;
+    }
+
+    private static void addSeries(XYChart chart, String name, List<Integer> ticks, List<Double> values,
+                                  Color color, BasicStroke stroke) {
+        int[] kept = Lttb.select(ticks, values, MAX_POINTS);
+        XYSeries series = chart.addSeries(name, Lttb.pick(ticks, kept), Lttb.pick(values, kept));
+        series.setMarker(SeriesMarkers.NONE);
+        series.setLineColor(color);
+        series.setLineStyle(stroke);
+    }
+}
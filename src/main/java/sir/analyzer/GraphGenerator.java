@@ -5,153 +5,193 @@ import org.knowm.xchart.style.CategoryStyler;
 import org.knowm.xchart.style.Styler;
 import org.knowm.xchart.style.markers.SeriesMarkers;
 
+import sir.store.Aggregate;
+import sir.store.QueryResult;
+import sir.store.Table;
+
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Stream;
 
 public class GraphGenerator {
+    // Charts are drawn and encoded in parallel, see ChartRenderer
+    private static final int RENDER_THREADS = Runtime.getRuntime().availableProcessors();
 
     public static void main(String[] args) throws IOException {
-        Path inputDir = Paths.get("src/main/resources/processed");
         Path outputDir = Paths.get("src/main/resources/graphs");
 
         Path avgStepDir = outputDir.resolve("avg_step_time");
         Path totalTimeDir = outputDir.resolve("total_time");
         Path avgSpeedDir = outputDir.resolve("avg_speed_ticks_per_ms");
         Path comparisonByGridDir = outputDir.resolve("solver_comparison_by_grid");
+        Path allocationDir = outputDir.resolve("allocated_bytes_per_tick");
+        Path gcPauseDir = outputDir.resolve("gc_pause_time");
+        Path residentDir = outputDir.resolve("resident_bytes_per_cell");
+        Path scalingInputDir = Paths.get("src/main/resources/scaling");
+        Path scalingDir = outputDir.resolve("scaling");
+        Path trajectoryInputDir = Paths.get(Analyzer.TRAJECTORY_FOLDER);
+        Path epidemicCurveDir = outputDir.resolve("epidemic_curves");
 
         Files.createDirectories(avgStepDir);
         Files.createDirectories(totalTimeDir);
         Files.createDirectories(avgSpeedDir);
         Files.createDirectories(comparisonByGridDir);
+        Files.createDirectories(allocationDir);
+        Files.createDirectories(gcPauseDir);
+        Files.createDirectories(residentDir);
+
+        // Charts whose inputs did not change since the last run are skipped
+        try (ChartRenderer renderer = new ChartRenderer(outputDir, RENDER_THREADS)) {
+            // Produced by Analyzer from the run logs of every solver and generation
+            Path runsTableDir = Paths.get(Analyzer.STORE_FOLDER, ResultStore.RUNS_TABLE);
+            if (Files.isDirectory(runsTableDir)) {
+                Table runs = Table.open(runsTableDir);
+                generateSolverCharts(renderer, runs, avgStepDir, totalTimeDir, avgSpeedDir, allocationDir, gcPauseDir, residentDir);
+                generateSolverComparisonByGridSizeChart(renderer, runs, comparisonByGridDir);
+            } else {
+                System.out.println("No result store found, skipping solver charts. Run Analyzer first.");
+            }
 
-        Map<String, Map<String, List<Long>>> performanceDataByGridSize = new LinkedHashMap<>();
-
-        try (Stream<Path> files = Files.list(inputDir)) {
-            List<Path> csvFiles = files
-                    .filter(p -> p.toString().endsWith(".csv"))
-                    .toList();
-
-            for (Path csvFile : csvFiles) {
-                String solverName = csvFile.getFileName().toString().replace(".csv", "");
-
-                Map<String, List<Long>> genToTicksList = new LinkedHashMap<>();
-                Map<String, List<Long>> genToTotalTimeNsList = new LinkedHashMap<>();
-                Map<String, List<Long>> genToAvgStepNsList = new LinkedHashMap<>();
-                Map<String, String> genToGridSize = new LinkedHashMap<>();
-
-                List<String> lines = Files.readAllLines(csvFile).stream().skip(1).toList();
-
-                for (String line : lines) {
-                    String[] parts = line.split(",");
-                    if (parts.length < 12) {
-                        System.err.println("Skipping malformed line in " + csvFile.getFileName() + " (expected at least 12 parts): " + line);
-                        continue;
-                    }
-
-                    try {
-                        String generationKey = parts[0];
-                        int width = Integer.parseInt(parts[3]);
-                        int height = Integer.parseInt(parts[4]);
-                        String currentGridSize = width + "x" + height;
-
-                        long currentRunTicks = Long.parseLong(parts[9]);
-                        long currentRunTotalTimeNs = Long.parseLong(parts[10]);
-                        long currentRunAvgStepNs = Long.parseLong(parts[11]);
-
-                        genToTicksList.computeIfAbsent(generationKey, g -> new ArrayList<>()).add(currentRunTicks);
-                        genToTotalTimeNsList.computeIfAbsent(generationKey, g -> new ArrayList<>()).add(currentRunTotalTimeNs);
-                        genToAvgStepNsList.computeIfAbsent(generationKey, g -> new ArrayList<>()).add(currentRunAvgStepNs);
-                        genToGridSize.putIfAbsent(generationKey, currentGridSize);
-
-                        performanceDataByGridSize
-                                .computeIfAbsent(currentGridSize, k -> new LinkedHashMap<>())
-                                .computeIfAbsent(solverName, k -> new ArrayList<>())
-                                .add(currentRunTotalTimeNs);
+            // Produced by Analyzer from the per-tick S/I/R counts of every run
+            if (Files.isDirectory(trajectoryInputDir)) {
+                Files.createDirectories(epidemicCurveDir);
+                EpidemicCurveChartGenerator.generateEpidemicCurveCharts(trajectoryInputDir, epidemicCurveDir, renderer);
+            } else {
+                System.out.println("No trajectory statistics found, skipping epidemic curve charts.");
+            }
 
-                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                        System.err.println("Error parsing line in " + csvFile.getFileName() + ": " + line + ". Error: " + e.getMessage());
-                    }
+            // Produced by ScalingStudyRunner
+            Path strongScalingFile = scalingInputDir.resolve("strong_scaling.csv");
+            Path weakScalingFile = scalingInputDir.resolve("weak_scaling.csv");
+            if (Files.exists(strongScalingFile) || Files.exists(weakScalingFile)) {
+                Files.createDirectories(scalingDir);
+                if (Files.exists(strongScalingFile)) {
+                    ScalingChartGenerator.generateStrongScalingCharts(strongScalingFile, scalingDir, renderer);
                 }
+                if (Files.exists(weakScalingFile)) {
+                    ScalingChartGenerator.generateWeakScalingCharts(weakScalingFile, scalingDir, renderer);
+                }
+            } else {
+                System.out.println("No scaling study results found, skipping scaling charts.");
+            }
+        }
+    }
 
-                List<String> generationLabelsForFile = new ArrayList<>();
-                List<Double> avgStepMsValues = new ArrayList<>();
-                List<Double> avgTotalTimeSecValues = new ArrayList<>();
-                List<Double> avgSpeedTicksPerMsValues = new ArrayList<>();
-
-                for (String generationKey : genToTicksList.keySet()) {
-                    String gridSizeForGen = genToGridSize.getOrDefault(generationKey, "?x?");
-                    String label = generationKey + " - " + gridSizeForGen;
-                    generationLabelsForFile.add(label);
-
-                    double avgStep = genToAvgStepNsList.getOrDefault(generationKey, Collections.emptyList()).stream()
-                            .mapToLong(Long::longValue).average().orElse(0) / 1_000_000.0;
-                    avgStepMsValues.add(avgStep);
-
-                    double avgTotalTime = genToTotalTimeNsList.getOrDefault(generationKey, Collections.emptyList()).stream()
-                            .mapToLong(Long::longValue).average().orElse(0) / 1_000_000_000.0;
-                    avgTotalTimeSecValues.add(avgTotalTime);
-
-                    double avgTicks = genToTicksList.getOrDefault(generationKey, Collections.emptyList()).stream()
-                            .mapToLong(Long::longValue).average().orElse(0);
+    // Per solver, one bar per generation with the means over its runs
+    private static void generateSolverCharts(ChartRenderer renderer, Table runs, Path avgStepDir, Path totalTimeDir, Path avgSpeedDir,
+                                             Path allocationDir, Path gcPauseDir, Path residentDir) {
+        QueryResult perGeneration = runs.query()
+                .groupBy("Solver", "Generation", "Width", "Height")
+                .aggregate(Aggregate.mean("AvgStepNs"),
+                        Aggregate.mean("TotalTimeNs"),
+                        Aggregate.mean("Ticks"),
+                        Aggregate.mean("AllocatedBytesPerTick"),
+                        Aggregate.mean("TotalGcPauseNs"),
+                        Aggregate.mean("ResidentBytesPerCell"),
+                        Aggregate.sum("TotalAllocatedBytes"))
+                .run();
+
+        Map<String, List<QueryResult.Row>> rowsPerSolver = new LinkedHashMap<>();
+        for (QueryResult.Row row : perGeneration.rows()) {
+            rowsPerSolver.computeIfAbsent(row.stringKey(0), k -> new ArrayList<>()).add(row);
+        }
 
-                    double speedInTicksPerMs = (avgTotalTime > 0) ? (avgTicks / (avgTotalTime * 1000.0)) : 0;
-                    avgSpeedTicksPerMsValues.add(speedInTicksPerMs);
-                }
+        for (var entry : rowsPerSolver.entrySet()) {
+            String solverName = entry.getKey();
+            List<String> generationLabelsForFile = new ArrayList<>();
+            List<Double> avgStepMsValues = new ArrayList<>();
+            List<Double> avgTotalTimeSecValues = new ArrayList<>();
+            List<Double> avgSpeedTicksPerMsValues = new ArrayList<>();
+            List<Double> avgAllocatedKbPerTickValues = new ArrayList<>();
+            List<Double> avgGcPauseMsValues = new ArrayList<>();
+            List<Double> avgResidentPerCellValues = new ArrayList<>();
+            // Logs written before the memory columns were introduced have no allocations and no resident size
+            boolean hasMemoryData = false;
+
+            for (QueryResult.Row row : entry.getValue()) {
+                generationLabelsForFile.add(row.stringKey(1) + " - " + row.longKey(2) + "x" + row.longKey(3));
+
+                avgStepMsValues.add(row.value(0) / 1_000_000.0);
+                double avgTotalTime = row.value(1) / 1_000_000_000.0;
+                avgTotalTimeSecValues.add(avgTotalTime);
+                double avgTicks = row.value(2);
+                double speedInTicksPerMs = (avgTotalTime > 0) ? (avgTicks / (avgTotalTime * 1000.0)) : 0;
+                avgSpeedTicksPerMsValues.add(speedInTicksPerMs);
+
+                avgAllocatedKbPerTickValues.add(orZero(row.value(3)) / 1024.0);
+                avgGcPauseMsValues.add(orZero(row.value(4)) / 1_000_000.0);
+                avgResidentPerCellValues.add(orZero(row.value(5)));
+                hasMemoryData |= row.value(6) > 0 || !Double.isNaN(row.value(5));
+            }
 
-                if (!generationLabelsForFile.isEmpty()) {
-                    saveChart(avgStepDir, solverName + "_avg_step.png", "Avg Step Time - " + solverName, generationLabelsForFile, avgStepMsValues, "Avg Step Time (ms)");
-                    saveChart(totalTimeDir, solverName + "_total_time.png", "Total Time - " + solverName, generationLabelsForFile, avgTotalTimeSecValues, "Total Time (s)");
-                    saveChart(avgSpeedDir, solverName + "_avg_speed_ticks_per_ms.png", "Avg Speed (Ticks/ms) - " + solverName, generationLabelsForFile, avgSpeedTicksPerMsValues, "Ticks per ms");
-                    System.out.println("Saved individual charts for: " + solverName);
-                } else {
-                    System.out.println("No data to generate individual charts for: " + solverName);
-                }
+            saveChart(renderer, avgStepDir, solverName + "_avg_step.png", "Avg Step Time - " + solverName, generationLabelsForFile, avgStepMsValues, "Avg Step Time (ms)");
+            saveChart(renderer, totalTimeDir, solverName + "_total_time.png", "Total Time - " + solverName, generationLabelsForFile, avgTotalTimeSecValues, "Total Time (s)");
+            saveChart(renderer, avgSpeedDir, solverName + "_avg_speed_ticks_per_ms.png", "Avg Speed (Ticks/ms) - " + solverName, generationLabelsForFile, avgSpeedTicksPerMsValues, "Ticks per ms");
+            if (hasMemoryData) {
+                saveChart(renderer, allocationDir, solverName + "_allocated_per_tick.png", "Allocated Memory per Tick - " + solverName, generationLabelsForFile, avgAllocatedKbPerTickValues, "Allocated per Tick (KB)");
+                saveChart(renderer, gcPauseDir, solverName + "_gc_pause.png", "GC Pause Time per Run - " + solverName, generationLabelsForFile, avgGcPauseMsValues, "GC Pause Time (ms)");
+                saveChart(renderer, residentDir, solverName + "_resident_per_cell.png", "Resident Memory per Cell - " + solverName, generationLabelsForFile, avgResidentPerCellValues, "Resident per Cell (bytes)");
             }
+            System.out.println("Queued individual charts for: " + solverName);
         }
-
-        if (!performanceDataByGridSize.isEmpty()) {
-            generateSolverComparisonByGridSizeChart(performanceDataByGridSize, comparisonByGridDir);
-            System.out.println("Saved solver comparison by grid size chart.");
-        } else {
-            System.out.println("No data to generate solver comparison by grid size chart.");
+        if (rowsPerSolver.isEmpty()) {
+            System.out.println("No data to generate individual charts.");
         }
     }
 
-    private static void saveChart(Path folder, String fileName, String title,
-                                  List<String> xLabels, List<Double> yValues, String yLabel) throws IOException {
+    private static double orZero(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    private static void saveChart(ChartRenderer renderer, Path folder, String fileName, String title,
+                                  List<String> xLabels, List<Double> yValues, String yLabel) {
         if (xLabels.isEmpty() || yValues.isEmpty()) {
             System.err.println("Skipping chart generation for " + title + " due to empty data.");
             return;
         }
 
-        CategoryChart chart = new CategoryChartBuilder()
-                .width(1400)
-                .height(700)
-                .title(title)
-                .xAxisTitle("Generation - GridSize")
-                .yAxisTitle(yLabel)
-                .build();
-
-        Styler styler = chart.getStyler();
-        styler.setLegendPosition(Styler.LegendPosition.InsideNE);
-        styler.setToolTipsEnabled(false);
-
-        String seriesName = yLabel;
-        if (yLabel.contains("(")) {
-            seriesName = yLabel.substring(0, yLabel.indexOf('(')).trim();
-        }
-        seriesName = seriesName.substring(0, Math.min(seriesName.length(), 30));
-
-        chart.addSeries(seriesName, xLabels, yValues);
+        renderer.render(folder.resolve(fileName),
+                ChartRenderer.fingerprint(GraphGenerator.class, title, xLabels, yValues, yLabel),
+                () -> {
+                    CategoryChart chart = new CategoryChartBuilder()
+                            .width(1400)
+                            .height(700)
+                            .title(title)
+                            .xAxisTitle("Generation - GridSize")
+                            .yAxisTitle(yLabel)
+                            .build();
+
+                    Styler styler = chart.getStyler();
+                    styler.setLegendPosition(Styler.LegendPosition.InsideNE);
+                    styler.setToolTipsEnabled(false);
+
+                    String seriesName = yLabel;
+                    if (yLabel.contains("(")) {
+                        seriesName = yLabel.substring(0, yLabel.indexOf('(')).trim();
+                    }
+                    seriesName = seriesName.substring(0, Math.min(seriesName.length(), 30));
 
-        Path outputFile = folder.resolve(fileName);
-        BitmapEncoder.saveBitmap(chart, outputFile.toString(), BitmapEncoder.BitmapFormat.PNG);
+                    chart.addSeries(seriesName, xLabels, yValues);
+                    return chart;
+                });
     }
 
-    private static void generateSolverComparisonByGridSizeChart(
-            Map<String, Map<String, List<Long>>> data, Path outputDir) throws IOException {
+    private static void generateSolverComparisonByGridSizeChart(ChartRenderer renderer, Table runs, Path outputDir) {
+        QueryResult perGridSize = runs.query()
+                .groupBy("Width", "Height", "Solver")
+                .aggregate(Aggregate.mean("TotalTimeNs"))
+                .run();
+        if (perGridSize.size() == 0) {
+            System.out.println("No data to generate solver comparison by grid size chart.");
+            return;
+        }
+
+        // Grid size -> solver -> average total time in ns
+        Map<String, Map<String, Double>> data = new LinkedHashMap<>();
+        for (QueryResult.Row row : perGridSize.rows()) {
+            data.computeIfAbsent(row.longKey(0) + "x" + row.longKey(1), k -> new LinkedHashMap<>())
+                    .put(row.stringKey(2), row.value(0));
+        }
 
         List<String> sortedGridSizes = new ArrayList<>(data.keySet());
         sortedGridSizes.sort((s1, s2) -> {
@@ -172,47 +212,45 @@ public class GraphGenerator {
         List<String> sortedSolverNames = new ArrayList<>(solverNamesSet);
         Collections.sort(sortedSolverNames);
 
-        CategoryChart chart = new CategoryChartBuilder()
-                .width(1000)
-                .height(600)
-                .title("Solver Performance: Total Time vs. Grid Size")
-                .xAxisTitle("Grid Size (Width x Height - Sorted by Area)")
-                .yAxisTitle("Average Total Time (s)")
-                .build();
-
-        CategoryStyler styler = chart.getStyler();
-        styler.setLegendPosition(Styler.LegendPosition.InsideNE);
-        styler.setToolTipsEnabled(false);
-        styler.setDefaultSeriesRenderStyle(CategorySeries.CategorySeriesRenderStyle.Line);
-        styler.setMarkerSize(5);
-        styler.setXAxisLabelRotation(45);
-
+        // Solver -> average total time in s per grid size, for the solvers with at least one grid size
+        Map<String, List<Double>> seriesPerSolver = new LinkedHashMap<>();
         for (String solverName : sortedSolverNames) {
             List<Double> avgTotalTimesForSolver = new ArrayList<>();
 
             for (String gridSize : sortedGridSizes) {
-                Map<String, List<Long>> solverMap = data.get(gridSize);
-                if (solverMap != null) {
-                    List<Long> times = solverMap.get(solverName);
-                    if (times != null && !times.isEmpty()) {
-                        double average = times.stream().mapToLong(Long::longValue).average().orElse(Double.NaN);
-                        avgTotalTimesForSolver.add(average / 1_000_000_000.0);
-                    } else {
-                        avgTotalTimesForSolver.add(Double.NaN);
-                    }
-                } else {
-                    avgTotalTimesForSolver.add(Double.NaN);
-                }
+                Double average = data.get(gridSize).get(solverName);
+                avgTotalTimesForSolver.add(average == null ? Double.NaN : average / 1_000_000_000.0);
             }
 
             if (!avgTotalTimesForSolver.stream().allMatch(value -> Double.isNaN(value))) {
-                CategorySeries series = chart.addSeries(solverName, sortedGridSizes, avgTotalTimesForSolver);
-                series.setMarker(SeriesMarkers.CIRCLE);
+                seriesPerSolver.put(solverName, avgTotalTimesForSolver);
             }
         }
 
         Path outputFile = outputDir.resolve("solver_performance_by_grid_size.png");
-        BitmapEncoder.saveBitmap(chart, outputFile.toString(), BitmapEncoder.BitmapFormat.PNG);
-        System.out.println("Successfully generated solver comparison chart (line style): " + outputFile);
+        renderer.render(outputFile,
+                ChartRenderer.fingerprint(GraphGenerator.class, sortedGridSizes, seriesPerSolver),
+                () -> {
+                    CategoryChart chart = new CategoryChartBuilder()
+                            .width(1000)
+                            .height(600)
+                            .title("Solver Performance: Total Time vs. Grid Size")
+                            .xAxisTitle("Grid Size (Width x Height - Sorted by Area)")
+                            .yAxisTitle("Average Total Time (s)")
+                            .build();
+
+                    CategoryStyler styler = chart.getStyler();
+                    styler.setLegendPosition(Styler.LegendPosition.InsideNE);
+                    styler.setToolTipsEnabled(false);
+                    styler.setDefaultSeriesRenderStyle(CategorySeries.CategorySeriesRenderStyle.Line);
+                    styler.setMarkerSize(5);
+                    styler.setXAxisLabelRotation(45);
+
+                    seriesPerSolver.forEach((solverName, values) -> {
+                        CategorySeries series = chart.addSeries(solverName, sortedGridSizes, values);
+                        series.setMarker(SeriesMarkers.CIRCLE);
+                    });
+                    return chart;
+                });
     }
 }
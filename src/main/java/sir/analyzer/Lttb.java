@@ -0,0 +1,71 @@
+package sir.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013): keeps the first and last point and from each of
+// threshold - 2 equal buckets in between the point that forms the largest triangle with the point kept from the
+// previous bucket and the average of the next bucket. Peaks and the overall shape survive, unlike with every-n-th
+// sampling, so a series longer than the chart is wide draws the same line from far fewer points.
+final class Lttb {
+
+    private Lttb() { }
+
+    // Indices of the points to keep, in increasing order; all indices when there are no more than threshold points
+    static int[] select(List<? extends Number> xs, List<? extends Number> ys, int threshold) {
+        int n = xs.size();
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+        int[] kept = new int[threshold];
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        kept[0] = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, or the last point for the last bucket
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs.get(i).doubleValue();
+                avgY += ys.get(i).doubleValue();
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount == 0) {
+                avgX = xs.get(n - 1).doubleValue();
+                avgY = ys.get(n - 1).doubleValue();
+            } else {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            }
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double ax = xs.get(a).doubleValue();
+            double ay = ys.get(a).doubleValue();
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (ys.get(i).doubleValue() - ay)
+                        - (ax - xs.get(i).doubleValue()) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            kept[bucket + 1] = chosen;
+            a = chosen;
+        }
+        kept[threshold - 1] = n - 1;
+        return kept;
+    }
+
+    // The kept elements of values
+    static <T> List<T> pick(List<T> values, int[] indices) {
+        ArrayList<T> picked = new ArrayList<>(indices.length);
+        for (int index : indices) picked.add(values.get(index));
+        return picked;
+    }
+}
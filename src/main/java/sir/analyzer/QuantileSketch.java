@@ -0,0 +1,86 @@
+package sir.analyzer;
+
+// Mergeable quantile sketch with relative accuracy (the DDSketch scheme) for non-negative values. A positive value v
+// is counted in bucket ceil(log_gamma(v)), so any quantile is returned within RELATIVE_ACCURACY of a true sample
+// value, clamped to the smallest and largest value seen; values below 1 share one zero bucket. Only the buckets between the smallest and largest index seen are
+// stored, which for the counts of one tick across runs is a few dozen to a few hundred ints. Two sketches merge
+// exactly by adding their buckets, so runs can be folded in any order.
+final class QuantileSketch {
+    static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // counts[k] is the count of bucket offset + k
+    private int[] counts = new int[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double smallest = Double.POSITIVE_INFINITY;
+    private double largest = Double.NEGATIVE_INFINITY;
+
+    void add(double value) {
+        count++;
+        smallest = Math.min(smallest, value);
+        largest = Math.max(largest, value);
+        if (value < 1) {
+            zeroCount++;
+            return;
+        }
+        increment((int) Math.ceil(Math.log(value) / LOG_GAMMA), 1);
+    }
+
+    void merge(QuantileSketch other) {
+        for (int k = 0; k < other.counts.length; k++) {
+            if (other.counts[k] > 0) {
+                increment(other.offset + k, other.counts[k]);
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        smallest = Math.min(smallest, other.smallest);
+        largest = Math.max(largest, other.largest);
+    }
+
+    QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.merge(this);
+        return copy;
+    }
+
+    // Value below which a fraction q of the samples lies
+    double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        long rank = (long) (q * (count - 1));
+        if (rank < zeroCount) return Math.max(smallest, 0);
+        long below = zeroCount;
+        for (int k = 0; k < counts.length; k++) {
+            below += counts[k];
+            if (below > rank) {
+                // Midpoint of the bucket (gamma^(i-1), gamma^i] in relative terms
+                return clamp(2 * Math.pow(GAMMA, offset + k) / (GAMMA + 1));
+            }
+        }
+        return largest;
+    }
+
+    private double clamp(double value) {
+        return Math.max(smallest, Math.min(largest, value));
+    }
+
+    private void increment(int bucket, int by) {
+        if (counts.length == 0) {
+            counts = new int[1];
+            offset = bucket;
+        } else if (bucket < offset) {
+            int[] grown = new int[counts.length + (offset - bucket)];
+            System.arraycopy(counts, 0, grown, offset - bucket, counts.length);
+            counts = grown;
+            offset = bucket;
+        } else if (bucket >= offset + counts.length) {
+            int[] grown = new int[bucket - offset + 1];
+            System.arraycopy(counts, 0, grown, 0, counts.length);
+            counts = grown;
+        }
+        counts[bucket - offset] += by;
+    }
+}
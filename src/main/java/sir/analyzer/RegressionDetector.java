@@ -0,0 +1,257 @@
+package sir.analyzer;
+
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries;
+import org.knowm.xchart.style.Styler;
+import org.knowm.xchart.style.lines.SeriesLines;
+import org.knowm.xchart.style.markers.SeriesMarkers;
+import sir.store.StringColumn;
+import sir.store.Table;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+// Compares the step times of every solver on the same configuration across generations and flags the ones that got
+// measurably slower. Runs from Analyzer's result store are grouped by solver and configuration and ordered by
+// generation; the sample of a run is its average step time, so the samples are independent (per-tick times of one run
+// are not). Per group:
+//   1. Pettitt's change-point test picks the generation boundary where the step times shift the most; if the shift
+//      is significant the generations before it are the baseline, otherwise all generations before the latest.
+//   2. A one-sided Mann-Whitney test compares the latest generation with the baseline, and a bootstrap gives a
+//      confidence interval of the ratio of their medians.
+//   3. The group is a regression if the latest generation is slower with p < ALPHA and by at least MIN_CHANGE.
+// Writes processed/regressions/report.csv and one chart per group, and exits with status 1 if any group regressed.
+public class RegressionDetector {
+    public static final String REPORT_FOLDER = Analyzer.OUTPUT_FOLDER + "regressions/";
+    private static final Path CHART_FOLDER = Paths.get("src/main/resources/graphs/regressions");
+    private static final double ALPHA = 0.05;
+    // Smallest relative change of the median that counts, smaller ones are within the noise of a shared machine
+    private static final double MIN_CHANGE = 0.05;
+    private static final int BOOTSTRAP_RESAMPLES = 2000;
+    private static final long BOOTSTRAP_SEED = 42;
+
+    enum Verdict { REGRESSION, IMPROVEMENT, UNCHANGED }
+
+    // Runs of one solver on one configuration; generation -> average step times of its runs
+    private record Group(String solverName, String configuration, TreeMap<Integer, List<Double>> stepTimes) { }
+
+    // changeGeneration is the first generation after the most likely change point, significant or not
+    private record Result(Group group, int changeGeneration, double changeP, List<Integer> baselineGenerations,
+                          int latestGeneration, double baselineMedian, double latestMedian,
+                          double[] ratioInterval, double pSlower, double pFaster, Verdict verdict) { }
+
+    public static void main(String[] args) throws IOException {
+        Path runsTableDir = Paths.get(Analyzer.STORE_FOLDER, ResultStore.RUNS_TABLE);
+        if (!Files.isDirectory(runsTableDir)) {
+            System.err.println("No result store found in " + runsTableDir + ". Run Analyzer first.");
+            System.exit(2);
+        }
+
+        List<Result> results = new ArrayList<>();
+        int singleGeneration = 0;
+        SplittableRandom random = new SplittableRandom(BOOTSTRAP_SEED);
+        for (Group group : loadGroups(Table.open(runsTableDir))) {
+            if (group.stepTimes().size() < 2) {
+                singleGeneration++;
+                continue;
+            }
+            results.add(analyze(group, random.split()));
+        }
+
+        Path reportDir = Paths.get(REPORT_FOLDER);
+        Files.createDirectories(reportDir);
+        writeReport(reportDir.resolve("report.csv"), results);
+        try (ChartRenderer renderer = new ChartRenderer(CHART_FOLDER.getParent(), Runtime.getRuntime().availableProcessors())) {
+            for (Result result : results) {
+                renderChart(renderer, result);
+            }
+        }
+
+        long regressions = results.stream().filter(r -> r.verdict() == Verdict.REGRESSION).count();
+        System.out.printf("Compared %d solver/configuration groups across generations (%d with a single generation skipped).%n",
+                results.size(), singleGeneration);
+        for (Result result : results) {
+            if (result.verdict() == Verdict.UNCHANGED) continue;
+            System.out.printf(Locale.US, "%-11s %s [%s]: gen%d median %.3f ms vs %.3f ms in gen%s (x%.3f, p=%.4f)%n",
+                    result.verdict(), result.group().solverName(), result.group().configuration(),
+                    result.latestGeneration(), result.latestMedian() / 1e6, result.baselineMedian() / 1e6,
+                    joinGenerations(result.baselineGenerations(), " gen"), result.latestMedian() / result.baselineMedian(),
+                    result.verdict() == Verdict.REGRESSION ? result.pSlower() : result.pFaster());
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) found, see " + reportDir.resolve("report.csv"));
+            System.exit(1);
+        }
+        System.out.println("No regressions found.");
+    }
+
+    private static List<Group> loadGroups(Table runs) {
+        StringColumn generations = runs.strings("Generation");
+        StringColumn solvers = runs.strings("Solver");
+        StringColumn seeds = runs.strings("Seed");
+        LongBuffer widths = runs.longs("Width");
+        LongBuffer heights = runs.longs("Height");
+        LongBuffer initInfected = runs.longs("InitInfected");
+        DoubleBuffer infProbs = runs.doubles("InfProb");
+        DoubleBuffer recProbs = runs.doubles("RecProb");
+        LongBuffer avgStepNs = runs.longs("AvgStepNs");
+
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (int row = 0; row < runs.rowCount(); row++) {
+            int generation = generationNumber(generations.get(row));
+            if (generation < 0) continue;
+            String configuration = String.format(Locale.US, "%dx%d init=%d inf=%.5f rec=%.5f seed=%s",
+                    widths.get(row), heights.get(row), initInfected.get(row), infProbs.get(row), recProbs.get(row),
+                    seeds.get(row));
+            String solverName = solvers.get(row);
+            groups.computeIfAbsent(solverName + "|" + configuration, k -> new Group(solverName, configuration, new TreeMap<>()))
+                    .stepTimes().computeIfAbsent(generation, g -> new ArrayList<>()).add((double) avgStepNs.get(row));
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static Result analyze(Group group, SplittableRandom random) {
+        List<Integer> generations = new ArrayList<>(group.stepTimes().keySet());
+        List<Double> ordered = new ArrayList<>();
+        int[] splits = new int[generations.size() - 1];
+        for (int g = 0; g < generations.size(); g++) {
+            if (g > 0) splits[g - 1] = ordered.size();
+            ordered.addAll(group.stepTimes().get(generations.get(g)));
+        }
+        double[] values = ordered.stream().mapToDouble(Double::doubleValue).toArray();
+        double[] changePoint = RegressionStatistics.pettitt(values, splits);
+
+        // Generations before a significant change point form the baseline, without one all but the latest do
+        int changeIndex = generations.size() - 1;
+        if (changePoint[1] < ALPHA) {
+            changeIndex = 1;
+            while (changeIndex < generations.size() - 1 && splits[changeIndex - 1] != (int) changePoint[0]) changeIndex++;
+        }
+        List<Integer> baselineGenerations = generations.subList(0, changeIndex);
+        int latestGeneration = generations.get(generations.size() - 1);
+
+        double[] baseline = baselineGenerations.stream()
+                .flatMap(g -> group.stepTimes().get(g).stream()).mapToDouble(Double::doubleValue).toArray();
+        double[] latest = group.stepTimes().get(latestGeneration).stream().mapToDouble(Double::doubleValue).toArray();
+        double baselineMedian = RegressionStatistics.median(baseline);
+        double latestMedian = RegressionStatistics.median(latest);
+        double pSlower = RegressionStatistics.mannWhitneyGreater(baseline, latest);
+        double pFaster = RegressionStatistics.mannWhitneyGreater(latest, baseline);
+        double[] interval = RegressionStatistics.bootstrapMedianRatio(baseline, latest, BOOTSTRAP_RESAMPLES, random);
+
+        double ratio = latestMedian / baselineMedian;
+        Verdict verdict = Verdict.UNCHANGED;
+        if (pSlower < ALPHA && ratio >= 1 + MIN_CHANGE) {
+            verdict = Verdict.REGRESSION;
+        } else if (pFaster < ALPHA && ratio <= 1 - MIN_CHANGE) {
+            verdict = Verdict.IMPROVEMENT;
+        }
+        int changeGeneration = generations.get(Arrays.binarySearch(splits, (int) changePoint[0]) + 1);
+        return new Result(group, changeGeneration, changePoint[1], baselineGenerations, latestGeneration,
+                baselineMedian, latestMedian, interval, pSlower, pFaster, verdict);
+    }
+
+    private static void writeReport(Path csvPath, List<Result> results) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+            writer.write("Solver,Configuration,Generations,ChangeAtGeneration,ChangePointP,BaselineGenerations,"
+                    + "BaselineRuns,BaselineMedianNs,LatestGeneration,LatestRuns,LatestMedianNs,MedianRatio,"
+                    + "RatioCiLow,RatioCiHigh,PSlower,PFaster,Verdict");
+            writer.newLine();
+            for (Result r : results) {
+                int baselineRuns = r.baselineGenerations().stream().mapToInt(g -> r.group().stepTimes().get(g).size()).sum();
+                writer.write(String.format(Locale.US, "%s,%s,%d,gen%d,%.5f,gen%s,%d,%.0f,gen%d,%d,%.0f,%.4f,%.4f,%.4f,%.5f,%.5f,%s",
+                        r.group().solverName(),
+                        r.group().configuration(),
+                        r.group().stepTimes().size(),
+                        r.changeGeneration(),
+                        r.changeP(),
+                        joinGenerations(r.baselineGenerations(), ";gen"),
+                        baselineRuns,
+                        r.baselineMedian(),
+                        r.latestGeneration(),
+                        r.group().stepTimes().get(r.latestGeneration()).size(),
+                        r.latestMedian(),
+                        r.latestMedian() / r.baselineMedian(),
+                        r.ratioInterval()[0],
+                        r.ratioInterval()[1],
+                        r.pSlower(),
+                        r.pFaster(),
+                        r.verdict()));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Average step time of every run per generation, the median per generation and the baseline median
+    private static void renderChart(ChartRenderer renderer, Result result) {
+        Group group = result.group();
+        String fileName = (group.solverName() + "_" + group.configuration()).replaceAll("[^A-Za-z0-9._=-]+", "_") + ".png";
+        renderer.render(CHART_FOLDER.resolve(fileName),
+                ChartRenderer.fingerprint(RegressionDetector.class, group, result.verdict(), result.changeGeneration()),
+                () -> {
+                    XYChart chart = new XYChartBuilder()
+                            .width(1000)
+                            .height(600)
+                            .title(result.verdict() + " - " + group.solverName() + " - " + group.configuration())
+                            .xAxisTitle("Generation")
+                            .yAxisTitle("Avg Step Time per Run (ms)")
+                            .build();
+                    chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
+                    chart.getStyler().setToolTipsEnabled(false);
+                    chart.getStyler().setMarkerSize(6);
+
+                    List<Integer> runGenerations = new ArrayList<>();
+                    List<Double> runTimes = new ArrayList<>();
+                    List<Integer> generations = new ArrayList<>(group.stepTimes().keySet());
+                    List<Double> medians = new ArrayList<>();
+                    group.stepTimes().forEach((generation, times) -> {
+                        times.forEach(t -> {
+                            runGenerations.add(generation);
+                            runTimes.add(t / 1e6);
+                        });
+                        medians.add(RegressionStatistics.median(times.stream().mapToDouble(Double::doubleValue).toArray()) / 1e6);
+                    });
+
+                    XYSeries runs = chart.addSeries("Runs", runGenerations, runTimes);
+                    runs.setXYSeriesRenderStyle(XYSeries.XYSeriesRenderStyle.Scatter);
+                    runs.setMarker(SeriesMarkers.CIRCLE);
+                    XYSeries medianSeries = chart.addSeries("Median", generations, medians);
+                    medianSeries.setMarker(SeriesMarkers.DIAMOND);
+                    XYSeries baseline = chart.addSeries("Baseline median",
+                            List.of(generations.get(0), generations.get(generations.size() - 1)),
+                            List.of(result.baselineMedian() / 1e6, result.baselineMedian() / 1e6));
+                    baseline.setMarker(SeriesMarkers.NONE);
+                    baseline.setLineStyle(SeriesLines.DASH_DASH);
+                    return chart;
+                });
+    }
+
+    // Number N of a folder named genN, -1 for anything else
+    private static int generationNumber(String generation) {
+        if (!generation.startsWith("gen")) return -1;
+        try {
+            return Integer.parseInt(generation.substring(3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String joinGenerations(List<Integer> generations, String separator) {
+        return String.join(separator, generations.stream().sorted(Comparator.naturalOrder()).map(String::valueOf).toList());
+    }
+}
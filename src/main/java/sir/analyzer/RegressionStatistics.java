@@ -0,0 +1,149 @@
+package sir.analyzer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Rank-based tests used by RegressionDetector. Step times are skewed and have outliers (GC, JIT, noisy neighbors), so
+// only ranks and medians are used, never means.
+final class RegressionStatistics {
+    // Up to this many values in both samples together, Mann-Whitney p-values are exact instead of approximated
+    private static final int EXACT_LIMIT = 60;
+
+    private RegressionStatistics() { }
+
+    // Pettitt's change-point test restricted to the given split points: a split at t puts values[0..t) before and
+    // values[t..n) after the change. Returns {best split, approximate p-value of a change there}.
+    static double[] pettitt(double[] values, int[] splits) {
+        int n = values.length;
+        double[] ranks = ranks(values);
+        double best = -1;
+        int bestSplit = splits.length > 0 ? splits[0] : 0;
+        for (int split : splits) {
+            double rankSum = 0;
+            for (int i = 0; i < split; i++) rankSum += ranks[i];
+            // Mann-Whitney statistic of the split, centered: sum over before/after pairs of sign(after - before)
+            double u = Math.abs(2 * rankSum - (double) split * (n + 1));
+            if (u > best) {
+                best = u;
+                bestSplit = split;
+            }
+        }
+        double p = Math.min(1, 2 * Math.exp(-6 * best * best / ((double) n * n * n + (double) n * n)));
+        return new double[]{bestSplit, p};
+    }
+
+    // One-sided Mann-Whitney U test: p-value of candidate values tending to be larger than baseline values
+    static double mannWhitneyGreater(double[] baseline, double[] candidate) {
+        int m = candidate.length;
+        int n = baseline.length;
+        double[] all = new double[m + n];
+        System.arraycopy(candidate, 0, all, 0, m);
+        System.arraycopy(baseline, 0, all, m, n);
+        double[] ranks = ranks(all);
+        double rankSum = 0;
+        for (int i = 0; i < m; i++) rankSum += ranks[i];
+        double u = rankSum - (double) m * (m + 1) / 2;
+
+        if (m + n <= EXACT_LIMIT && !hasTies(all)) {
+            return exactUpperTail(m, n, (int) Math.round(u));
+        }
+        // Normal approximation with tie correction and continuity correction
+        double tieTerm = 0;
+        double[] sorted = all.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; ) {
+            int j = i;
+            while (j < sorted.length && sorted[j] == sorted[i]) j++;
+            double t = j - i;
+            tieTerm += t * t * t - t;
+            i = j;
+        }
+        double total = m + n;
+        double variance = (double) m * n / 12 * ((total + 1) - tieTerm / (total * (total - 1)));
+        if (variance <= 0) return 1;
+        double z = (u - (double) m * n / 2 - 0.5) / Math.sqrt(variance);
+        return 1 - normalCdf(z);
+    }
+
+    static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        if (n == 0) return Double.NaN;
+        return (n % 2 == 1) ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    // Percentile bootstrap 95% interval of median(candidate) / median(baseline); {low, high}
+    static double[] bootstrapMedianRatio(double[] baseline, double[] candidate, int resamples, SplittableRandom random) {
+        double[] ratios = new double[resamples];
+        double[] b = new double[baseline.length];
+        double[] c = new double[candidate.length];
+        for (int r = 0; r < resamples; r++) {
+            for (int i = 0; i < b.length; i++) b[i] = baseline[random.nextInt(baseline.length)];
+            for (int i = 0; i < c.length; i++) c[i] = candidate[random.nextInt(candidate.length)];
+            ratios[r] = median(c) / median(b);
+        }
+        Arrays.sort(ratios);
+        return new double[]{ratios[(int) (0.025 * (resamples - 1))], ratios[(int) Math.ceil(0.975 * (resamples - 1))]};
+    }
+
+    // P(U >= u) for U of samples of sizes m and n without ties. ways[i][k] counts the orderings of i candidate and
+    // j baseline values with U = k; the largest value is either a candidate, beating all j baseline values, or a
+    // baseline value, which adds nothing.
+    private static double exactUpperTail(int m, int n, int u) {
+        int maxU = m * n;
+        double[][] ways = new double[m + 1][maxU + 1];
+        for (int i = 0; i <= m; i++) ways[i][0] = 1;
+        for (int j = 1; j <= n; j++) {
+            double[][] next = new double[m + 1][maxU + 1];
+            for (int i = 0; i <= m; i++) {
+                for (int k = 0; k <= maxU; k++) {
+                    next[i][k] = ways[i][k] + (i > 0 && k >= j ? next[i - 1][k - j] : 0);
+                }
+            }
+            ways = next;
+        }
+        double total = 0;
+        double tail = 0;
+        for (int k = 0; k <= maxU; k++) {
+            total += ways[m][k];
+            if (k >= u) tail += ways[m][k];
+        }
+        return tail / total;
+    }
+
+    // Ranks 1..n, ties get the average of their ranks
+    private static double[] ranks(double[] values) {
+        int n = values.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double[] ranks = new double[n];
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && values[order[j]] == values[order[i]]) j++;
+            double rank = (i + 1 + j) / 2.0;
+            for (int k = i; k < j; k++) ranks[order[k]] = rank;
+            i = j;
+        }
+        return ranks;
+    }
+
+    private static boolean hasTies(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) return true;
+        }
+        return false;
+    }
+
+    // Standard normal CDF (Abramowitz and Stegun 7.1.26 for erf, error below 1.5e-7)
+    private static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
@@ -0,0 +1,96 @@
+package sir.analyzer;
+
+import sir.model.Configuration;
+import sir.model.RunStats;
+import sir.store.ColumnSpec;
+import sir.store.TableWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Writes all run results into two columnar tables (see sir.store) that Analyzer and GraphGenerator query:
+//   runs   one row per run with the columns of the processed CSV files
+//   steps  one row per logged tick of every run
+public class ResultStore implements Closeable {
+    public static final String RUNS_TABLE = "runs";
+    public static final String STEPS_TABLE = "steps";
+
+    private static final List<ColumnSpec> RUN_COLUMNS = List.of(
+            ColumnSpec.strings("Generation"), ColumnSpec.strings("Solver"), ColumnSpec.longs("Run"),
+            ColumnSpec.longs("Width"), ColumnSpec.longs("Height"), ColumnSpec.longs("InitInfected"),
+            ColumnSpec.doubles("InfProb"), ColumnSpec.doubles("RecProb"), ColumnSpec.strings("Seed"),
+            ColumnSpec.longs("Ticks"), ColumnSpec.longs("TotalTimeNs"), ColumnSpec.longs("AvgStepNs"),
+            ColumnSpec.longs("MaxStepNs"), ColumnSpec.longs("MinStepNs"), ColumnSpec.longs("TotalAllocatedBytes"),
+            ColumnSpec.longs("TotalGcPauseNs"), ColumnSpec.doubles("ResidentBytesPerCell"),
+            ColumnSpec.doubles("AllocatedBytesPerTick"));
+
+    private static final List<ColumnSpec> STEP_COLUMNS = List.of(
+            ColumnSpec.strings("Generation"), ColumnSpec.strings("Solver"), ColumnSpec.longs("Run"),
+            ColumnSpec.longs("Width"), ColumnSpec.longs("Height"), ColumnSpec.longs("Tick"),
+            ColumnSpec.longs("NewlyInfected"), ColumnSpec.longs("NewlyRecovered"), ColumnSpec.longs("Susceptible"),
+            ColumnSpec.longs("Infected"), ColumnSpec.longs("Recovered"), ColumnSpec.longs("StepTimeNanos"),
+            ColumnSpec.longs("AllocatedBytes"), ColumnSpec.longs("GcPauseNanos"));
+
+    private final TableWriter runs;
+    private final TableWriter steps;
+
+    public ResultStore(Path dir) throws IOException {
+        this.runs = new TableWriter(dir.resolve(RUNS_TABLE), RUN_COLUMNS);
+        this.steps = new TableWriter(dir.resolve(STEPS_TABLE), STEP_COLUMNS);
+    }
+
+    public synchronized void addRun(RunStats stats) throws IOException {
+        Configuration c = stats.config();
+        runs.set(runs.column("Generation"), stats.generation())
+                .set(runs.column("Solver"), stats.solverName())
+                .set(runs.column("Run"), stats.runNumber())
+                .set(runs.column("Width"), c.gridWidth())
+                .set(runs.column("Height"), c.gridHeight())
+                .set(runs.column("InitInfected"), c.initialInfectedCount())
+                .set(runs.column("InfProb"), c.infectionProbability())
+                .set(runs.column("RecProb"), c.recoveryProbability())
+                .set(runs.column("Seed"), c.seed() == null ? "Random" : c.seed().toString())
+                .set(runs.column("Ticks"), stats.ticks())
+                .set(runs.column("TotalTimeNs"), stats.totalTimeNs())
+                .set(runs.column("AvgStepNs"), stats.avgStepNs())
+                .set(runs.column("MaxStepNs"), stats.maxStepNs())
+                .set(runs.column("MinStepNs"), stats.minStepNs())
+                .set(runs.column("TotalAllocatedBytes"), stats.totalAllocatedBytes())
+                .set(runs.column("TotalGcPauseNs"), stats.totalGcPauseNs())
+                .set(runs.column("ResidentBytesPerCell"), stats.residentBytesPerCell())
+                .set(runs.column("AllocatedBytesPerTick"),
+                        stats.ticks() > 0 ? stats.totalAllocatedBytes() / (double) stats.ticks() : Double.NaN);
+        runs.endRow();
+    }
+
+    // One logged tick; the memory columns are 0 in logs written before they were introduced.
+    // Runs for every tick of every run, so columns are set by their position in STEP_COLUMNS instead of by name.
+    public synchronized void addStep(String generation, String solverName, int runNumber, Configuration config,
+                                     int tick, long newlyInfected, long newlyRecovered,
+                                     long susceptible, long infected, long recovered,
+                                     long stepTimeNanos, long allocatedBytes, long gcPauseNanos) throws IOException {
+        steps.set(0, generation)
+                .set(1, solverName)
+                .set(2, runNumber)
+                .set(3, config.gridWidth())
+                .set(4, config.gridHeight())
+                .set(5, tick)
+                .set(6, newlyInfected)
+                .set(7, newlyRecovered)
+                .set(8, susceptible)
+                .set(9, infected)
+                .set(10, recovered)
+                .set(11, stepTimeNanos)
+                .set(12, allocatedBytes)
+                .set(13, gcPauseNanos);
+        steps.endRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        runs.close();
+        steps.close();
+    }
+}
@@ -1,5 +1,6 @@
 package sir.analyzer;
 
+import sir.grid.ResultCache;
 import sir.model.Configuration;
 import sir.model.RunStats;
 
@@ -15,13 +16,30 @@ public class RunStatsLoader {
 
     private RunStatsLoader() { }
     public static List<RunStats> loadRuns(Path solverDir, String generation, Configuration config) throws IOException {
+        return loadRuns(solverDir, generation, config, null);
+    }
+
+    public static List<RunStats> loadRuns(Path solverDir, String generation, Configuration config,
+                                          TrajectoryAggregator trajectories) throws IOException {
+        return loadRuns(solverDir, generation, config, trajectories, null);
+    }
+
+    // Also streams the S/I/R trajectory of every run into the given aggregator and every run and logged tick into the
+    // given store, each if not null
+    public static List<RunStats> loadRuns(Path solverDir, String generation, Configuration config,
+                                          TrajectoryAggregator trajectories, ResultStore store) throws IOException {
         List<RunStats> results = new ArrayList<>();
+        String solverName = solverDir.getFileName().toString();
 
         try (var files = Files.list(solverDir)) {
             // Filter for CSV files that start with "run_"
             for (Path csv : files.filter(p -> p.getFileName().toString().startsWith("run_")).toList()) {
+                int runNumber = extractRunNumber(csv.getFileName().toString());
                 List<Long> times = new ArrayList<>();
                 int tickCount = 0;
+                long allocatedBytes = 0;
+                long gcPauseNs = 0;
+                long residentBytes = -1;
 
                 try (BufferedReader reader = Files.newBufferedReader(csv)) {
                     // skip header
@@ -32,10 +50,34 @@ public class RunStatsLoader {
                         String[] parts = line.split(",");
                         if (parts.length < 7) continue;
                         long stepTime = Long.parseLong(parts[6]);
+                        if (trajectories != null) {
+                            trajectories.add(Integer.parseInt(parts[0]), Long.parseLong(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+                        }
+                        // Runs restored from the ResultCache carry their trajectory only, no measurements of this run
+                        if (stepTime == ResultCache.NOT_MEASURED) continue;
                         times.add(stepTime);
                         tickCount++;
+                        // Memory columns are missing in logs written before they were introduced
+                        long stepAllocated = 0;
+                        long stepGcPause = 0;
+                        if (parts.length >= 10) {
+                            stepAllocated = Long.parseLong(parts[7]);
+                            stepGcPause = Long.parseLong(parts[8]);
+                            allocatedBytes += stepAllocated;
+                            gcPauseNs += stepGcPause;
+                            residentBytes = Long.parseLong(parts[9]);
+                        }
+                        if (store != null) {
+                            store.addStep(generation, solverName, runNumber, config, Integer.parseInt(parts[0]),
+                                    Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                                    Long.parseLong(parts[4]), Long.parseLong(parts[5]), stepTime,
+                                    stepAllocated, stepGcPause);
+                        }
                     }
                 }
+                if (trajectories != null) {
+                    trajectories.endRun();
+                }
 
                 // Calculate statistics
                 if (!times.isEmpty()) {
@@ -44,20 +86,27 @@ public class RunStatsLoader {
                     long min = times.stream().mapToLong(Long::longValue).min().orElse(0);
                     long avg = total / times.size();
 
-                    String fileName = csv.getFileName().toString();
-                    int runNumber = extractRunNumber(fileName);
+                    long cells = (long) config.gridWidth() * config.gridHeight();
+                    double residentBytesPerCell = residentBytes < 0 || cells == 0 ? Double.NaN : (double) residentBytes / cells;
 
-                    results.add(new RunStats(
+                    RunStats stats = new RunStats(
                             generation,
-                            solverDir.getFileName().toString(),
+                            solverName,
                             runNumber,
                             tickCount,
                             total,
                             avg,
                             max,
                             min,
+                            allocatedBytes,
+                            gcPauseNs,
+                            residentBytesPerCell,
                             config
-                    ));
+                    );
+                    results.add(stats);
+                    if (store != null) {
+                        store.addRun(stats);
+                    }
                 }
             }
         }
@@ -0,0 +1,55 @@
+package sir.analyzer;
+
+// Online mean and variance (Welford). Two instances merge exactly with Chan's pairwise formula, so samples can be
+// folded in any grouping, e.g. one instance per run directory combined at the end.
+final class RunningStats {
+    private long count;
+    private double mean;
+    // Sum of squared differences from the current mean
+    private double m2;
+
+    void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    void merge(RunningStats other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    RunningStats copy() {
+        RunningStats copy = new RunningStats();
+        copy.merge(this);
+        return copy;
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // Sample variance, 0 for fewer than two samples
+    double variance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    double stdDev() {
+        return Math.sqrt(variance());
+    }
+}
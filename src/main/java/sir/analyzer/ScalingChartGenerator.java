@@ -0,0 +1,168 @@
+package sir.analyzer;
+
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries;
+import org.knowm.xchart.style.Styler;
+import org.knowm.xchart.style.markers.SeriesMarkers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Turns the CSV files of ScalingStudyRunner into speedup, parallel efficiency and Karp-Flatt charts.
+// Times are compared per tick, so runs that end after a different number of ticks stay comparable.
+public class ScalingChartGenerator {
+
+    // solver -> threads -> average step time (ns)
+    private static Map<String, TreeMap<Integer, Double>> loadAverageStepTimes(Path csvFile) throws IOException {
+        Map<String, TreeMap<Integer, List<Double>>> samples = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(csvFile).stream().skip(1).toList();
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            if (parts.length < 8) {
+                System.err.println("Skipping malformed line in " + csvFile.getFileName() + " (expected at least 8 parts): " + line);
+                continue;
+            }
+            try {
+                String solverName = parts[1];
+                int threads = Integer.parseInt(parts[2]);
+                long ticks = Long.parseLong(parts[6]);
+                long totalNs = Long.parseLong(parts[7]);
+                if (ticks == 0) continue;
+                samples.computeIfAbsent(solverName, k -> new TreeMap<>())
+                        .computeIfAbsent(threads, k -> new ArrayList<>())
+                        .add((double) totalNs / ticks);
+            } catch (NumberFormatException e) {
+                System.err.println("Error parsing line in " + csvFile.getFileName() + ": " + line + ". Error: " + e.getMessage());
+            }
+        }
+
+        Map<String, TreeMap<Integer, Double>> averages = new LinkedHashMap<>();
+        samples.forEach((solverName, byThreads) -> {
+            TreeMap<Integer, Double> solverAverages = new TreeMap<>();
+            byThreads.forEach((threads, values) ->
+                    solverAverages.put(threads, values.stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN)));
+            averages.put(solverName, solverAverages);
+        });
+        return averages;
+    }
+
+    // Speedup S(p) = T(1) / T(p), efficiency E(p) = S(p) / p and the Karp-Flatt serial fraction
+    // e(p) = (1/S(p) - 1/p) / (1 - 1/p). A growing e(p) points at overhead rather than a fixed serial part.
+    public static void generateStrongScalingCharts(Path csvFile, Path outputDir, ChartRenderer renderer) throws IOException {
+        Map<String, TreeMap<Integer, Double>> averages = loadAverageStepTimes(csvFile);
+        XYChart speedup = createChart("Strong Scaling: Speedup", "Speedup T(1)/T(p)");
+        XYChart efficiency = createChart("Strong Scaling: Parallel Efficiency", "Efficiency S(p)/p");
+        XYChart karpFlatt = createChart("Strong Scaling: Karp-Flatt Serial Fraction", "Serial Fraction e(p)");
+        Set<Integer> allThreads = new TreeSet<>();
+
+        for (var entry : averages.entrySet()) {
+            TreeMap<Integer, Double> byThreads = entry.getValue();
+            Double baseline = byThreads.get(1);
+            if (baseline == null) {
+                System.err.println("Skipping " + entry.getKey() + " in strong scaling charts, no single-thread run.");
+                continue;
+            }
+            List<Integer> threads = new ArrayList<>();
+            List<Double> speedups = new ArrayList<>();
+            List<Double> efficiencies = new ArrayList<>();
+            List<Integer> karpFlattThreads = new ArrayList<>();
+            List<Double> serialFractions = new ArrayList<>();
+            for (var point : byThreads.entrySet()) {
+                int p = point.getKey();
+                double s = baseline / point.getValue();
+                threads.add(p);
+                speedups.add(s);
+                efficiencies.add(s / p);
+                if (p > 1) {
+                    karpFlattThreads.add(p);
+                    serialFractions.add((1.0 / s - 1.0 / p) / (1.0 - 1.0 / p));
+                }
+            }
+            allThreads.addAll(threads);
+            addSeries(speedup, entry.getKey(), threads, speedups);
+            addSeries(efficiency, entry.getKey(), threads, efficiencies);
+            if (!karpFlattThreads.isEmpty()) {
+                addSeries(karpFlatt, entry.getKey(), karpFlattThreads, serialFractions);
+            }
+        }
+
+        addIdealSeries(speedup, allThreads, p -> (double) p);
+        addIdealSeries(efficiency, allThreads, p -> 1.0);
+        saveChart(renderer, csvFile, speedup, outputDir.resolve("strong_speedup.png"));
+        saveChart(renderer, csvFile, efficiency, outputDir.resolve("strong_efficiency.png"));
+        saveChart(renderer, csvFile, karpFlatt, outputDir.resolve("strong_karp_flatt.png"));
+    }
+
+    // With the work per thread held constant the ideal step time is flat, so efficiency is T(1) / T(p)
+    // and the scaled speedup is p * T(1) / T(p)
+    public static void generateWeakScalingCharts(Path csvFile, Path outputDir, ChartRenderer renderer) throws IOException {
+        Map<String, TreeMap<Integer, Double>> averages = loadAverageStepTimes(csvFile);
+        XYChart scaledSpeedup = createChart("Weak Scaling: Scaled Speedup", "Scaled Speedup p*T(1)/T(p)");
+        XYChart efficiency = createChart("Weak Scaling: Parallel Efficiency", "Efficiency T(1)/T(p)");
+        Set<Integer> allThreads = new TreeSet<>();
+
+        for (var entry : averages.entrySet()) {
+            TreeMap<Integer, Double> byThreads = entry.getValue();
+            Double baseline = byThreads.get(1);
+            if (baseline == null) {
+                System.err.println("Skipping " + entry.getKey() + " in weak scaling charts, no single-thread run.");
+                continue;
+            }
+            List<Integer> threads = new ArrayList<>();
+            List<Double> speedups = new ArrayList<>();
+            List<Double> efficiencies = new ArrayList<>();
+            for (var point : byThreads.entrySet()) {
+                double e = baseline / point.getValue();
+                threads.add(point.getKey());
+                speedups.add(point.getKey() * e);
+                efficiencies.add(e);
+            }
+            allThreads.addAll(threads);
+            addSeries(scaledSpeedup, entry.getKey(), threads, speedups);
+            addSeries(efficiency, entry.getKey(), threads, efficiencies);
+        }
+
+        addIdealSeries(scaledSpeedup, allThreads, p -> (double) p);
+        addIdealSeries(efficiency, allThreads, p -> 1.0);
+        saveChart(renderer, csvFile, scaledSpeedup, outputDir.resolve("weak_scaled_speedup.png"));
+        saveChart(renderer, csvFile, efficiency, outputDir.resolve("weak_efficiency.png"));
+    }
+
+    private static XYChart createChart(String title, String yLabel) {
+        XYChart chart = new XYChartBuilder()
+                .width(1000)
+                .height(600)
+                .title(title)
+                .xAxisTitle("Threads")
+                .yAxisTitle(yLabel)
+                .build();
+        chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
+        chart.getStyler().setToolTipsEnabled(false);
+        chart.getStyler().setMarkerSize(5);
+        return chart;
+    }
+
+    private static void addSeries(XYChart chart, String name, List<Integer> threads, List<Double> values) {
+        XYSeries series = chart.addSeries(name, threads, values);
+        series.setMarker(SeriesMarkers.CIRCLE);
+    }
+
+    private static void addIdealSeries(XYChart chart, Set<Integer> threads, IntFunction<Double> ideal) {
+        if (threads.isEmpty()) return;
+        List<Integer> xs = new ArrayList<>(threads);
+        List<Double> ys = xs.stream().map(ideal::apply).toList();
+        XYSeries series = chart.addSeries("Ideal", xs, ys);
+        series.setMarker(SeriesMarkers.NONE);
+    }
+
+    // The charts are only built here; drawing and encoding them is left to the renderer's pool
+    private static void saveChart(ChartRenderer renderer, Path csvFile, XYChart chart, Path outputFile) {
+        renderer.render(outputFile,
+                ChartRenderer.fingerprint(ScalingChartGenerator.class, csvFile, outputFile.getFileName()),
+                () -> chart.getSeriesMap().isEmpty() ? null : chart);
+    }
+}
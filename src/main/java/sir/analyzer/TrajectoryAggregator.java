@@ -0,0 +1,142 @@
+package sir.analyzer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Folds the per-tick S/I/R trajectories of many runs into per-tick ensemble statistics: mean and standard deviation
+// (RunningStats) and quantiles (QuantileSketch). Runs are streamed tick by tick, so memory depends only on the length
+// of the longest run, not on the number of runs. A run that ended early keeps its last state for all later ticks,
+// the state an SIR epidemic stays in once nobody is infected.
+public class TrajectoryAggregator {
+    private static final int COMPARTMENTS = 3;
+    public static final double LOWER_QUANTILE = 0.05;
+    public static final double UPPER_QUANTILE = 0.95;
+
+    // Statistics of the runs still going at each tick
+    private final List<TickAccumulator> ticks = new ArrayList<>();
+    // Final states of the runs that were last logged at the given tick
+    private final Map<Integer, TickAccumulator> endedRuns = new HashMap<>();
+    private long runs;
+
+    // State of the run currently being added
+    private int lastTick = -1;
+    private final long[] lastState = new long[COMPARTMENTS];
+
+    // Adds one logged tick of the current run; ticks of a run must be added in increasing order
+    public void add(int tick, long susceptible, long infected, long recovered) {
+        if (tick <= lastTick) {
+            throw new IllegalArgumentException("Tick " + tick + " added after tick " + lastTick);
+        }
+        while (ticks.size() <= tick) {
+            ticks.add(new TickAccumulator());
+        }
+        lastState[0] = susceptible;
+        lastState[1] = infected;
+        lastState[2] = recovered;
+        ticks.get(tick).add(lastState);
+        lastTick = tick;
+    }
+
+    // Marks the end of the current run; the next add starts a new one
+    public void endRun() {
+        if (lastTick < 0) return;
+        endedRuns.computeIfAbsent(lastTick, t -> new TickAccumulator()).add(lastState);
+        runs++;
+        lastTick = -1;
+    }
+
+    // Adds all runs of another aggregator, e.g. one filled by another thread
+    public void merge(TrajectoryAggregator other) {
+        while (ticks.size() < other.ticks.size()) {
+            ticks.add(new TickAccumulator());
+        }
+        for (int t = 0; t < other.ticks.size(); t++) {
+            ticks.get(t).merge(other.ticks.get(t));
+        }
+        other.endedRuns.forEach((tick, acc) -> endedRuns.computeIfAbsent(tick, t -> new TickAccumulator()).merge(acc));
+        runs += other.runs;
+    }
+
+    public long runCount() {
+        return runs;
+    }
+
+    // One row per tick: Tick,Runs and for each of S, I, R the mean, standard deviation, 95% confidence interval
+    // of the mean and the 5%, 50% and 95% quantiles across runs
+    public void writeCsv(Path csvPath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+            StringBuilder header = new StringBuilder("Tick,Runs");
+            for (String c : new String[]{"S", "I", "R"}) {
+                header.append(',').append(c).append("Mean,").append(c).append("StdDev,")
+                        .append(c).append("CiLow,").append(c).append("CiHigh,")
+                        .append(c).append("P05,").append(c).append("P50,").append(c).append("P95");
+            }
+            writer.write(header.toString());
+            writer.newLine();
+
+            // Runs that ended before tick t are folded into carried and count at t with their final state
+            TickAccumulator carried = new TickAccumulator();
+            for (int t = 0; t < ticks.size(); t++) {
+                TickAccumulator tick = ticks.get(t).copy();
+                tick.merge(carried);
+                StringBuilder row = new StringBuilder().append(t).append(',').append(tick.stats[0].count());
+                for (int c = 0; c < COMPARTMENTS; c++) {
+                    RunningStats stats = tick.stats[c];
+                    double margin = 1.96 * stats.stdDev() / Math.sqrt(Math.max(1, stats.count()));
+                    row.append(String.format(Locale.US, ",%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                            stats.mean(), stats.stdDev(), stats.mean() - margin, stats.mean() + margin,
+                            tick.sketches[c].quantile(LOWER_QUANTILE),
+                            tick.sketches[c].quantile(0.5),
+                            tick.sketches[c].quantile(UPPER_QUANTILE)));
+                }
+                writer.write(row.toString());
+                writer.newLine();
+
+                TickAccumulator ended = endedRuns.get(t);
+                if (ended != null) {
+                    carried.merge(ended);
+                }
+            }
+        }
+    }
+
+    // Statistics of the S, I and R counts at one tick
+    private final class TickAccumulator {
+        private final RunningStats[] stats = new RunningStats[COMPARTMENTS];
+        private final QuantileSketch[] sketches = new QuantileSketch[COMPARTMENTS];
+
+        TickAccumulator() {
+            for (int c = 0; c < COMPARTMENTS; c++) {
+                stats[c] = new RunningStats();
+                sketches[c] = new QuantileSketch();
+            }
+        }
+
+        void add(long[] state) {
+            for (int c = 0; c < COMPARTMENTS; c++) {
+                stats[c].add(state[c]);
+                sketches[c].add(state[c]);
+            }
+        }
+
+        void merge(TickAccumulator other) {
+            for (int c = 0; c < COMPARTMENTS; c++) {
+                stats[c].merge(other.stats[c]);
+                sketches[c].merge(other.sketches[c]);
+            }
+        }
+
+        TickAccumulator copy() {
+            TickAccumulator copy = new TickAccumulator();
+            copy.merge(this);
+            return copy;
+        }
+    }
+}
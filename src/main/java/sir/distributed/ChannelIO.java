@@ -0,0 +1,46 @@
+package sir.distributed;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// Blocking helpers for the coordinator <-> worker control channel
+final class ChannelIO {
+
+    static final byte CMD_STEP = 1;
+    static final byte CMD_SHUTDOWN = 2;
+    // Asks a worker for its own rows, answered with one message of width * rows states
+    static final byte CMD_EXPORT = 3;
+
+    private ChannelIO() { }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Channel closed by the other side");
+            }
+        }
+    }
+
+    // Reads a message prefixed with its length as an int
+    static ByteBuffer readMessage(SocketChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, length);
+        ByteBuffer payload = ByteBuffer.allocate(length.flip().getInt());
+        readFully(channel, payload);
+        return payload.flip();
+    }
+
+    static void writeMessage(SocketChannel channel, ByteBuffer payload) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(payload.remaining()).flip();
+        writeFully(channel, length);
+        writeFully(channel, payload);
+    }
+}
@@ -0,0 +1,288 @@
+package sir.distributed;
+
+import sir.grid.GridSupplier;
+import sir.grid.GridView;
+import sir.model.Configuration;
+import sir.model.StepStats;
+import sir.solver.SIRSolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Coordinator of a domain-decomposed simulation. The grid is split into horizontal strips, each owned by a
+// StripWorker process that exchanges its boundary rows with its neighbors every step. The coordinator never
+// holds the grid; it only drives the steps and reduces the per-strip S/I/R counts into StepStats. view() fetches the
+// strips from the workers when it is read, at most once per strip and step.
+public class DistributedGridSIRSolver implements SIRSolver {
+    private static final long WORKER_CONNECT_TIMEOUT_MS = 30_000;
+
+    private final int workerCount;
+    private final int width;
+    // First row of every strip, plus the grid height at the end
+    private final int[] firstRows;
+    // Strips fetched by the view since the last step, null until read
+    private final byte[][] strips;
+    private final GridView view;
+    private final List<Process> processes = new ArrayList<>();
+    private final SocketChannel[] workers;
+    private final ByteBuffer stepCommand = ByteBuffer.allocate(1);
+    private final ByteBuffer reply = ByteBuffer.allocate(5 * Integer.BYTES);
+    private int infected;
+    private boolean shutDown = false;
+
+    // Starts the workers as local processes and hands each of them its strip
+    public DistributedGridSIRSolver(Configuration configuration, int workerCount) throws IOException {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.workerCount = Math.min(workerCount, configuration.gridHeight());
+        this.workers = new SocketChannel[this.workerCount];
+
+        this.width = configuration.gridWidth();
+        int height = configuration.gridHeight();
+        this.firstRows = new int[this.workerCount + 1];
+        for (int index = 0; index <= this.workerCount; index++) {
+            firstRows[index] = (int) ((long) index * height / this.workerCount);
+        }
+        this.strips = new byte[this.workerCount][];
+        this.view = new StripView(height);
+
+        int[] haloPorts = new int[this.workerCount];
+        String[] haloHosts = new String[this.workerCount];
+        // Any failure after the first launch must stop the workers that were started
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            for (int index = 0; index < this.workerCount; index++) {
+                processes.add(launchWorker(port, index));
+            }
+            acceptWorkers(server, haloPorts, haloHosts);
+
+            int[] initialInfected = GridSupplier.sampleInitialInfected(width * height, configuration.initialInfectedCount(), configuration.seed());
+            long seed = configuration.seed() != null ? configuration.seed() : new SplittableRandom().nextLong();
+            for (int index = 0; index < this.workerCount; index++) {
+                sendSetup(index, configuration, firstRows[index], firstRows[index + 1], seed, initialInfected,
+                        index > 0 ? haloHosts[index - 1] : "", index > 0 ? haloPorts[index - 1] : -1);
+            }
+            this.infected = initialInfected.length;
+        } catch (IOException | RuntimeException e) {
+            stopWorkers();
+            throw e;
+        }
+    }
+
+    private static Process launchWorker(int port, int index) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                StripWorker.class.getName(),
+                InetAddress.getLoopbackAddress().getHostAddress(),
+                Integer.toString(port),
+                Integer.toString(index))
+                .inheritIO()
+                .start();
+    }
+
+    // Accepts one control connection per worker; each worker introduces itself with its index and halo port
+    private void acceptWorkers(ServerSocketChannel server, int[] haloPorts, String[] haloHosts) throws IOException {
+        server.configureBlocking(false);
+        long deadline = System.currentTimeMillis() + WORKER_CONNECT_TIMEOUT_MS;
+        int connected = 0;
+        while (connected < workerCount) {
+            SocketChannel channel = server.accept();
+            if (channel == null) {
+                if (System.currentTimeMillis() > deadline || processes.stream().anyMatch(p -> !p.isAlive())) {
+                    throw new IOException("Only " + connected + " of " + workerCount + " workers connected");
+                }
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for workers", e);
+                }
+                continue;
+            }
+            channel.configureBlocking(true);
+            ByteBuffer hello = ByteBuffer.allocate(2 * Integer.BYTES);
+            ChannelIO.readFully(channel, hello);
+            hello.flip();
+            int index = hello.getInt();
+            haloPorts[index] = hello.getInt();
+            haloHosts[index] = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+            workers[index] = channel;
+            connected++;
+        }
+    }
+
+    private void sendSetup(int index, Configuration configuration, int firstRow, int endRow, long seed,
+                           int[] initialInfected, String upperHost, int upperPort) throws IOException {
+        int width = configuration.gridWidth();
+        long stripStart = (long) firstRow * width;
+        long stripEnd = (long) endRow * width;
+        List<Integer> localInfected = new ArrayList<>();
+        for (int cell : initialInfected) {
+            if (cell >= stripStart && cell < stripEnd) {
+                localInfected.add((int) (cell - stripStart));
+            }
+        }
+
+        byte[] host = upperHost.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer setup = ByteBuffer.allocate(3 * Integer.BYTES + 2 * Double.BYTES + Long.BYTES
+                + Integer.BYTES + host.length + Integer.BYTES + 1 + Integer.BYTES + localInfected.size() * Integer.BYTES);
+        setup.putInt(width).putInt(firstRow).putInt(endRow)
+                .putDouble(configuration.infectionProbability())
+                .putDouble(configuration.recoveryProbability())
+                .putLong(seed)
+                .putInt(host.length).put(host).putInt(upperPort)
+                .put((byte) (index < workerCount - 1 ? 1 : 0))
+                .putInt(localInfected.size());
+        localInfected.forEach(setup::putInt);
+        ChannelIO.writeMessage(workers[index], setup.flip());
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        long start = System.nanoTime();
+        int inf = 0, rec = 0, s = 0, i = 0, r = 0;
+        Arrays.fill(strips, null);
+        try {
+            // All strips step concurrently, the replies are collected afterwards
+            for (SocketChannel worker : workers) {
+                ChannelIO.writeFully(worker, stepCommand.clear().put(ChannelIO.CMD_STEP).flip());
+            }
+            for (SocketChannel worker : workers) {
+                ChannelIO.readFully(worker, reply.clear());
+                reply.flip();
+                inf += reply.getInt();
+                rec += reply.getInt();
+                s += reply.getInt();
+                i += reply.getInt();
+                r += reply.getInt();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lost connection to a worker", e);
+        }
+        infected = i;
+
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, inf, rec, s, i, r, elapsed);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return infected == 0;
+    }
+
+    // Reads the grid from the worker processes, see StripView
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    private byte[] strip(int index) {
+        if (strips[index] == null) {
+            try {
+                ChannelIO.writeFully(workers[index], stepCommand.clear().put(ChannelIO.CMD_EXPORT).flip());
+                strips[index] = ChannelIO.readMessage(workers[index]).array();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lost connection to a worker", e);
+            }
+        }
+        return strips[index];
+    }
+
+    // Row-major view over the strips; each strip is copied from its worker on the first read after a step
+    private final class StripView implements GridView {
+        private final int height;
+
+        StripView(int height) {
+            this.height = height;
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        @Override
+        public byte stateAt(int index) {
+            int strip = stripOf(index / width);
+            return strip(strip)[index - firstRows[strip] * width];
+        }
+
+        @Override
+        public void exportStates(int fromIndex, byte[] dest, int destOffset, int length) {
+            Objects.checkFromIndexSize(fromIndex, length, size());
+            Objects.checkFromIndexSize(destOffset, length, dest.length);
+            while (length > 0) {
+                int strip = stripOf(fromIndex / width);
+                int offset = fromIndex - firstRows[strip] * width;
+                int count = Math.min(length, (firstRows[strip + 1] - firstRows[strip]) * width - offset);
+                System.arraycopy(strip(strip), offset, dest, destOffset, count);
+                fromIndex += count;
+                destOffset += count;
+                length -= count;
+            }
+        }
+
+        private int stripOf(int row) {
+            int found = Arrays.binarySearch(firstRows, 0, workerCount, row);
+            // Strips are never empty, so the first rows are distinct
+            return found >= 0 ? found : -found - 2;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        stopWorkers();
+    }
+
+    // Private so that the constructor can clean up without calling an overridable method
+    private void stopWorkers() {
+        if (shutDown) {
+            return;
+        }
+        shutDown = true;
+        for (SocketChannel worker : workers) {
+            if (worker == null) continue;
+            try (worker) {
+                ChannelIO.writeFully(worker, stepCommand.clear().put(ChannelIO.CMD_SHUTDOWN).flip());
+            } catch (IOException e) {
+                System.err.println("Failed to stop worker: " + e.getMessage());
+            }
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Distributed Grid SIR Solver (" + workerCount + " workers)";
+    }
+}
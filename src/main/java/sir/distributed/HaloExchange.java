@@ -0,0 +1,98 @@
+package sir.distributed;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+// Swaps boundary rows with the strips above and below over non-blocking socket channels.
+// Both directions are serviced by one selector, so neighbors never block each other on full socket buffers.
+final class HaloExchange implements Closeable {
+    private final Selector selector;
+    private final SocketChannel upper;
+    private final SocketChannel lower;
+    private final SelectionKey upperKey;
+    private final SelectionKey lowerKey;
+
+    HaloExchange(SocketChannel upper, SocketChannel lower) throws IOException {
+        this.selector = Selector.open();
+        this.upper = upper;
+        this.lower = lower;
+        this.upperKey = register(upper);
+        this.lowerKey = register(lower);
+    }
+
+    private SelectionKey register(SocketChannel channel) throws IOException {
+        if (channel == null) {
+            return null;
+        }
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        return channel.register(selector, 0);
+    }
+
+    // Cells are laid out as a ghost row, the strip's own rows and another ghost row.
+    // Sends the first and last own rows and receives the neighbors' rows into the ghost rows.
+    void exchange(byte[] cells, int width, int rows) throws IOException {
+        ByteBuffer sendUp = upper == null ? null : ByteBuffer.wrap(cells, width, width);
+        ByteBuffer receiveUp = upper == null ? null : ByteBuffer.wrap(cells, 0, width);
+        ByteBuffer sendDown = lower == null ? null : ByteBuffer.wrap(cells, rows * width, width);
+        ByteBuffer receiveDown = lower == null ? null : ByteBuffer.wrap(cells, (rows + 1) * width, width);
+
+        while (true) {
+            boolean progress = transfer(upper, sendUp, receiveUp) | transfer(lower, sendDown, receiveDown);
+            boolean pendingUp = pending(sendUp, receiveUp);
+            boolean pendingDown = pending(sendDown, receiveDown);
+            if (!pendingUp && !pendingDown) {
+                return;
+            }
+            if (!progress) {
+                // Wait until one of the channels can make progress
+                setInterest(upperKey, sendUp, receiveUp);
+                setInterest(lowerKey, sendDown, receiveDown);
+                selector.select();
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    private static boolean transfer(SocketChannel channel, ByteBuffer send, ByteBuffer receive) throws IOException {
+        if (channel == null) {
+            return false;
+        }
+        boolean progress = false;
+        if (send.hasRemaining()) {
+            progress = channel.write(send) > 0;
+        }
+        if (receive.hasRemaining()) {
+            int read = channel.read(receive);
+            if (read < 0) {
+                throw new EOFException("Neighboring worker closed its halo channel");
+            }
+            progress |= read > 0;
+        }
+        return progress;
+    }
+
+    private static boolean pending(ByteBuffer send, ByteBuffer receive) {
+        return send != null && (send.hasRemaining() || receive.hasRemaining());
+    }
+
+    private static void setInterest(SelectionKey key, ByteBuffer send, ByteBuffer receive) {
+        if (key != null) {
+            key.interestOps((send.hasRemaining() ? SelectionKey.OP_WRITE : 0)
+                    | (receive.hasRemaining() ? SelectionKey.OP_READ : 0));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        if (upper != null) upper.close();
+        if (lower != null) lower.close();
+    }
+}
@@ -0,0 +1,124 @@
+package sir.distributed;
+
+import sir.model.OptNode;
+import sir.solver.GatherKernel;
+import sir.solver.RandomBatch;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Worker process that owns a horizontal strip of the grid.
+// Started by DistributedGridSIRSolver, or by hand on another machine with: <coordinatorHost> <coordinatorPort> <workerIndex>
+public class StripWorker {
+    private final int width;
+    private final int rows;
+    private final GatherKernel kernel;
+    // Ghost row, own rows, ghost row; swapped with next after every step
+    private byte[] cells;
+    private byte[] next;
+
+    StripWorker(int width, int rows, double infectionProb, double recoveryProb, SplittableRandom random) {
+        this.width = width;
+        this.rows = rows;
+        this.kernel = new GatherKernel(infectionProb, recoveryProb, new RandomBatch(random));
+        this.cells = new byte[(rows + 2) * width];
+        this.next = new byte[(rows + 2) * width];
+    }
+
+    // Advances the own rows by one step using the ghost rows; writes {infected, recovered, s, i, r} into stats
+    void step(int[] stats) {
+        Arrays.fill(stats, 0);
+        // The ghost rows are always present; beyond the grid edge they stay susceptible
+        for (int row = 1; row <= rows; row++) {
+            kernel.stepRow(cells, next, row * width, width, true, true, stats);
+        }
+        byte[] swap = cells;
+        cells = next;
+        next = swap;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: StripWorker <coordinatorHost> <coordinatorPort> <workerIndex>");
+            System.exit(2);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int index = Integer.parseInt(args[2]);
+
+        try (SocketChannel coordinator = SocketChannel.open(new InetSocketAddress(host, port));
+             ServerSocketChannel haloServer = ServerSocketChannel.open()) {
+            // The strip below connects to this port for its halo exchange. The port is not authenticated, so it only
+            // listens on the interface that reaches the coordinator (loopback when the coordinator started the workers)
+            haloServer.bind(new InetSocketAddress(((InetSocketAddress) coordinator.getLocalAddress()).getAddress(), 0));
+            int haloPort = ((InetSocketAddress) haloServer.getLocalAddress()).getPort();
+            ChannelIO.writeFully(coordinator, ByteBuffer.allocate(2 * Integer.BYTES).putInt(index).putInt(haloPort).flip());
+
+            // Strip assignment, see DistributedGridSIRSolver.sendSetup
+            ByteBuffer setup = ChannelIO.readMessage(coordinator);
+            int width = setup.getInt();
+            int firstRow = setup.getInt();
+            int endRow = setup.getInt();
+            double infectionProb = setup.getDouble();
+            double recoveryProb = setup.getDouble();
+            long seed = setup.getLong();
+            byte[] upperHostBytes = new byte[setup.getInt()];
+            setup.get(upperHostBytes);
+            int upperPort = setup.getInt();
+            boolean hasLower = setup.get() != 0;
+
+            // Every worker takes its own split of the shared seed
+            SplittableRandom base = new SplittableRandom(seed);
+            SplittableRandom random = base.split();
+            for (int k = 0; k < index; k++) {
+                random = base.split();
+            }
+            StripWorker worker = new StripWorker(width, endRow - firstRow, infectionProb, recoveryProb, random);
+            int infectedCount = setup.getInt();
+            for (int k = 0; k < infectedCount; k++) {
+                worker.cells[width + setup.getInt()] = OptNode.INFECTED;
+            }
+
+            // Connecting first is safe: the upper worker's halo server is already listening
+            SocketChannel upper = upperPort < 0 ? null
+                    : SocketChannel.open(new InetSocketAddress(new String(upperHostBytes, StandardCharsets.UTF_8), upperPort));
+            SocketChannel lower = hasLower ? haloServer.accept() : null;
+
+            try (HaloExchange halo = new HaloExchange(upper, lower)) {
+                worker.serve(coordinator, halo);
+            }
+        }
+    }
+
+    // Runs steps and exports of the own rows on request of the coordinator until it asks to shut down
+    private void serve(SocketChannel coordinator, HaloExchange halo) throws IOException {
+        ByteBuffer command = ByteBuffer.allocate(1);
+        ByteBuffer reply = ByteBuffer.allocate(5 * Integer.BYTES);
+        int[] stats = new int[GatherKernel.COUNTS];
+        while (true) {
+            ChannelIO.readFully(coordinator, command.clear());
+            command.flip();
+            byte code = command.get();
+            if (code == ChannelIO.CMD_EXPORT) {
+                ChannelIO.writeMessage(coordinator, ByteBuffer.wrap(cells, width, rows * width));
+                continue;
+            }
+            if (code != ChannelIO.CMD_STEP) {
+                return;
+            }
+            halo.exchange(cells, width, rows);
+            step(stats);
+            reply.clear();
+            for (int value : stats) {
+                reply.putInt(value);
+            }
+            ChannelIO.writeFully(coordinator, reply.flip());
+        }
+    }
+}
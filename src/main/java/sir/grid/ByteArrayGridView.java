@@ -0,0 +1,40 @@
+package sir.grid;
+
+import java.util.Objects;
+
+// Grid view over a row-major byte[] of OptNode states
+final class ByteArrayGridView implements GridView {
+    private final byte[] states;
+    private final int width;
+    private final int height;
+
+    ByteArrayGridView(byte[] states, int width, int height) {
+        if (states.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " states, got " + states.length);
+        }
+        this.states = states;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public byte stateAt(int index) {
+        return states[index];
+    }
+
+    @Override
+    public void exportStates(int fromIndex, byte[] dest, int destOffset, int length) {
+        Objects.checkFromIndexSize(fromIndex, length, states.length);
+        System.arraycopy(states, fromIndex, dest, destOffset, length);
+    }
+}
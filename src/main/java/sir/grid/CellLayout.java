@@ -0,0 +1,56 @@
+package sir.grid;
+
+// Order in which a solver stores the cells of the grid. Row-major keeps vertical neighbors a whole row apart;
+// the curve layouts store the grid in small square tiles ordered along a Z-order (Morton) or Hilbert curve, so
+// cells close in 2D are close in memory and every contiguous index range covers a compact region of the grid.
+public interface CellLayout {
+
+    enum Order { ROW_MAJOR, MORTON, HILBERT }
+
+    Order order();
+    int width();
+    int height();
+
+    // Position of cell (x, y) in the cell array
+    int index(int x, int y);
+
+    int x(int index);
+    int y(int index);
+
+    // Writes the indices of the neighbors at (0,+1), (0,-1), (+1,0) and (-1,0) into out, -1 outside the grid
+    void neighbors(int index, int[] out);
+
+    // Point near the middle of [start, end) where the range can be split without cutting through a tile
+    default int splitPoint(int start, int end) {
+        return (start + end) >>> 1;
+    }
+
+    default int size() {
+        return width() * height();
+    }
+
+    // Reorders row-major states into this layout; row-major returns the given array itself
+    default byte[] fromRowMajor(byte[] rowMajor) {
+        if (rowMajor.length != size()) {
+            throw new IllegalArgumentException("Expected " + size() + " states, got " + rowMajor.length);
+        }
+        byte[] states = new byte[rowMajor.length];
+        for (int y = 0, i = 0; y < height(); y++) {
+            for (int x = 0; x < width(); x++, i++) {
+                states[index(x, y)] = rowMajor[i];
+            }
+        }
+        return states;
+    }
+
+    static CellLayout of(Order order, int width, int height) {
+        return switch (order) {
+            case ROW_MAJOR -> new RowMajorLayout(width, height);
+            case MORTON, HILBERT -> new TiledCurveLayout(order, width, height);
+        };
+    }
+
+    static CellLayout rowMajor(int width, int height) {
+        return new RowMajorLayout(width, height);
+    }
+}
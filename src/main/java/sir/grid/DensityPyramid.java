@@ -0,0 +1,171 @@
+package sir.grid;
+
+import sir.model.OptNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Downsampled infected and recovered densities of a grid at several resolutions. Level 0 has one pixel per block of
+// blockSize x blockSize cells holding the fraction of infected and recovered cells in the block; every further level
+// halves both dimensions. A pixel of a coarser level keeps the mean of its (up to four) children weighted by the cells
+// they cover, which is the density of the whole area even where edge blocks are smaller, and their minimum, which
+// shows whether any part of the area is still untouched even when the mean is high.
+public final class DensityPyramid {
+    // Rows of blocks per capture task
+    private static final int BLOCK_ROWS_PER_TASK = 8;
+
+    private final Level[] levels;
+
+    // One resolution; values are densities in [0, 1], row-major. columnCells and rowCells hold the number of grid
+    // columns and rows under every pixel column and row, smaller at the right and bottom edges
+    public record Level(int width, int height, float[] meanInfected, float[] meanRecovered,
+                        float[] minInfected, float[] minRecovered, int[] columnCells, int[] rowCells) { }
+
+    private DensityPyramid(Level[] levels) {
+        this.levels = levels;
+    }
+
+    // Reads every cell of the view once, on the pool, and returns level 0. This is the only part that has to run
+    // while the solver holds still; coarser levels are built from it by build().
+    public static Level capture(GridView view, int blockSize, ForkJoinPool pool) {
+        int width = view.width();
+        int height = view.height();
+        int levelWidth = (width + blockSize - 1) / blockSize;
+        int levelHeight = (height + blockSize - 1) / blockSize;
+        float[] infected = new float[levelWidth * levelHeight];
+        float[] recovered = new float[levelWidth * levelHeight];
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                int tasks = (levelHeight + BLOCK_ROWS_PER_TASK - 1) / BLOCK_ROWS_PER_TASK;
+                ForkJoinTask<?>[] bands = new ForkJoinTask<?>[tasks];
+                for (int t = 0; t < tasks; t++) {
+                    int fromBlockRow = t * BLOCK_ROWS_PER_TASK;
+                    int toBlockRow = Math.min(levelHeight, fromBlockRow + BLOCK_ROWS_PER_TASK);
+                    bands[t] = ForkJoinTask.adapt(() -> captureBand(view, blockSize, levelWidth, fromBlockRow, toBlockRow, infected, recovered));
+                }
+                invokeAll(bands);
+            }
+        });
+        int[] columnCells = new int[levelWidth];
+        for (int bx = 0; bx < levelWidth; bx++) {
+            columnCells[bx] = Math.min(blockSize, width - bx * blockSize);
+        }
+        int[] rowCells = new int[levelHeight];
+        for (int by = 0; by < levelHeight; by++) {
+            rowCells[by] = Math.min(blockSize, height - by * blockSize);
+        }
+        return new Level(levelWidth, levelHeight, infected, recovered, infected, recovered, columnCells, rowCells);
+    }
+
+    // Counts the states of the band's rows block by block. Rows are copied out through the view and summed into
+    // per-column totals in loops over the whole row, which the JIT vectorizes; the columns are folded into blocks once
+    // per block row. With the OptNode encoding (0, 1, 2) the low bit of a state marks infected cells and the state sum
+    // is infected + 2 * recovered.
+    private static void captureBand(GridView view, int blockSize, int levelWidth, int fromBlockRow, int toBlockRow,
+                                    float[] infected, float[] recovered) {
+        int width = view.width();
+        int height = view.height();
+        byte[] row = new byte[width];
+        int[] stateSums = new int[width];
+        int[] infectedSums = new int[width];
+        for (int blockRow = fromBlockRow; blockRow < toBlockRow; blockRow++) {
+            int fromY = blockRow * blockSize;
+            int toY = Math.min(height, fromY + blockSize);
+            Arrays.fill(stateSums, 0);
+            Arrays.fill(infectedSums, 0);
+            for (int y = fromY; y < toY; y++) {
+                view.exportRow(y, row, 0);
+                for (int x = 0; x < width; x++) {
+                    stateSums[x] += row[x];
+                    infectedSums[x] += row[x] & OptNode.INFECTED;
+                }
+            }
+            int rows = toY - fromY;
+            for (int bx = 0, fromX = 0; bx < levelWidth; bx++, fromX += blockSize) {
+                int toX = Math.min(width, fromX + blockSize);
+                int stateSum = 0;
+                int infectedCount = 0;
+                for (int x = fromX; x < toX; x++) {
+                    stateSum += stateSums[x];
+                    infectedCount += infectedSums[x];
+                }
+                int cells = rows * (toX - fromX);
+                infected[blockRow * levelWidth + bx] = (float) infectedCount / cells;
+                recovered[blockRow * levelWidth + bx] = (float) ((stateSum - infectedCount) / OptNode.RECOVERED) / cells;
+            }
+        }
+    }
+
+    // Builds the given number of levels (fewer if level 0 becomes a single pixel before) on top of a captured level 0
+    public static DensityPyramid build(Level base, int levelCount) {
+        List<Level> levels = new ArrayList<>();
+        levels.add(base);
+        Level level = base;
+        while (levels.size() < levelCount && (level.width() > 1 || level.height() > 1)) {
+            level = coarsen(level);
+            levels.add(level);
+        }
+        return new DensityPyramid(levels.toArray(Level[]::new));
+    }
+
+    private static Level coarsen(Level fine) {
+        int width = (fine.width() + 1) / 2;
+        int height = (fine.height() + 1) / 2;
+        float[] meanInfected = new float[width * height];
+        float[] meanRecovered = new float[width * height];
+        float[] minInfected = new float[width * height];
+        float[] minRecovered = new float[width * height];
+        int[] columnCells = mergePairs(fine.columnCells(), width);
+        int[] rowCells = mergePairs(fine.rowCells(), height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double sumI = 0, sumR = 0;
+                float minI = 1, minR = 1;
+                for (int dy = 0; dy < 2; dy++) {
+                    int fy = 2 * y + dy;
+                    if (fy >= fine.height()) break;
+                    for (int dx = 0; dx < 2; dx++) {
+                        int fx = 2 * x + dx;
+                        if (fx >= fine.width()) break;
+                        int i = fy * fine.width() + fx;
+                        double cells = (double) fine.columnCells()[fx] * fine.rowCells()[fy];
+                        sumI += fine.meanInfected()[i] * cells;
+                        sumR += fine.meanRecovered()[i] * cells;
+                        minI = Math.min(minI, fine.minInfected()[i]);
+                        minR = Math.min(minR, fine.minRecovered()[i]);
+                    }
+                }
+                double cells = (double) columnCells[x] * rowCells[y];
+                int i = y * width + x;
+                meanInfected[i] = (float) (sumI / cells);
+                meanRecovered[i] = (float) (sumR / cells);
+                minInfected[i] = minI;
+                minRecovered[i] = minR;
+            }
+        }
+        return new Level(width, height, meanInfected, meanRecovered, minInfected, minRecovered, columnCells, rowCells);
+    }
+
+    // Cells under each pixel column or row of the coarser level: the sum of its (one or two) children
+    private static int[] mergePairs(int[] fine, int length) {
+        int[] merged = new int[length];
+        for (int k = 0; k < fine.length; k++) {
+            merged[k / 2] += fine[k];
+        }
+        return merged;
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    public Level level(int index) {
+        return levels[index];
+    }
+}
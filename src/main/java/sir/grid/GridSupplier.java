@@ -1,54 +1,83 @@
 package sir.grid;
 
 import sir.model.Node;
-import sir.model.State;
+import sir.model.OptNode;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.SplittableRandom;
-import java.util.Random;
+import java.util.stream.IntStream;
 
 
+// Holds an immutable row-major template of the initial grid states and hands out copies of it to the solvers
 public class GridSupplier {
     private final int width;
     private final int height;
-    private final List<Node> originalNodes;
+    private final byte[] template;
 
     public GridSupplier(int width, int height, int initialInfectedCount, Long seed) {
         this.width = width;
         this.height = height;
-        this.originalNodes = new ArrayList<>(width * height);
+        // A fresh byte array is already zeroed, which is OptNode.SUSCEPTIBLE
+        this.template = new byte[width * height];
 
-        for (int r = 0; r < height; r++) {
-            for (int c = 0; c < width; c++) {
-                originalNodes.add(new Node(c, r));
-            }
+        // Randomly infect a specified number of nodes
+        for (int index : sampleInitialInfected(template.length, initialInfectedCount, seed)) {
+            template[index] = OptNode.INFECTED;
         }
+    }
 
-        // Randomly infect a specified number of nodes
-        if (initialInfectedCount > 0 && !originalNodes.isEmpty()) {
-            SplittableRandom splittableRandom = (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
-            Random localRandom = new Random(splittableRandom.nextLong());
+    // Row-major indices of the initially infected cells, without materializing the grid
+    public static int[] sampleInitialInfected(int cellCount, int initialInfectedCount, Long seed) {
+        if (initialInfectedCount <= 0 || cellCount <= 0) {
+            return new int[0];
+        }
+        SplittableRandom random = (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
+        return sampleIndices(cellCount, Math.min(initialInfectedCount, cellCount), random);
+    }
+
+    // Floyd's algorithm: picks k distinct indices from [0, n) using exactly k random draws
+    private static int[] sampleIndices(int n, int k, SplittableRandom random) {
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        int[] result = new int[k];
+        int count = 0;
+        for (int j = n - k; j < n; j++) {
+            int candidate = random.nextInt(j + 1);
+            int picked = chosen.contains(candidate) ? j : candidate;
+            chosen.add(picked);
+            result[count++] = picked;
+        }
+        return result;
+    }
 
-            // Shuffle the nodes to randomize the selection
-            List<Node> nodesToShuffle = new ArrayList<>(originalNodes);
-            Collections.shuffle(nodesToShuffle, localRandom);
+    // Creates a copy of the template states with a single bulk copy
+    public byte[] copyStates() {
+        byte[] copy = new byte[template.length];
+        System.arraycopy(template, 0, copy, 0, template.length);
+        return copy;
+    }
 
-            // Infect the specified number of nodes
-            for (int i = 0; i < Math.min(initialInfectedCount, nodesToShuffle.size()); i++) {
-                nodesToShuffle.get(i).state = State.INFECTED;
-            }
+    // Creates a copy of the template states stored in the given layout
+    public byte[] copyStates(CellLayout layout) {
+        if (layout.width() != width || layout.height() != height) {
+            throw new IllegalArgumentException("Layout is " + layout.width() + "x" + layout.height() + ", grid is " + width + "x" + height);
         }
+        return layout.order() == CellLayout.Order.ROW_MAJOR ? copyStates() : layout.fromRowMajor(template);
     }
 
-    // Creates a deep copy of the original nodes
+    // Read-only row-major view of the template, e.g. for SIRSolver.reset
+    public GridView view() {
+        return GridView.of(template, width, height);
+    }
+
+    // Creates a deep copy of the original nodes, built in parallel from the template
     public List<Node> copyNodes() {
-        List<Node> copiedNodes = new ArrayList<>(originalNodes.size());
-        for (Node node : originalNodes) {
-            copiedNodes.add(new Node(node));
-        }
-        return copiedNodes;
+        Node[] copiedNodes = new Node[template.length];
+        IntStream.range(0, template.length).parallel()
+                .forEach(i -> copiedNodes[i] = new Node(i % width, i / width, template[i]));
+        return Arrays.asList(copiedNodes);
     }
 
     public int getWidth() {
@@ -60,6 +89,6 @@ public class GridSupplier {
     }
 
     public int getNodeCount() {
-        return originalNodes.size();
+        return template.length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package sir.grid;
+
+import sir.model.Node;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+// Read-only view of a solver's grid, backed directly by the solver's storage without copying.
+// Cells are addressed row-major (index = y * width + x) and states are reported as the OptNode constants.
+// The view is live, so it should be read between steps, not while a step is running.
+public interface GridView {
+
+    int width();
+    int height();
+    byte stateAt(int index);
+
+    default int size() {
+        return width() * height();
+    }
+
+    default byte stateAt(int x, int y) {
+        return stateAt(y * width() + x);
+    }
+
+    // Copies length states starting at fromIndex into the caller's buffer
+    default void exportStates(int fromIndex, byte[] dest, int destOffset, int length) {
+        Objects.checkFromIndexSize(fromIndex, length, size());
+        Objects.checkFromIndexSize(destOffset, length, dest.length);
+        for (int i = 0; i < length; i++) {
+            dest[destOffset + i] = stateAt(fromIndex + i);
+        }
+    }
+
+    default void exportStates(byte[] dest) {
+        exportStates(0, dest, 0, size());
+    }
+
+    default void exportRow(int y, byte[] dest, int destOffset) {
+        exportStates(y * width(), dest, destOffset, width());
+    }
+
+    default Row row(int y) {
+        Objects.checkIndex(y, height());
+        return new Row(this, y);
+    }
+
+    default Iterable<Row> rows() {
+        return () -> IntStream.range(0, height()).mapToObj(this::row).iterator();
+    }
+
+    // Lazy list that creates a Node only when an element is accessed
+    default List<Node> asNodeList() {
+        return new AbstractList<>() {
+            @Override
+            public Node get(int index) {
+                return new Node(index % width(), index / width(), stateAt(index));
+            }
+
+            @Override
+            public int size() {
+                return GridView.this.size();
+            }
+        };
+    }
+
+    static GridView of(byte[] states, int width, int height) {
+        return new ByteArrayGridView(states, width, height);
+    }
+
+    static GridView of(PagedStates states, int width, int height) {
+        return new PagedGridView(states, width, height);
+    }
+
+    // View over states stored in the given layout; cells are still addressed row-major through the view
+    static GridView of(byte[] states, CellLayout layout) {
+        if (layout.order() == CellLayout.Order.ROW_MAJOR) {
+            return of(states, layout.width(), layout.height());
+        }
+        return new LayoutGridView(states, layout);
+    }
+
+    static GridView of(Node[][] grid) {
+        return new NodeGridView(grid);
+    }
+
+    // Single row of a grid view
+    record Row(GridView grid, int y) {
+        public int width() {
+            return grid.width();
+        }
+
+        public byte stateAt(int x) {
+            return grid.stateAt(x, y);
+        }
+
+        public void export(byte[] dest, int destOffset) {
+            grid.exportRow(y, dest, destOffset);
+        }
+    }
+}
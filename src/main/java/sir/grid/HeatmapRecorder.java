@@ -0,0 +1,172 @@
+package sir.grid;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Writes heatmaps of a running simulation as PNG frames, every interval ticks. Only reading the grid into level 0 of a
+// DensityPyramid happens between steps, in parallel on a small pool; the coarser levels and the PNG encoding run on a
+// background pool while the simulation goes on. At most MAX_PENDING_FRAMES frames wait for encoding, after that
+// capture blocks rather than piling up memory.
+// Both pools get the given number of threads. The encoder threads compete with the solver for cores while steps run,
+// so runs with heatmaps are not comparable with runs without; getCaptureNanos() only covers the capture between steps.
+//   tick_<t>_L<k>_mean.png   mean densities of level k
+//   tick_<t>_L<k>_min.png    minimum densities of level k, for k >= 1 (level 0 has one value per pixel)
+// A pixel mixes the colors of the three states by their share: light grey susceptible, red infected, blue recovered.
+public class HeatmapRecorder implements AutoCloseable {
+    public static final String THREAD_NAME = "heatmap-encoder";
+    // Longer side of level 0 in pixels; the grid is averaged over square blocks to fit
+    private static final int MAX_FRAME_SIZE = 1024;
+    private static final int MAX_PENDING_FRAMES = 4;
+    private static final long CLOSE_TIMEOUT_SECONDS = 300;
+    private static final int[] SUSCEPTIBLE_RGB = {230, 230, 230};
+    private static final int[] INFECTED_RGB = {220, 30, 30};
+    private static final int[] RECOVERED_RGB = {40, 90, 200};
+
+    private final Path outputDir;
+    private final int interval;
+    private final int levels;
+    private final int blockSize;
+    private final ForkJoinPool capturePool;
+    private final ExecutorService encoderPool;
+    private final Semaphore pending = new Semaphore(MAX_PENDING_FRAMES);
+    private final List<Future<?>> frames = new ArrayList<>();
+    private final AtomicInteger imagesWritten = new AtomicInteger();
+    private long captureNanos;
+    private boolean disabled;
+
+    // interval <= 0 records nothing; levels is the number of pyramid levels written per frame
+    public HeatmapRecorder(Path outputDir, int gridWidth, int gridHeight, int interval, int levels, int threads) throws IOException {
+        if (levels < 1) {
+            throw new IllegalArgumentException("At least one level is needed, got " + levels);
+        }
+        this.outputDir = outputDir;
+        this.interval = interval;
+        this.levels = levels;
+        this.blockSize = Math.max(1, (Math.max(gridWidth, gridHeight) + MAX_FRAME_SIZE - 1) / MAX_FRAME_SIZE);
+        if (interval > 0) {
+            this.capturePool = new ForkJoinPool(Math.max(1, threads));
+            this.encoderPool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            Files.createDirectories(outputDir);
+        } else {
+            // Nothing will be recorded, so no threads are started
+            this.capturePool = null;
+            this.encoderPool = null;
+        }
+    }
+
+    public boolean isDue(int tick) {
+        return interval > 0 && !disabled && tick % interval == 0;
+    }
+
+    // Reads the grid as it is after the given tick; must be called between steps. The view is only fetched when a
+    // frame is due, as some solvers have none
+    public void capture(int tick, Supplier<GridView> view) {
+        if (!isDue(tick)) return;
+        GridView grid;
+        try {
+            grid = view.get();
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Heatmaps disabled, the solver has no local grid: " + e.getMessage());
+            disabled = true;
+            return;
+        }
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long start = System.nanoTime();
+        DensityPyramid.Level base = DensityPyramid.capture(grid, blockSize, capturePool);
+        captureNanos += System.nanoTime() - start;
+
+        frames.add(encoderPool.submit(() -> {
+            try {
+                writeFrame(tick, DensityPyramid.build(base, levels));
+            } finally {
+                pending.release();
+            }
+            return null;
+        }));
+    }
+
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    private void writeFrame(int tick, DensityPyramid pyramid) throws IOException {
+        for (int k = 0; k < pyramid.levelCount(); k++) {
+            DensityPyramid.Level level = pyramid.level(k);
+            write(level, level.meanInfected(), level.meanRecovered(), "tick_" + tick + "_L" + k + "_mean.png");
+            if (k > 0) {
+                write(level, level.minInfected(), level.minRecovered(), "tick_" + tick + "_L" + k + "_min.png");
+            }
+        }
+    }
+
+    private void write(DensityPyramid.Level level, float[] infected, float[] recovered, String fileName) throws IOException {
+        BufferedImage image = new BufferedImage(level.width(), level.height(), BufferedImage.TYPE_INT_RGB);
+        int[] pixels = new int[level.width() * level.height()];
+        for (int i = 0; i < pixels.length; i++) {
+            float inf = infected[i];
+            float rec = recovered[i];
+            float sus = Math.max(0, 1 - inf - rec);
+            int rgb = 0;
+            for (int c = 0; c < 3; c++) {
+                int value = Math.round(sus * SUSCEPTIBLE_RGB[c] + inf * INFECTED_RGB[c] + rec * RECOVERED_RGB[c]);
+                rgb = (rgb << 8) | Math.min(255, value);
+            }
+            pixels[i] = rgb;
+        }
+        image.setRGB(0, 0, level.width(), level.height(), pixels, 0, level.width());
+        if (!ImageIO.write(image, "png", outputDir.resolve(fileName).toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+        imagesWritten.incrementAndGet();
+    }
+
+    // Waits for the frames still being encoded and reports failures
+    @Override
+    public void close() {
+        if (encoderPool == null) {
+            return;
+        }
+        capturePool.shutdown();
+        encoderPool.shutdown();
+        try {
+            if (!encoderPool.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Timed out waiting for heatmap frames to be written.");
+            }
+            for (Future<?> frame : frames) {
+                if (frame.isDone()) frame.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            System.err.println("Writing a heatmap frame failed: " + cause);
+        }
+        if (!frames.isEmpty()) {
+            System.out.printf("Heatmaps: %d frames, %d images in %s. Capture time: %.3f s.%n",
+                    frames.size(), imagesWritten.get(), outputDir.toAbsolutePath(), captureNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package sir.grid;
+
+// Grid view over a byte[] of OptNode states stored in a non-row-major CellLayout
+final class LayoutGridView implements GridView {
+    private final byte[] states;
+    private final CellLayout layout;
+
+    LayoutGridView(byte[] states, CellLayout layout) {
+        if (states.length != layout.size()) {
+            throw new IllegalArgumentException("Expected " + layout.size() + " states, got " + states.length);
+        }
+        this.states = states;
+        this.layout = layout;
+    }
+
+    @Override
+    public int width() {
+        return layout.width();
+    }
+
+    @Override
+    public int height() {
+        return layout.height();
+    }
+
+    @Override
+    public byte stateAt(int index) {
+        return states[layout.index(index % layout.width(), index / layout.width())];
+    }
+
+    @Override
+    public byte stateAt(int x, int y) {
+        return states[layout.index(x, y)];
+    }
+
+    @Override
+    public void exportRow(int y, byte[] dest, int destOffset) {
+        for (int x = 0; x < layout.width(); x++) {
+            dest[destOffset + x] = states[layout.index(x, y)];
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package sir.grid;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import sir.model.StepStats;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Measures the memory cost of simulation steps: bytes allocated by all threads of this JVM during the step
+// (solver workers included) and the stop-the-world GC pauses that finished during the step.
+// Allocations of a thread that terminates in the middle of a step are lost. GC notifications are delivered
+// asynchronously, so the end of a step waits briefly until every collection counted by the collectors has been reported.
+public class MemoryMonitor implements AutoCloseable {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long NOTIFICATION_WAIT_NANOS = 50_000_000L;
+
+    // One collection; id is the collector's running collection count
+    private record Pause(String collector, long id, long durationMillis) { }
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final Set<String> ignoredThreadNames;
+    // Thread id -> whether its allocations count, looked up once per thread
+    private final Map<Long, Boolean> countedThreads = new HashMap<>();
+    private Map<Long, Long> allocatedAtStepStart = new HashMap<>();
+    private final ConcurrentLinkedQueue<Pause> pauses = new ConcurrentLinkedQueue<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final List<GarbageCollectorMXBean> pauseCollectors = new ArrayList<>();
+    private final AtomicLong reportedCollections = new AtomicLong();
+    private final NotificationListener gcListener = this::onGcNotification;
+    private long[] collectionsAtStepStart;
+
+    public MemoryMonitor(Set<String> ignoredThreadNames) {
+        this.ignoredThreadNames = ignoredThreadNames;
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter && isPauseCollector(collector.getName())) {
+                pauseCollectors.add(collector);
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        long[] counts = collectionCounts();
+        reportedCollections.set(Arrays.stream(counts).sum());
+        collectionsAtStepStart = counts;
+    }
+
+    // Concurrent cycles run next to the application and are not pauses
+    private static boolean isPauseCollector(String name) {
+        String lower = name.toLowerCase();
+        return !lower.contains("concurrent") && !lower.contains("cycles");
+    }
+
+    private long[] collectionCounts() {
+        long[] counts = new long[pauseCollectors.size()];
+        for (int c = 0; c < counts.length; c++) {
+            counts[c] = Math.max(0, pauseCollectors.get(c).getCollectionCount());
+        }
+        return counts;
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        GcInfo gc = info.getGcInfo();
+        pauses.add(new Pause(info.getGcName(), gc.getId(), gc.getDuration()));
+        reportedCollections.incrementAndGet();
+    }
+
+    public void beginStep() {
+        allocatedAtStepStart = readAllocatedBytes();
+        collectionsAtStepStart = collectionCounts();
+    }
+
+    // Returns the stats with the allocations and GC pauses since the matching beginStep()
+    public StepStats endStep(StepStats stats) {
+        long[] collectionsAtStepEnd = collectionCounts();
+        Map<Long, Long> allocated = readAllocatedBytes();
+        long allocatedBytes = 0;
+        for (var entry : allocated.entrySet()) {
+            // A thread first seen at the end of the step was started during it
+            allocatedBytes += entry.getValue() - allocatedAtStepStart.getOrDefault(entry.getKey(), 0L);
+        }
+        allocatedAtStepStart = allocated;
+
+        awaitNotifications(Arrays.stream(collectionsAtStepEnd).sum());
+        long pauseMillis = 0;
+        for (Iterator<Pause> it = pauses.iterator(); it.hasNext(); ) {
+            Pause pause = it.next();
+            int c = collectorIndex(pause.collector());
+            if (c < 0 || pause.id() <= collectionsAtStepEnd[c]) {
+                if (c >= 0 && pause.id() > collectionsAtStepStart[c]) {
+                    pauseMillis += pause.durationMillis();
+                }
+                it.remove();
+            }
+        }
+        collectionsAtStepStart = collectionsAtStepEnd;
+        return stats.withMemory(allocatedBytes, pauseMillis * NANOS_PER_MILLI);
+    }
+
+    private int collectorIndex(String name) {
+        for (int c = 0; c < pauseCollectors.size(); c++) {
+            if (pauseCollectors.get(c).getName().equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private void awaitNotifications(long expected) {
+        long deadline = System.nanoTime() + NOTIFICATION_WAIT_NANOS;
+        while (reportedCollections.get() < expected && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private Map<Long, Long> readAllocatedBytes() {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>(ids.length * 2);
+        for (int t = 0; t < ids.length; t++) {
+            if (bytes[t] >= 0 && isCounted(ids[t])) {
+                allocated.put(ids[t], bytes[t]);
+            }
+        }
+        return allocated;
+    }
+
+    private boolean isCounted(long threadId) {
+        return countedThreads.computeIfAbsent(threadId, id -> {
+            var info = threads.getThreadInfo(id);
+            return info != null && !ignoredThreadNames.contains(info.getThreadName());
+        });
+    }
+
+    // Heap in use once garbage has been collected; the difference around creating an object approximates its
+    // retained size
+    public static long settledHeapUsage() {
+        long previous = Long.MAX_VALUE;
+        long used = collectedHeapUsage();
+        // Finalization and reference processing can free more on the next collection
+        for (int i = 0; i < 5 && used < previous; i++) {
+            previous = used;
+            used = collectedHeapUsage();
+        }
+        return Math.min(used, previous);
+    }
+
+    private static long collectedHeapUsage() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            }
+        }
+        emitters.clear();
+    }
+}
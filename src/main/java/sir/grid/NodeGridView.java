@@ -0,0 +1,44 @@
+package sir.grid;
+
+import sir.model.Node;
+
+// Grid view over a Node[][] indexed as grid[y][x]
+final class NodeGridView implements GridView {
+    private final Node[][] grid;
+    private final int width;
+    private final int height;
+
+    NodeGridView(Node[][] grid) {
+        this.grid = grid;
+        this.height = grid.length;
+        this.width = height == 0 ? 0 : grid[0].length;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public byte stateAt(int index) {
+        return stateAt(index % width, index / width);
+    }
+
+    @Override
+    public byte stateAt(int x, int y) {
+        return (byte) grid[y][x].state.ordinal();
+    }
+
+    @Override
+    public void exportRow(int y, byte[] dest, int destOffset) {
+        Node[] row = grid[y];
+        for (int x = 0; x < width; x++) {
+            dest[destOffset + x] = (byte) row[x].state.ordinal();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package sir.grid;
+
+// Grid view over row-major states kept in copy-on-write pages
+final class PagedGridView implements GridView {
+    private final PagedStates states;
+    private final int width;
+    private final int height;
+
+    PagedGridView(PagedStates states, int width, int height) {
+        if (states.length() != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " states, got " + states.length());
+        }
+        this.states = states;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public byte stateAt(int index) {
+        return states.get(index);
+    }
+
+    @Override
+    public void exportStates(int fromIndex, byte[] dest, int destOffset, int length) {
+        states.exportStates(fromIndex, dest, destOffset, length);
+    }
+}
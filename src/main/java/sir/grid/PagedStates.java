@@ -0,0 +1,107 @@
+package sir.grid;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Row-major OptNode states stored in fixed-size pages that can be shared copy-on-write between forks of a simulation.
+// fork() only copies the page table (one reference per PAGE_SIZE cells); afterwards every page is shared and whichever
+// side writes a page first gets its own copy of that page, so a fork costs memory only for the pages it changes.
+// Each instance must be used by one thread at a time, but different forks can be stepped on different threads.
+public final class PagedStates {
+    public static final int PAGE_SHIFT = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int length;
+    private final byte[][] pages;
+    // Bit per page, set for the pages no other fork can see and that can therefore be written in place
+    private final long[] owned;
+
+    // Reads the states of the view into new pages, one page at a time
+    public PagedStates(GridView initial) {
+        this(initial.size());
+        copyFrom(initial);
+    }
+
+    private PagedStates(int length) {
+        this.length = length;
+        this.pages = new byte[(length + PAGE_MASK) >> PAGE_SHIFT][];
+        this.owned = new long[(pages.length + 63) >> 6];
+    }
+
+    private PagedStates(PagedStates parent) {
+        this.length = parent.length;
+        this.pages = parent.pages.clone();
+        this.owned = new long[parent.owned.length];
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte get(int index) {
+        return pages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    public void set(int index, byte state) {
+        int page = index >>> PAGE_SHIFT;
+        if ((owned[page >> 6] & (1L << page)) == 0) {
+            own(page);
+        }
+        pages[page][index & PAGE_MASK] = state;
+    }
+
+    // Takes a private copy of a shared page
+    private void own(int page) {
+        pages[page] = pages[page].clone();
+        owned[page >> 6] |= 1L << page;
+    }
+
+    // New instance sharing every page with this one; both copy a page on their first write to it
+    public PagedStates fork() {
+        Arrays.fill(owned, 0L);
+        return new PagedStates(this);
+    }
+
+    // Overwrites all states with the given view, e.g. on a solver reset; pages shared with forks are replaced, not written
+    public void copyFrom(GridView source) {
+        if (source.size() != length) {
+            throw new IllegalArgumentException("Expected " + length + " states, got " + source.size());
+        }
+        for (int page = 0; page < pages.length; page++) {
+            int from = page << PAGE_SHIFT;
+            if ((owned[page >> 6] & (1L << page)) == 0) {
+                pages[page] = new byte[Math.min(PAGE_SIZE, length - from)];
+                owned[page >> 6] |= 1L << page;
+            }
+            source.exportStates(from, pages[page], 0, pages[page].length);
+        }
+    }
+
+    public void exportStates(int fromIndex, byte[] dest, int destOffset, int length) {
+        Objects.checkFromIndexSize(fromIndex, length, this.length);
+        Objects.checkFromIndexSize(destOffset, length, dest.length);
+        while (length > 0) {
+            int page = fromIndex >>> PAGE_SHIFT;
+            int offset = fromIndex & PAGE_MASK;
+            int count = Math.min(length, pages[page].length - offset);
+            System.arraycopy(pages[page], offset, dest, destOffset, count);
+            fromIndex += count;
+            destOffset += count;
+            length -= count;
+        }
+    }
+
+    public int pageCount() {
+        return pages.length;
+    }
+
+    // Pages this instance has written since it was created or last forked, i.e. the memory it does not share
+    public int privatePageCount() {
+        int count = 0;
+        for (long word : owned) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,231 @@
+package sir.grid;
+
+import sir.model.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Content-addressed cache of finished runs. An entry holds the step log and the final grid state of one run and
+// lives in a directory named by a hash of the configuration, seed, solver, thread count, repeat number and code version.
+// Least recently used entries are deleted once the cache grows past its disk budget. A restored log keeps the
+// trajectory only: its measurement columns are set to NOT_MEASURED, so old timings are never reported as new ones.
+public class ResultCache {
+    private static final String STATS_FILE = "stats.csv";
+    private static final String STATE_FILE = "final_state.bin";
+    // Bump when the cached file layout changes
+    private static final int FORMAT_VERSION = 2;
+    // Value of StepTimeNanos and the memory columns in restored logs
+    public static final long NOT_MEASURED = -1;
+    // First measurement column of the step log, see SimulationLogger
+    private static final int FIRST_MEASUREMENT_COLUMN = 6;
+    // Code versions by class file location, hashed once per process
+    private static final Map<String, byte[]> CODE_VERSIONS = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final long budgetBytes;
+
+    public ResultCache(Path root, long budgetBytes) throws IOException {
+        this.root = root;
+        this.budgetBytes = budgetBytes;
+        Files.createDirectories(root);
+    }
+
+    // Cache key of a run, or empty for unseeded runs, which are not reproducible. Only for solvers whose seeded output
+    // does not depend on thread timing; for the others an entry would pass one random realization off as the run.
+    // The code version is a hash of every class file next to the solver's (the jar or the classes directory), so any
+    // change to the solver, its helpers or the grid code invalidates entries. The thread count is part of the key
+    // because the seeded result of some parallel solvers depends on how the work was split.
+    public static Optional<String> key(Configuration config, String solverName, int repeat, int threads, Class<?> solverClass) {
+        if (config.seed() == null) {
+            return Optional.empty();
+        }
+        MessageDigest digest = sha256();
+        String description = String.join("|",
+                "v" + FORMAT_VERSION,
+                Integer.toString(config.gridWidth()),
+                Integer.toString(config.gridHeight()),
+                Integer.toString(config.initialInfectedCount()),
+                Double.toString(config.infectionProbability()),
+                Double.toString(config.recoveryProbability()),
+                config.seed().toString(),
+                solverName,
+                Integer.toString(threads),
+                Integer.toString(repeat));
+        digest.update(description.getBytes(StandardCharsets.UTF_8));
+        digest.update(codeVersion(solverClass));
+        return Optional.of(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] codeVersion(Class<?> type) {
+        CodeSource source = type.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) {
+            return classBytes(type);
+        }
+        String location = source.getLocation().toString();
+        return CODE_VERSIONS.computeIfAbsent(location, l -> hashCodeSource(type, source));
+    }
+
+    // Hash of a jar's bytes, or of the names and contents of all class files below a classes directory
+    private static byte[] hashCodeSource(Class<?> type, CodeSource source) {
+        MessageDigest digest = sha256();
+        try {
+            Path path = Path.of(source.getLocation().toURI());
+            if (Files.isRegularFile(path)) {
+                digest.update(Files.readAllBytes(path));
+            } else {
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path file : files.filter(f -> f.toString().endsWith(".class")).sorted().toList()) {
+                        digest.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                        digest.update(Files.readAllBytes(file));
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            digest.update(classBytes(type));
+        }
+        return digest.digest();
+    }
+
+    private static byte[] classBytes(Class<?> type) {
+        String resource = "/" + type.getName().replace('.', '/') + ".class";
+        try (InputStream in = type.getResourceAsStream(resource)) {
+            return in == null ? type.getName().getBytes(StandardCharsets.UTF_8) : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource, e);
+        }
+    }
+
+    // Writes the trajectory of the cached step log to the target, with NOT_MEASURED in place of the timing and memory
+    // columns; returns false on a miss
+    public boolean restoreLog(String key, Path target) throws IOException {
+        Path entry = root.resolve(key);
+        Path stats = entry.resolve(STATS_FILE);
+        if (!Files.exists(stats)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(stats);
+        List<String> restored = new ArrayList<>(lines.size());
+        for (int k = 0; k < lines.size(); k++) {
+            restored.add(k == 0 ? lines.get(k) : withoutMeasurements(lines.get(k)));
+        }
+        Files.write(target, restored);
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    private static String withoutMeasurements(String line) {
+        String[] parts = line.split(",");
+        for (int column = FIRST_MEASUREMENT_COLUMN; column < parts.length; column++) {
+            parts[column] = Long.toString(NOT_MEASURED);
+        }
+        return String.join(",", parts);
+    }
+
+    // Final grid state of a cached run in row-major order, if it was stored
+    public Optional<byte[]> loadFinalState(String key) throws IOException {
+        Path state = root.resolve(key).resolve(STATE_FILE);
+        return Files.exists(state) ? Optional.of(Files.readAllBytes(state)) : Optional.empty();
+    }
+
+    // Stores a finished run; finalState may be null when the solver has no local grid
+    public void store(String key, Path log, GridView finalState) throws IOException {
+        Path entry = root.resolve(key);
+        if (Files.exists(entry)) {
+            return;
+        }
+        // Build the entry next to its final location and move it into place in one step
+        Path staging = Files.createTempDirectory(root, key + ".tmp");
+        try {
+            Files.copy(log, staging.resolve(STATS_FILE));
+            if (finalState != null) {
+                byte[] states = new byte[finalState.size()];
+                finalState.exportStates(states);
+                Files.write(staging.resolve(STATE_FILE), states);
+            }
+            try {
+                Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, entry);
+            }
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another run stored the same entry first
+        } finally {
+            deleteRecursively(staging);
+        }
+        evict();
+    }
+
+    // Deletes least recently used entries until the cache fits its budget
+    private void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(root)) {
+            entries = new ArrayList<>(stream.filter(Files::isDirectory).toList());
+        }
+        long total = 0;
+        for (Path entry : entries) {
+            total += sizeOf(entry);
+        }
+        entries.sort(Comparator.comparing(ResultCache::lastModified));
+        for (Path entry : entries) {
+            if (total <= budgetBytes) {
+                break;
+            }
+            total -= sizeOf(entry);
+            deleteRecursively(entry);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
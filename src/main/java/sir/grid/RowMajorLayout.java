@@ -0,0 +1,60 @@
+package sir.grid;
+
+// index = y * width + x
+final class RowMajorLayout implements CellLayout {
+    private final int width;
+    private final int height;
+
+    RowMajorLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public Order order() {
+        return Order.ROW_MAJOR;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int x(int index) {
+        return index % width;
+    }
+
+    @Override
+    public int y(int index) {
+        return index / width;
+    }
+
+    @Override
+    public void neighbors(int index, int[] out) {
+        int x = index % width;
+        int y = index / width;
+        out[0] = y < height - 1 ? index + width : -1;
+        out[1] = y > 0 ? index - width : -1;
+        out[2] = x < width - 1 ? index + 1 : -1;
+        out[3] = x > 0 ? index - 1 : -1;
+    }
+
+    @Override
+    public byte[] fromRowMajor(byte[] rowMajor) {
+        if (rowMajor.length != size()) {
+            throw new IllegalArgumentException("Expected " + size() + " states, got " + rowMajor.length);
+        }
+        return rowMajor;
+    }
+}
@@ -8,25 +8,35 @@ import java.io.PrintWriter;
 
 public class SimulationLogger implements Closeable {
     private final PrintWriter writer;
+    private final long residentBytes;
     private boolean headerWritten = false;
 
     public SimulationLogger(String filePath) throws IOException {
+        this(filePath, -1);
+    }
+
+    // residentBytes is the retained heap size of the solver, -1 when it was not measured
+    public SimulationLogger(String filePath, long residentBytes) throws IOException {
         this.writer = new PrintWriter(new FileWriter(filePath));
+        this.residentBytes = residentBytes;
     }
 
     public void log(StepStats stats) {
         if (!headerWritten) {
-            writer.println("Tick,NewlyInfected,NewlyRecovered,TotalSusceptible,TotalInfected,TotalRecovered,StepTimeNanos");
+            writer.println("Tick,NewlyInfected,NewlyRecovered,TotalSusceptible,TotalInfected,TotalRecovered,StepTimeNanos,AllocatedBytes,GcPauseNanos,ResidentBytes");
             headerWritten = true;
         }
-        writer.printf("%d,%d,%d,%d,%d,%d,%d%n",
+        writer.printf("%d,%d,%d,%d,%d,%d,%d,%d,%d,%d%n",
                 stats.tick(),
                 stats.newlyInfected(),
                 stats.newlyRecovered(),
                 stats.totalSusceptible(),
                 stats.totalInfected(),
                 stats.totalRecovered(),
-                stats.stepTimeNanos());
+                stats.stepTimeNanos(),
+                stats.allocatedBytes(),
+                stats.gcPauseNanos(),
+                residentBytes);
     }
 
     @Override
@@ -0,0 +1,225 @@
+package sir.grid;
+
+import java.util.Arrays;
+
+// The grid is cut into 16x16 tiles (smaller at the right and bottom edges), the tiles are stored one after another
+// in Morton or Hilbert order and the cells inside a tile row-major. Neighbors inside a tile are +-1 and +-tile width
+// away; across a tile edge they are found through the precomputed tile tables.
+final class TiledCurveLayout implements CellLayout {
+    private static final int TILE_SHIFT = 4;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    // Indices are looked up in blocks of one full tile, see tileOf
+    private static final int BLOCK_SHIFT = 2 * TILE_SHIFT;
+
+    private final Order order;
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    // Per tile in curve order: tile coordinates and the index of its first cell (tileStart[tileCount] = size)
+    private final int[] tileX;
+    private final int[] tileY;
+    private final int[] tileStart;
+    // Tile at tile coordinates (tx, ty), stored row-major
+    private final int[] tileAt;
+    // Tile containing the first index of every block of 1 << BLOCK_SHIFT indices
+    private final int[] blockTile;
+
+    TiledCurveLayout(Order order, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive");
+        }
+        this.order = order;
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        int tilesY = (height + TILE_MASK) >> TILE_SHIFT;
+        int tileCount = tilesX * tilesY;
+        this.tileX = new int[tileCount];
+        this.tileY = new int[tileCount];
+        this.tileStart = new int[tileCount + 1];
+        this.tileAt = new int[tileCount];
+
+        // Order the tiles inside the grid by their distance along the curve over the enclosing power-of-two square.
+        // Only the tiles of the grid are visited, so elongated grids do not pay for the whole square
+        int maxTiles = Math.max(tilesX, tilesY);
+        int side = maxTiles == 1 ? 1 : Integer.highestOneBit(maxTiles - 1) << 1;
+        long[] distances = new long[tileCount];
+        for (int ty = 0, k = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++, k++) {
+                distances[k] = order == Order.HILBERT ? hilbertIndex(side, tx, ty) : mortonIndex(tx, ty);
+            }
+        }
+        Arrays.sort(distances);
+        int[] point = new int[2];
+        for (int t = 0; t < tileCount; t++) {
+            if (order == Order.HILBERT) {
+                hilbertPoint(side, distances[t], point);
+            } else {
+                mortonPoint(distances[t], point);
+            }
+            tileX[t] = point[0];
+            tileY[t] = point[1];
+            tileAt[point[1] * tilesX + point[0]] = t;
+            tileStart[t + 1] = tileStart[t] + tileWidth(t) * tileHeight(t);
+        }
+
+        this.blockTile = new int[((width * height - 1) >> BLOCK_SHIFT) + 1];
+        int tile = 0;
+        for (int block = 0; block < blockTile.length; block++) {
+            int first = block << BLOCK_SHIFT;
+            while (tileStart[tile + 1] <= first) tile++;
+            blockTile[block] = tile;
+        }
+    }
+
+    private static long mortonIndex(int x, int y) {
+        return spreadBits(x) | (spreadBits(y) << 1);
+    }
+
+    // Moves bit i of v to bit 2i, the inverse of compactBits
+    private static long spreadBits(int v) {
+        long d = v & 0xFFFFFFFFL;
+        d = (d | (d << 16)) & 0x0000FFFF0000FFFFL;
+        d = (d | (d << 8)) & 0x00FF00FF00FF00FFL;
+        d = (d | (d << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        d = (d | (d << 2)) & 0x3333333333333333L;
+        d = (d | (d << 1)) & 0x5555555555555555L;
+        return d;
+    }
+
+    private static void mortonPoint(long d, int[] point) {
+        point[0] = compactBits(d);
+        point[1] = compactBits(d >>> 1);
+    }
+
+    // Keeps every second bit of d, starting with bit 0
+    private static int compactBits(long d) {
+        long v = d & 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) v;
+    }
+
+    // Distance of (x, y) along the Hilbert curve filling a side x side square, the inverse of hilbertPoint
+    private static long hilbertIndex(int side, int x, int y) {
+        long d = 0;
+        for (int s = side >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return d;
+    }
+
+    // Point at distance d along the Hilbert curve filling a side x side square
+    private static void hilbertPoint(int side, long d, int[] point) {
+        int x = 0;
+        int y = 0;
+        long t = d;
+        for (int s = 1; s < side; s <<= 1) {
+            int rx = (int) (1 & (t >>> 1));
+            int ry = (int) (1 & (t ^ rx));
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+            x += s * rx;
+            y += s * ry;
+            t >>>= 2;
+        }
+        point[0] = x;
+        point[1] = y;
+    }
+
+    private int tileWidth(int tile) {
+        return Math.min(TILE_SIZE, width - (tileX[tile] << TILE_SHIFT));
+    }
+
+    private int tileHeight(int tile) {
+        return Math.min(TILE_SIZE, height - (tileY[tile] << TILE_SHIFT));
+    }
+
+    // Edge tiles are smaller than a block, so a few steps past the block's first tile find the right one
+    private int tileOf(int index) {
+        int tile = blockTile[index >> BLOCK_SHIFT];
+        while (tileStart[tile + 1] <= index) tile++;
+        return tile;
+    }
+
+    @Override
+    public Order order() {
+        return order;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        int tile = tileAt[(y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT)];
+        return tileStart[tile] + (y & TILE_MASK) * tileWidth(tile) + (x & TILE_MASK);
+    }
+
+    @Override
+    public int x(int index) {
+        int tile = tileOf(index);
+        return (tileX[tile] << TILE_SHIFT) + (index - tileStart[tile]) % tileWidth(tile);
+    }
+
+    @Override
+    public int y(int index) {
+        int tile = tileOf(index);
+        return (tileY[tile] << TILE_SHIFT) + (index - tileStart[tile]) / tileWidth(tile);
+    }
+
+    @Override
+    public void neighbors(int index, int[] out) {
+        int tile = tileOf(index);
+        int tw = tileWidth(tile);
+        int local = index - tileStart[tile];
+        int lx = local % tw;
+        int ly = local / tw;
+        int x = (tileX[tile] << TILE_SHIFT) + lx;
+        int y = (tileY[tile] << TILE_SHIFT) + ly;
+        out[0] = ly < tileHeight(tile) - 1 ? index + tw : (y < height - 1 ? index(x, y + 1) : -1);
+        out[1] = ly > 0 ? index - tw : (y > 0 ? index(x, y - 1) : -1);
+        out[2] = lx < tw - 1 ? index + 1 : (x < width - 1 ? index(x + 1, y) : -1);
+        out[3] = lx > 0 ? index - 1 : (x > 0 ? index(x - 1, y) : -1);
+    }
+
+    @Override
+    public int splitPoint(int start, int end) {
+        int mid = (start + end) >>> 1;
+        int tile = tileOf(mid);
+        if (tileStart[tile] > start) {
+            return tileStart[tile];
+        }
+        int next = tileStart[tile + 1];
+        return next < end ? next : mid;
+    }
+}
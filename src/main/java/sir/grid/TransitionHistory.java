@@ -0,0 +1,263 @@
+package sir.grid;
+
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Complete spatial history of a run in 8 bytes per cell. In SIR a cell changes state at most twice, so the tick it
+// was infected at and the tick it recovered at describe it at every tick. Solvers fill both arrays as the transitions
+// happen (see SIRSolver.recordTransitions()); the grid at any tick is then rebuilt in one parallel pass and the
+// per-tick counts of the run can be recomputed from the arrays alone.
+// A transition at tick t is visible in the state after step t. Cells infected or recovered before the first step
+// have tick -1, transitions that never happened have NEVER.
+public final class TransitionHistory {
+    public static final int NEVER = Integer.MAX_VALUE;
+    // Cells per replay task
+    private static final int CHUNK = 1 << 16;
+    private static final int HEADER_INTS = 3;
+    private static final int IO_BUFFER_INTS = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int[] infectionTicks;
+    private final int[] recoveryTicks;
+    private int lastTick = -1;
+
+    private TransitionHistory(int width, int height, int[] infectionTicks, int[] recoveryTicks) {
+        this.width = width;
+        this.height = height;
+        this.infectionTicks = infectionTicks;
+        this.recoveryTicks = recoveryTicks;
+    }
+
+    // Empty history starting from the given grid, read before the first step
+    public static TransitionHistory of(GridView initial) {
+        int size = initial.size();
+        int[] infectionTicks = new int[size];
+        int[] recoveryTicks = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            byte state = initial.stateAt(cell);
+            infectionTicks[cell] = state == OptNode.SUSCEPTIBLE ? NEVER : -1;
+            recoveryTicks[cell] = state == OptNode.RECOVERED ? -1 : NEVER;
+        }
+        return new TransitionHistory(initial.width(), initial.height(), infectionTicks, recoveryTicks);
+    }
+
+    // Called by the solver for every transition; cells are row-major. Different cells may be recorded from different
+    // threads of one step.
+    public void infected(int cell, int tick) {
+        infectionTicks[cell] = tick;
+    }
+
+    public void recovered(int cell, int tick) {
+        recoveryTicks[cell] = tick;
+    }
+
+    // For double-buffered solvers: records the transitions between the states before and after the step of the
+    // row-major cells [from, from + length)
+    public void recordChanges(byte[] previous, byte[] next, int from, int length, int tick) {
+        for (int cell = from, end = from + length; cell < end; cell++) {
+            if (previous[cell] != next[cell]) {
+                if (next[cell] == OptNode.INFECTED) {
+                    infectionTicks[cell] = tick;
+                } else {
+                    recoveryTicks[cell] = tick;
+                }
+            }
+        }
+    }
+
+    // Undoes recordChanges for a step that was computed but never reported
+    public void forgetChanges(byte[] previous, byte[] next, int from, int length) {
+        for (int cell = from, end = from + length; cell < end; cell++) {
+            if (previous[cell] != next[cell]) {
+                if (next[cell] == OptNode.INFECTED) {
+                    infectionTicks[cell] = NEVER;
+                } else {
+                    recoveryTicks[cell] = NEVER;
+                }
+            }
+        }
+    }
+
+    // Called by the solver at the end of every step
+    public void endStep(int tick) {
+        lastTick = tick;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    // Last recorded step, -1 before the first one
+    public int lastTick() {
+        return lastTick;
+    }
+
+    public int infectionTick(int cell) {
+        return infectionTicks[cell];
+    }
+
+    public int recoveryTick(int cell) {
+        return recoveryTicks[cell];
+    }
+
+    // The grid as it was after the given step; tick -1 is the initial grid
+    public GridView replay(int tick, ForkJoinPool pool) {
+        byte[] states = new byte[width * height];
+        replayInto(tick, states, pool);
+        return GridView.of(states, width, height);
+    }
+
+    // Writes the row-major states after the given step into dest
+    public void replayInto(int tick, byte[] dest, ForkJoinPool pool) {
+        if (dest.length != infectionTicks.length) {
+            throw new IllegalArgumentException("Expected " + infectionTicks.length + " states, got " + dest.length);
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                int tasks = (dest.length + CHUNK - 1) / CHUNK;
+                ForkJoinTask<?>[] chunks = new ForkJoinTask<?>[tasks];
+                for (int t = 0; t < tasks; t++) {
+                    int from = t * CHUNK;
+                    int to = Math.min(dest.length, from + CHUNK);
+                    chunks[t] = ForkJoinTask.adapt(() -> replayRange(tick, dest, from, to));
+                }
+                invokeAll(chunks);
+            }
+        });
+    }
+
+    // A cell never recovers before it is infected, so the number of transitions up to the tick is its state
+    private void replayRange(int tick, byte[] dest, int from, int to) {
+        for (int cell = from; cell < to; cell++) {
+            dest[cell] = (byte) ((infectionTicks[cell] <= tick ? 1 : 0) + (recoveryTicks[cell] <= tick ? 1 : 0));
+        }
+    }
+
+    // Per-step counts of the recorded run, as the solver reported them but without timings
+    public List<StepStats> stepStats() {
+        // Transitions per tick, index 0 holds the ones before the first step
+        int[] infections = new int[lastTick + 2];
+        int[] recoveries = new int[lastTick + 2];
+        for (int cell = 0; cell < infectionTicks.length; cell++) {
+            if (infectionTicks[cell] <= lastTick) infections[infectionTicks[cell] + 1]++;
+            if (recoveryTicks[cell] <= lastTick) recoveries[recoveryTicks[cell] + 1]++;
+        }
+        int infected = infections[0] - recoveries[0];
+        int recovered = recoveries[0];
+        int susceptible = infectionTicks.length - infections[0];
+        List<StepStats> stats = new ArrayList<>(lastTick + 1);
+        for (int tick = 0; tick <= lastTick; tick++) {
+            int newlyInfected = infections[tick + 1];
+            int newlyRecovered = recoveries[tick + 1];
+            susceptible -= newlyInfected;
+            infected += newlyInfected - newlyRecovered;
+            recovered += newlyRecovered;
+            stats.add(new StepStats(tick, newlyInfected, newlyRecovered, susceptible, infected, recovered, 0L));
+        }
+        return stats;
+    }
+
+    // Writes the recomputed counts in the format of the solver logs, with zero timings and no memory figures
+    public void writeLog(Path logPath) throws IOException {
+        try (SimulationLogger logger = new SimulationLogger(logPath.toString())) {
+            for (StepStats stats : stepStats()) {
+                logger.log(stats);
+            }
+        }
+    }
+
+    // Little-endian ints: width, height, last tick, then the infection ticks and the recovery ticks
+    public void save(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_INTS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(width).putInt(height).putInt(lastTick);
+            write(channel, buffer, infectionTicks);
+            write(channel, buffer, recoveryTicks);
+            flush(channel, buffer);
+        }
+    }
+
+    public static TransitionHistory load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_INTS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER_INTS * Integer.BYTES);
+            fill(channel, buffer);
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int lastTick = buffer.getInt();
+            long expectedBytes = (HEADER_INTS + 2L * width * height) * Integer.BYTES;
+            if (width < 0 || height < 0 || channel.size() != expectedBytes) {
+                throw new IOException("Not a transition history of a " + width + "x" + height + " grid: " + path);
+            }
+            int[] infectionTicks = new int[width * height];
+            int[] recoveryTicks = new int[width * height];
+            read(channel, buffer, infectionTicks);
+            read(channel, buffer, recoveryTicks);
+            TransitionHistory history = new TransitionHistory(width, height, infectionTicks, recoveryTicks);
+            history.lastTick = lastTick;
+            return history;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(), (values.length - offset) * Integer.BYTES));
+            fill(channel, buffer);
+            IntBuffer ints = buffer.asIntBuffer();
+            int count = ints.remaining();
+            ints.get(values, offset, count);
+            offset += count;
+        }
+    }
+
+    // Reads until the buffer's limit is reached
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Transition history ends early");
+            }
+        }
+        buffer.flip();
+    }
+}
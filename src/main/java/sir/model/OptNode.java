@@ -1,6 +1,6 @@
 package sir.model;
 
-// Optimized node class for the simulation used by fork join solver
+// Optimized node class; its state constants are also used by the solvers that store the grid as a byte[]
 public class OptNode {
     public final int x, y;
     public byte state;
@@ -10,6 +10,9 @@ public record RunStats(
         long avgStepNs,
         long maxStepNs,
         long minStepNs,
+        long totalAllocatedBytes,
+        long totalGcPauseNs,
+        double residentBytesPerCell,
         Configuration config
 ) {
 }
\ No newline at end of file
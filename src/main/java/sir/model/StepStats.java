@@ -8,8 +8,36 @@ public record StepStats(
         int totalSusceptible,
         int totalInfected,
         int totalRecovered,
-        Long stepTimeNanos
+        Long stepTimeNanos,
+        long allocatedBytes,
+        long gcPauseNanos
 ) {
+    // Solvers report the simulation counts only, the memory columns are filled in by the runner
+    public StepStats(int tick, int newlyInfected, int newlyRecovered,
+                     int totalSusceptible, int totalInfected, int totalRecovered, Long stepTimeNanos) {
+        this(tick, newlyInfected, newlyRecovered, totalSusceptible, totalInfected, totalRecovered, stepTimeNanos, 0, 0);
+    }
+
+    public StepStats withMemory(long allocatedBytes, long gcPauseNanos) {
+        return new StepStats(tick, newlyInfected, newlyRecovered, totalSusceptible, totalInfected, totalRecovered,
+                stepTimeNanos, allocatedBytes, gcPauseNanos);
+    }
+
+    // Combines this step with a later one: the counts of new events add up, the totals are the later step's
+    public StepStats merge(StepStats later) {
+        return new StepStats(
+                later.tick,
+                this.newlyInfected + later.newlyInfected,
+                this.newlyRecovered + later.newlyRecovered,
+                later.totalSusceptible,
+                later.totalInfected,
+                later.totalRecovered,
+                this.stepTimeNanos + later.stepTimeNanos,
+                this.allocatedBytes + later.allocatedBytes,
+                this.gcPauseNanos + later.gcPauseNanos
+        );
+    }
+
     @Override
     public String toString() {
         return String.format("Step %d: +%d infected; +%d recovered; | Susceptible=%d; Total Infected=%d; Total Recovered=%d| Step Time: %.3f ms",
@@ -0,0 +1,257 @@
+package sir.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+// Flow publisher where every subscriber gets its own bounded buffer and overflow policy.
+// Apart from subscribers with OverflowPolicy.BLOCK, submit() never blocks, so a slow subscriber loses or coalesces items
+// instead of stalling the producer.
+// Items are delivered to each subscriber serially on a pool owned by the publisher.
+public class BoundedPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final String THREAD_NAME = "stats-publisher";
+
+    private final List<BufferedSubscription<T>> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+    private volatile boolean closed = false;
+
+    public BoundedPublisher() {
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        subscribe(subscriber, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST, null);
+    }
+
+    // The coalescer merges (buffered, offered) into one item and is only needed for OverflowPolicy.COALESCE
+    public void subscribe(Flow.Subscriber<? super T> subscriber, int capacity, OverflowPolicy policy, BinaryOperator<T> coalescer) {
+        Objects.requireNonNull(subscriber);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (policy == OverflowPolicy.COALESCE && coalescer == null) {
+            throw new IllegalArgumentException("COALESCE requires a coalescer");
+        }
+        BufferedSubscription<T> subscription = new BufferedSubscription<>(subscriber, capacity, policy, coalescer, executor);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+        }
+    }
+
+    // Offers the item to every subscriber; waits only for full BLOCK subscribers
+    public void submit(T item) {
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        for (BufferedSubscription<T> subscription : subscriptions) {
+            subscription.offer(item);
+        }
+    }
+
+    // Number of items that were dropped or coalesced because the subscriber's buffer was full
+    public long getDroppedCount(Flow.Subscriber<?> subscriber) {
+        return subscriptions.stream()
+                .filter(subscription -> subscription.subscriber == subscriber)
+                .mapToLong(BufferedSubscription::droppedCount)
+                .sum();
+    }
+
+    // Completes all subscribers once their buffered items are delivered
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        subscriptions.forEach(BufferedSubscription::complete);
+    }
+
+    // Waits until every subscriber was completed or cancelled, then releases the delivery threads
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (BufferedSubscription<T> subscription : subscriptions) {
+            if (!subscription.done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        executor.shutdown();
+        return true;
+    }
+
+    private static final class BufferedSubscription<T> implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final BinaryOperator<T> coalescer;
+        private final ExecutorService executor;
+        private final ArrayDeque<T> buffer;
+        // Counts pending drain requests so that only one delivery loop runs at a time
+        private final AtomicInteger wip = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private long demand;
+        private long dropped;
+        private boolean completed;
+        private boolean cancelled;
+        private boolean terminated;
+
+        BufferedSubscription(Flow.Subscriber<? super T> subscriber, int capacity, OverflowPolicy policy,
+                             BinaryOperator<T> coalescer, ExecutorService executor) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.coalescer = coalescer;
+            this.executor = executor;
+            this.buffer = new ArrayDeque<>(Math.min(capacity, DEFAULT_CAPACITY));
+        }
+
+        void offer(T item) {
+            synchronized (this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                if (policy == OverflowPolicy.BLOCK && !awaitSpace()) {
+                    dropped++;
+                    return;
+                }
+                if (buffer.size() < capacity) {
+                    buffer.addLast(item);
+                } else {
+                    dropped++;
+                    switch (policy) {
+                        case DROP_NEWEST, BLOCK -> { }
+                        case DROP_OLDEST -> {
+                            buffer.pollFirst();
+                            buffer.addLast(item);
+                        }
+                        case COALESCE -> buffer.addLast(coalescer.apply(buffer.pollLast(), item));
+                    }
+                }
+            }
+            scheduleDrain();
+        }
+
+        // Waits, holding no lock while waiting, until the buffer has room; false if cancelled or interrupted meanwhile
+        private boolean awaitSpace() {
+            while (buffer.size() >= capacity && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !cancelled;
+        }
+
+        void complete() {
+            synchronized (this) {
+                completed = true;
+            }
+            scheduleDrain();
+        }
+
+        synchronized long droppedCount() {
+            return dropped;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (this) {
+                    cancelled = true;
+                    buffer.clear();
+                    notifyAll();
+                }
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                done.countDown();
+                return;
+            }
+            synchronized (this) {
+                demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                notifyAll();
+            }
+            done.countDown();
+        }
+
+        private void scheduleDrain() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        // Delivers buffered items up to the current demand, then completion once the buffer is empty
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (true) {
+                    T item;
+                    boolean signalComplete = false;
+                    synchronized (this) {
+                        if (cancelled || terminated) {
+                            break;
+                        }
+                        if (demand > 0 && !buffer.isEmpty()) {
+                            item = buffer.pollFirst();
+                            demand--;
+                            if (policy == OverflowPolicy.BLOCK) {
+                                notifyAll();
+                            }
+                        } else if (completed && buffer.isEmpty()) {
+                            item = null;
+                            terminated = true;
+                            signalComplete = true;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (signalComplete) {
+                        try {
+                            subscriber.onComplete();
+                        } finally {
+                            done.countDown();
+                        }
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(item);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                        break;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
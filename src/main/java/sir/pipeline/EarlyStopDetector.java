@@ -0,0 +1,31 @@
+package sir.pipeline;
+
+import sir.model.StepStats;
+
+import java.util.function.Predicate;
+
+// Raises a flag once a step matches the stop condition; the runner polls the flag between steps.
+// The detector runs asynchronously, so the simulation may run a few steps past the matching one.
+public class EarlyStopDetector extends StepStatsSubscriber {
+    private final Predicate<StepStats> condition;
+    private volatile StepStats triggeredBy;
+
+    public EarlyStopDetector(Predicate<StepStats> condition) {
+        this.condition = condition;
+    }
+
+    @Override
+    protected void onStats(StepStats stats) {
+        if (triggeredBy == null && condition.test(stats)) {
+            triggeredBy = stats;
+        }
+    }
+
+    public boolean isTriggered() {
+        return triggeredBy != null;
+    }
+
+    public StepStats getTriggeredBy() {
+        return triggeredBy;
+    }
+}
@@ -0,0 +1,39 @@
+package sir.pipeline;
+
+import sir.grid.SimulationLogger;
+import sir.model.StepStats;
+
+import java.io.IOException;
+
+// Writes every step to the CSV log and closes the log when the stream completes
+public class LoggingSubscriber extends StepStatsSubscriber {
+    private final SimulationLogger logger;
+
+    public LoggingSubscriber(SimulationLogger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    protected void onStats(StepStats stats) {
+        logger.log(stats);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        super.onError(throwable);
+        close();
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    private void close() {
+        try {
+            logger.close();
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package sir.pipeline;
+
+// What a subscriber's buffer does when the publisher offers an item and the buffer is full
+public enum OverflowPolicy {
+    // Discard the offered item
+    DROP_NEWEST,
+    // Discard the oldest buffered item to make room
+    DROP_OLDEST,
+    // Merge the offered item into the newest buffered item
+    COALESCE,
+    // Make the publisher wait until the subscriber has taken an item, so nothing is lost
+    BLOCK
+}
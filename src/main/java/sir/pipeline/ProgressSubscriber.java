@@ -0,0 +1,25 @@
+package sir.pipeline;
+
+import sir.model.StepStats;
+
+// Prints the latest step at most once per reporting interval
+public class ProgressSubscriber extends StepStatsSubscriber {
+    private final String solverName;
+    private final long intervalNanos;
+    private long lastReport = System.nanoTime();
+
+    public ProgressSubscriber(String solverName, long intervalNanos) {
+        this.solverName = solverName;
+        this.intervalNanos = intervalNanos;
+    }
+
+    @Override
+    protected void onStats(StepStats stats) {
+        long now = System.nanoTime();
+        if ((now - lastReport) > intervalNanos) {
+            System.out.printf("[%s progress] Tick %d, S: %d, I: %d, R: %d%n",
+                    solverName, stats.tick(), stats.totalSusceptible(), stats.totalInfected(), stats.totalRecovered());
+            lastReport = now;
+        }
+    }
+}
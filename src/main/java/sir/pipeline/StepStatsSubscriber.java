@@ -0,0 +1,30 @@
+package sir.pipeline;
+
+import sir.model.StepStats;
+
+import java.util.concurrent.Flow;
+
+// Base for subscribers that take every StepStats the publisher delivers
+public abstract class StepStatsSubscriber implements Flow.Subscriber<StepStats> {
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(StepStats stats) {
+        onStats(stats);
+    }
+
+    protected abstract void onStats(StepStats stats);
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println(getClass().getSimpleName() + " failed: " + throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
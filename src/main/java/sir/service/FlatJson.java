@@ -0,0 +1,133 @@
+package sir.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Minimal reader and writer for flat JSON objects (string, number, boolean and null values, no nesting)
+final class FlatJson {
+
+    private FlatJson() { }
+
+    // Parses an object into its raw values; strings are unescaped, other values are kept as written
+    static Map<String, String> parse(String json) {
+        Map<String, String> values = new LinkedHashMap<>();
+        Parser parser = new Parser(json);
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                values.put(key, parser.value());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return values;
+    }
+
+    static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class Parser {
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos);
+            }
+        }
+
+        void end() {
+            skipWhitespace();
+            if (pos != json.length()) {
+                throw new IllegalArgumentException("Unexpected content at position " + pos);
+            }
+        }
+
+        String value() {
+            skipWhitespace();
+            if (pos < json.length() && json.charAt(pos) == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < json.length() && ",}".indexOf(json.charAt(pos)) < 0 && !Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("Missing value at position " + pos);
+            }
+            return json.substring(start, pos);
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    if (pos >= json.length()) break;
+                    char escaped = json.charAt(pos++);
+                    switch (escaped) {
+                        case 'n' -> sb.append('\n');
+                        case 'r' -> sb.append('\r');
+                        case 't' -> sb.append('\t');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            if (pos + 4 > json.length()) {
+                                throw new IllegalArgumentException("Truncated unicode escape at position " + pos);
+                            }
+                            sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            pos += 4;
+                        }
+                        default -> sb.append(escaped);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+    }
+}
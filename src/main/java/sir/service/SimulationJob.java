@@ -0,0 +1,134 @@
+package sir.service;
+
+import sir.model.Configuration;
+import sir.model.StepStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Job queued on the simulation service; collects its per-tick stats so clients can stream them while it runs.
+// Only the latest ticks are kept (MAX_RUNNING_STATS while running, MAX_FINISHED_STATS once done), so long jobs and the
+// finished jobs the service retains have bounded memory; clients that fall further behind skip the dropped ticks.
+final class SimulationJob implements Comparable<SimulationJob> {
+    private static final int MAX_RUNNING_STATS = 1 << 16;
+    private static final int MAX_FINISHED_STATS = 1 << 12;
+
+    enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    // Stats from index nextIndex - stats.size() up to nextIndex; the next call continues from nextIndex
+    record Batch(List<StepStats> stats, int nextIndex) { }
+
+    final long id;
+    final int priority;
+    final SolverKind solverKind;
+    final Configuration configuration;
+    final int maxTicks;
+    private final List<StepStats> stats = new ArrayList<>();
+    // Index of stats.get(0) among all ticks of the job
+    private int firstIndex;
+    private Status status = Status.QUEUED;
+    private String solverName;
+    private String error;
+
+    SimulationJob(long id, int priority, SolverKind solverKind, Configuration configuration, int maxTicks) {
+        this.id = id;
+        this.priority = priority;
+        this.solverKind = solverKind;
+        this.configuration = configuration;
+        this.maxTicks = maxTicks;
+    }
+
+    // Higher priority first, then in order of submission
+    @Override
+    public int compareTo(SimulationJob other) {
+        if (priority != other.priority) {
+            return Integer.compare(other.priority, priority);
+        }
+        return Long.compare(id, other.id);
+    }
+
+    synchronized void start(String solverName) {
+        this.solverName = solverName;
+        this.status = Status.RUNNING;
+        notifyAll();
+    }
+
+    synchronized void append(StepStats step) {
+        stats.add(step);
+        // Drop the older half at once, so trimming stays amortized O(1) per tick
+        if (stats.size() > MAX_RUNNING_STATS) {
+            trim(MAX_RUNNING_STATS / 2);
+        }
+        notifyAll();
+    }
+
+    synchronized void complete() {
+        status = Status.COMPLETED;
+        trim(MAX_FINISHED_STATS);
+        notifyAll();
+    }
+
+    synchronized void fail(String message) {
+        status = Status.FAILED;
+        error = message;
+        trim(MAX_FINISHED_STATS);
+        notifyAll();
+    }
+
+    // Keeps only the latest retained stats
+    private void trim(int retained) {
+        int excess = stats.size() - retained;
+        if (excess > 0) {
+            stats.subList(0, excess).clear();
+            firstIndex += excess;
+        }
+    }
+
+    private int tickCount() {
+        return firstIndex + stats.size();
+    }
+
+    synchronized boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    // Waits until there are stats past fromIndex or the job is done, and returns the new ones still retained
+    synchronized Batch awaitStats(int fromIndex, long timeoutMillis) throws InterruptedException {
+        if (tickCount() <= fromIndex && !isDone()) {
+            wait(timeoutMillis);
+        }
+        int from = Math.min(Math.max(fromIndex, firstIndex), tickCount());
+        return new Batch(new ArrayList<>(stats.subList(from - firstIndex, stats.size())), tickCount());
+    }
+
+    synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"id\":").append(id)
+                .append(",\"status\":").append(FlatJson.quote(status.name()))
+                .append(",\"solver\":").append(FlatJson.quote(solverKind.name()))
+                .append(",\"priority\":").append(priority)
+                .append(",\"ticks\":").append(tickCount())
+                .append(",\"firstRetainedTick\":").append(firstIndex);
+        if (solverName != null) {
+            sb.append(",\"solverName\":").append(FlatJson.quote(solverName));
+        }
+        if (!stats.isEmpty()) {
+            StepStats last = stats.get(stats.size() - 1);
+            sb.append(",\"totalSusceptible\":").append(last.totalSusceptible())
+                    .append(",\"totalInfected\":").append(last.totalInfected())
+                    .append(",\"totalRecovered\":").append(last.totalRecovered());
+        }
+        if (error != null) {
+            sb.append(",\"error\":").append(FlatJson.quote(error));
+        }
+        return sb.append('}').toString();
+    }
+
+    static String toJson(StepStats step) {
+        return String.format(Locale.US,
+                "{\"tick\":%d,\"newlyInfected\":%d,\"newlyRecovered\":%d,\"totalSusceptible\":%d,\"totalInfected\":%d,\"totalRecovered\":%d,\"stepTimeNanos\":%d}",
+                step.tick(), step.newlyInfected(), step.newlyRecovered(),
+                step.totalSusceptible(), step.totalInfected(), step.totalRecovered(), step.stepTimeNanos());
+    }
+}
@@ -0,0 +1,256 @@
+package sir.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import sir.grid.GridSupplier;
+import sir.model.Configuration;
+import sir.model.StepStats;
+import sir.solver.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long-running simulation service. Jobs are submitted over a local HTTP/JSON API, wait in a priority queue and run
+// on a warm JVM that keeps its solver thread pool, grid templates and idle solvers between jobs (see SolverCache).
+//
+//   POST /jobs              {"solver":"FORK_JOIN","width":1000,"height":1000,"initialInfected":5,
+//                            "infectionProbability":0.1,"recoveryProbability":0.05,"seed":1,"priority":0}
+//   GET  /jobs/{id}         job status
+//   GET  /jobs/{id}/stats   per-tick stats as newline-delimited JSON, streamed while the job runs
+public class SimulationServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAX_RETAINED_JOBS = 1000;
+    private static final long STREAM_POLL_MILLIS = 1000;
+
+    private final HttpServer server;
+    private final PriorityBlockingQueue<SimulationJob> queue = new PriorityBlockingQueue<>();
+    private final Map<Long, SimulationJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final SolverCache solverCache = new SolverCache();
+    private final ForkJoinPool solverPool;
+    private final ExecutorService jobRunners;
+    private final int jobSlots;
+    private final int threads;
+
+    public SimulationServer(int port, int jobSlots, int threads) throws IOException {
+        this.jobSlots = jobSlots;
+        this.threads = threads;
+        this.solverPool = new ForkJoinPool(threads);
+        this.jobRunners = Executors.newFixedThreadPool(jobSlots);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/jobs", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        SimulationServer simulationServer = new SimulationServer(port, 1, Runtime.getRuntime().availableProcessors());
+        simulationServer.start();
+        System.out.printf("Simulation service listening on http://localhost:%d/jobs%n", port);
+    }
+
+    public void start() {
+        for (int slot = 0; slot < jobSlots; slot++) {
+            jobRunners.execute(this::runJobs);
+        }
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        jobRunners.shutdownNow();
+        solverCache.close();
+        solverPool.shutdown();
+    }
+
+    // Takes jobs from the queue until the service stops
+    private void runJobs() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                runJob(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                // A failure while cleaning up a job must not cost the service this job slot
+                System.err.println("Job runner recovered from " + t);
+            }
+        }
+    }
+
+    private void runJob(SimulationJob job) {
+        Configuration config = job.configuration;
+        SolverCache.SolverKey key = SolverCache.SolverKey.of(job.solverKind, config);
+        SIRSolver solver = null;
+        try {
+            GridSupplier template = solverCache.template(config);
+            solver = solverCache.acquire(key);
+            if (solver == null) {
+                solver = createSolver(job.solverKind, config, template);
+            } else {
+                solver.reset(template.view(), config.seed());
+            }
+            job.start(solver.getName());
+            int tick = 0;
+            while (!solver.isFinished() && tick < job.maxTicks) {
+                job.append(solver.step(tick++));
+            }
+            job.complete();
+            // Only a solver that finished cleanly is reused; after a failure its state is unknown
+            solverCache.release(key, solver);
+            solver = null;
+        } catch (Throwable t) {
+            // Errors such as OutOfMemoryError on a large grid fail the job too, instead of leaving it RUNNING
+            job.fail(t.toString());
+        } finally {
+            if (solver != null) {
+                solver.shutdown();
+            }
+        }
+    }
+
+    private SIRSolver createSolver(SolverKind kind, Configuration config, GridSupplier template) {
+        int width = config.gridWidth();
+        int height = config.gridHeight();
+        double inf = config.infectionProbability();
+        double rec = config.recoveryProbability();
+        Long seed = config.seed();
+        return switch (kind) {
+            case FORK_JOIN -> new ForkJoinGridSIRSolver(template.copyStates(), width, height, inf, rec, solverPool, seed);
+            case TIMING_WHEEL -> new TimingWheelGridSIRSolver(template.copyStates(), width, height, inf, rec, seed);
+            case NEXT_REACTION -> new NextReactionSIRSolver(template.copyStates(), width, height, inf, rec, seed);
+            case HYBRID -> new HybridGridSIRSolver(template.copyStates(), width, height, inf, rec, solverPool, seed);
+            case SIMPLE_SEQUENTIAL -> new SimpleSequentialGridSIRSolver(template.copyNodes(), width, height, inf, rec, seed);
+            case SIMPLE_PARALLEL -> new SimpleParallelGridSIRSolver(template.copyNodes(), width, height, inf, rec, threads, seed);
+            case COMPLETABLE_FUTURE -> new CompletableFutureSIRSolver(template.copyNodes(), width, height, inf, rec, threads, seed);
+        };
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && method.equals("POST")) {
+                submit(exchange);
+            } else if (path.length >= 3 && method.equals("GET")) {
+                SimulationJob job = findJob(path[2]);
+                if (job == null) {
+                    respond(exchange, 404, "{\"error\":\"No such job\"}");
+                } else if (path.length == 3) {
+                    respond(exchange, 200, job.toJson());
+                } else if (path.length == 4 && path[3].equals("stats")) {
+                    streamStats(exchange, job);
+                } else {
+                    respond(exchange, 404, "{\"error\":\"Unknown resource\"}");
+                }
+            } else {
+                respond(exchange, 405, "{\"error\":\"Unsupported request\"}");
+            }
+        }
+    }
+
+    private SimulationJob findJob(String id) {
+        try {
+            return jobs.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        SimulationJob job;
+        try {
+            Map<String, String> body = FlatJson.parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String seed = body.getOrDefault("seed", "null");
+            Configuration configuration = new Configuration(
+                    Integer.parseInt(required(body, "width")),
+                    Integer.parseInt(required(body, "height")),
+                    Integer.parseInt(required(body, "initialInfected")),
+                    Double.parseDouble(required(body, "infectionProbability")),
+                    Double.parseDouble(required(body, "recoveryProbability")),
+                    seed.equals("null") ? null : Long.parseLong(seed)
+            );
+            if (configuration.gridWidth() <= 0 || configuration.gridHeight() <= 0) {
+                throw new IllegalArgumentException("Grid dimensions must be positive");
+            }
+            job = new SimulationJob(
+                    nextId.getAndIncrement(),
+                    Integer.parseInt(body.getOrDefault("priority", "0")),
+                    SolverKind.parse(body.getOrDefault("solver", SolverKind.FORK_JOIN.name())),
+                    configuration,
+                    Integer.parseInt(body.getOrDefault("maxTicks", Integer.toString(Integer.MAX_VALUE))));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\":" + FlatJson.quote(String.valueOf(e.getMessage())) + "}");
+            return;
+        }
+        evictFinishedJobs();
+        jobs.put(job.id, job);
+        queue.add(job);
+        respond(exchange, 202, job.toJson());
+    }
+
+    private static String required(Map<String, String> body, String key) {
+        String value = body.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + key);
+        }
+        return value;
+    }
+
+    // Forgets the oldest finished jobs once too many are retained
+    private void evictFinishedJobs() {
+        if (jobs.size() < MAX_RETAINED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(SimulationJob::isDone)
+                .map(job -> job.id)
+                .sorted()
+                .limit(jobs.size() - MAX_RETAINED_JOBS + 1)
+                .toList()
+                .forEach(jobs::remove);
+    }
+
+    // Streams the stats as they are produced until the job is done
+    private void streamStats(HttpExchange exchange, SimulationJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int sent = 0;
+        try {
+            while (true) {
+                boolean done = job.isDone();
+                SimulationJob.Batch batch = job.awaitStats(sent, STREAM_POLL_MILLIS);
+                StringBuilder lines = new StringBuilder();
+                for (StepStats step : batch.stats()) {
+                    lines.append(SimulationJob.toJson(step)).append('\n');
+                }
+                out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sent = batch.nextIndex();
+                if (done && batch.stats().isEmpty()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
@@ -0,0 +1,77 @@
+package sir.service;
+
+import sir.grid.GridSupplier;
+import sir.model.Configuration;
+import sir.solver.SIRSolver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps grid templates and idle solvers alive between jobs. A job with the same solver kind, grid size and
+// probabilities as an earlier one resets that job's solver (SIRSolver.reset) instead of building a new one, so it skips
+// the state copy, the Node objects of the node-based solvers and the executors of the ones that own threads.
+final class SolverCache {
+    private static final int MAX_TEMPLATES = 4;
+    private static final int MAX_IDLE_SOLVERS = 4;
+
+    private record TemplateKey(int width, int height, int initialInfected, long seed) { }
+
+    // The seed and the initial cells are not part of the key, reset replaces both
+    record SolverKey(SolverKind kind, int width, int height, double infectionProbability, double recoveryProbability) {
+        static SolverKey of(SolverKind kind, Configuration config) {
+            return new SolverKey(kind, config.gridWidth(), config.gridHeight(),
+                    config.infectionProbability(), config.recoveryProbability());
+        }
+    }
+
+    private final Map<TemplateKey, GridSupplier> templates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TemplateKey, GridSupplier> eldest) {
+            return size() > MAX_TEMPLATES;
+        }
+    };
+    // Least recently released first; the eldest is shut down once too many are idle
+    private final Map<SolverKey, SIRSolver> idle = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SolverKey, SIRSolver> eldest) {
+            if (size() <= MAX_IDLE_SOLVERS) {
+                return false;
+            }
+            eldest.getValue().shutdown();
+            return true;
+        }
+    };
+
+    // Unseeded configurations get a fresh template every time, since their initial cells must differ
+    synchronized GridSupplier template(Configuration config) {
+        if (config.seed() == null) {
+            return new GridSupplier(config.gridWidth(), config.gridHeight(), config.initialInfectedCount(), null);
+        }
+        TemplateKey key = new TemplateKey(config.gridWidth(), config.gridHeight(), config.initialInfectedCount(), config.seed());
+        return templates.computeIfAbsent(key, k -> new GridSupplier(k.width(), k.height(), k.initialInfected(), k.seed()));
+    }
+
+    // An idle solver for the key, now owned by the caller, or null when a new one has to be built
+    synchronized SIRSolver acquire(SolverKey key) {
+        return idle.remove(key);
+    }
+
+    // Keeps a solver that finished its job cleanly for the next job with the same key
+    synchronized void release(SolverKey key, SIRSolver solver) {
+        SIRSolver displaced = idle.put(key, solver);
+        if (displaced != null) {
+            displaced.shutdown();
+        }
+    }
+
+    void close() {
+        List<SIRSolver> solvers;
+        synchronized (this) {
+            solvers = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        solvers.forEach(SIRSolver::shutdown);
+    }
+}
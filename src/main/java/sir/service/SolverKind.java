@@ -0,0 +1,17 @@
+package sir.service;
+
+// Solvers that the simulation service can run
+public enum SolverKind {
+    FORK_JOIN,
+    SIMPLE_SEQUENTIAL,
+    SIMPLE_PARALLEL,
+    COMPLETABLE_FUTURE,
+    TIMING_WHEEL,
+    NEXT_REACTION,
+    HYBRID;
+
+    // Accepts the enum name in any case, with '-' in place of '_'
+    static SolverKind parse(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,97 @@
+package sir.solver;
+
+import sir.grid.CellLayout;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+// End phase of an epidemic in which no infected cell has a susceptible neighbor. From then on nobody can be infected
+// any more and every infected cell only recovers with the recovery probability per step, so a grid sweep per step is
+// wasted work. Once the phase is detected, every remaining infected cell gets its recovery step sampled up front from
+// the geometric distribution (see RecoveryWheel), the same distribution the per-step draws produce, and each further
+// step only applies the recoveries that are due.
+// Detection needs a scan of the grid, so it is only tried after steps without new infections, and after a failed
+// attempt the next one waits twice as many such steps (up to MAX_CHECK_DELAY).
+final class AbsorbingTail {
+    private static final int MAX_CHECK_DELAY = 64;
+
+    private final RecoveryWheel wheel;
+    private boolean active;
+    private int step;
+    private int checkDelay = 1;
+    private int quietSteps;
+    private int s, i, r;
+
+    AbsorbingTail(double recoveryProb) {
+        this.wheel = new RecoveryWheel(recoveryProb);
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    boolean isFinished() {
+        return i == 0;
+    }
+
+    // Called after every regular step; true when the grid is worth scanning for the tail
+    boolean shouldCheck(int newlyInfected, int totalInfected) {
+        if (newlyInfected > 0 || totalInfected == 0) {
+            quietSteps = 0;
+            return false;
+        }
+        return ++quietSteps >= checkDelay;
+    }
+
+    // Starts the tail if no infected cell of the grid has a susceptible neighbor; states are stored in the layout
+    boolean tryStart(byte[] states, CellLayout layout, SplittableRandom random) {
+        quietSteps = 0;
+        int[] neighbors = new int[4];
+        for (int cell = 0; cell < states.length; cell++) {
+            if (states[cell] != OptNode.INFECTED) continue;
+            layout.neighbors(cell, neighbors);
+            for (int neighbor : neighbors) {
+                if (neighbor >= 0 && states[neighbor] == OptNode.SUSCEPTIBLE) {
+                    checkDelay = Math.min(MAX_CHECK_DELAY, checkDelay * 2);
+                    return false;
+                }
+            }
+        }
+
+        s = i = r = 0;
+        step = 0;
+        wheel.clear();
+        for (int cell = 0; cell < states.length; cell++) {
+            switch (states[cell]) {
+                case OptNode.SUSCEPTIBLE -> s++;
+                case OptNode.INFECTED -> {
+                    i++;
+                    // Infected before the first step of the tail
+                    wheel.schedule(cell, -1, random);
+                }
+                case OptNode.RECOVERED -> r++;
+            }
+        }
+        active = true;
+        return true;
+    }
+
+    // One step of the tail: passes every cell recovering now to the action, which must mark it recovered
+    StepStats step(int tick, IntConsumer recover) {
+        long start = System.nanoTime();
+        int newlyRecovered = wheel.drain(step++, recover);
+        i -= newlyRecovered;
+        r += newlyRecovered;
+        return new StepStats(tick, 0, newlyRecovered, s, i, r, System.nanoTime() - start);
+    }
+
+    // Back to regular steps, e.g. after the solver was reset
+    void clear() {
+        active = false;
+        wheel.clear();
+        checkDelay = 1;
+        quietSteps = 0;
+    }
+}
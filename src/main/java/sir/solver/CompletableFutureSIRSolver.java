@@ -1,5 +1,6 @@
 package sir.solver;
 
+import sir.grid.GridView;
 import sir.model.Node;
 import sir.model.State;
 import sir.model.StepStats;
@@ -19,8 +20,9 @@ public class CompletableFutureSIRSolver implements SIRSolver {
     private final double infectionProb;
     private final double recoveryProb;
     private final Node[][] grid;
+    private final GridView view;
     private final int threads;
-    private final SplittableRandom baseRandom;
+    private SplittableRandom baseRandom;
     private static final int[] dx = {0, 0, 1, -1};
     private static final int[] dy = {1, -1, 0, 0};
     public CompletableFutureSIRSolver(List<Node> nodes, int gridWidth, int gridHeight,
@@ -38,6 +40,7 @@ public class CompletableFutureSIRSolver implements SIRSolver {
         for (Node node : nodes) {
             grid[node.y][node.x] = node;
         }
+        this.view = GridView.of(grid);
     }
 
     @Override
@@ -125,6 +128,18 @@ public class CompletableFutureSIRSolver implements SIRSolver {
         return nodes.stream().noneMatch(n -> n.state == State.INFECTED);
     }
 
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        ResetSupport.copyInto(initial, nodes);
+        baseRandom = ResetSupport.random(seed);
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
     @Override
     public List<Node> getCurrentState() {
         return nodes;
@@ -1,28 +1,36 @@
 package sir.solver;
 
+import sir.grid.CellLayout;
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
 import sir.model.Node;
 import sir.model.OptNode;
 import sir.model.StepResult;
 import sir.model.StepStats;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.List;
 import java.util.SplittableRandom;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 public class ForkJoinGridSIRSolver implements SIRSolver {
-    private final OptNode[] nodes;
-    private final int gridWidth;
-    private final int gridHeight;
+    // Cell states using the OptNode state constants, stored in the order of the layout
+    private final byte[] states;
+    private final CellLayout layout;
     private final double infectionProb;
     private final double recoveryProb;
     private final ForkJoinPool pool;
-    private final OptNode[] grid;
-    private final SplittableRandom baseRandom;
+    private final boolean ownsPool;
+    private SplittableRandom baseRandom;
+    private final GridView view;
     private final int threshold = 2000;
+    private TransitionHistory history;
+    private final AbsorbingTail tail;
 
-    private static final int[] dx = {0, 0, 1, -1};
-    private static final int[] dy = {1, -1, 0, 0};
+    // Used to atomically flip a susceptible cell to infected when two tasks race for it
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
 
     public ForkJoinGridSIRSolver(List<Node> inputNodes,
                                  int gridWidth,
@@ -31,40 +39,102 @@ public class ForkJoinGridSIRSolver implements SIRSolver {
                                  double recoveryProb,
                                  int threads,
                                  Long seed) {
-        this.gridWidth = gridWidth;
-        this.gridHeight = gridHeight;
+        this(toStates(inputNodes, gridWidth, gridHeight), gridWidth, gridHeight, infectionProb, recoveryProb, threads, seed);
+    }
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public ForkJoinGridSIRSolver(byte[] states,
+                                 int gridWidth,
+                                 int gridHeight,
+                                 double infectionProb,
+                                 double recoveryProb,
+                                 int threads,
+                                 Long seed) {
+        this(states, CellLayout.rowMajor(gridWidth, gridHeight), infectionProb, recoveryProb, new ForkJoinPool(threads), true, seed);
+    }
+
+    // Takes ownership of states already stored in the given layout, e.g. from GridSupplier.copyStates(layout)
+    public ForkJoinGridSIRSolver(byte[] states,
+                                 CellLayout layout,
+                                 double infectionProb,
+                                 double recoveryProb,
+                                 int threads,
+                                 Long seed) {
+        this(states, layout, infectionProb, recoveryProb, new ForkJoinPool(threads), true, seed);
+    }
+
+    // Runs on a pool shared with other solvers; shutdown() leaves the pool running
+    public ForkJoinGridSIRSolver(byte[] states,
+                                 int gridWidth,
+                                 int gridHeight,
+                                 double infectionProb,
+                                 double recoveryProb,
+                                 ForkJoinPool pool,
+                                 Long seed) {
+        this(states, CellLayout.rowMajor(gridWidth, gridHeight), infectionProb, recoveryProb, pool, false, seed);
+    }
+
+    private ForkJoinGridSIRSolver(byte[] states,
+                                  CellLayout layout,
+                                  double infectionProb,
+                                  double recoveryProb,
+                                  ForkJoinPool pool,
+                                  boolean ownsPool,
+                                  Long seed) {
+        if (states.length != layout.size()) {
+            throw new IllegalArgumentException("Expected " + layout.size() + " states, got " + states.length);
+        }
+        this.states = states;
+        this.layout = layout;
         this.infectionProb = infectionProb;
         this.recoveryProb = recoveryProb;
-        this.pool = new ForkJoinPool(threads);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
         this.baseRandom = (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
+        this.view = GridView.of(states, layout);
+        this.tail = new AbsorbingTail(recoveryProb);
+    }
 
-        this.nodes = new OptNode[inputNodes.size()];
-        this.grid = new OptNode[gridWidth * gridHeight];
-
-        for (int i = 0; i < inputNodes.size(); i++) {
-            Node n = inputNodes.get(i);
-            // Converts Node to optimized version OptNode
-            OptNode opt = new OptNode(n.x, n.y, (byte) n.state.ordinal());
-            nodes[i] = opt;
-            grid[n.y * gridWidth + n.x] = opt;
+    // Converts the nodes to the primitive row-major representation
+    private static byte[] toStates(List<Node> inputNodes, int gridWidth, int gridHeight) {
+        byte[] states = new byte[gridWidth * gridHeight];
+        for (Node n : inputNodes) {
+            states[n.y * gridWidth + n.x] = (byte) n.state.ordinal();
         }
+        return states;
     }
 
     @Override
     public StepStats step(int tick) {
+        if (tail.isActive()) {
+            StepStats stats = tail.step(tick, cell -> {
+                states[cell] = OptNode.RECOVERED;
+                if (history != null) history.recovered(rowMajor(cell), tick);
+            });
+            if (history != null) history.endStep(tick);
+            return stats;
+        }
+
         long start = System.nanoTime();
-        StepResult result = pool.invoke(new StepTask(0, nodes.length, baseRandom.split()));
+        StepResult result = pool.invoke(new StepTask(tick, 0, states.length, baseRandom.split()));
+        if (history != null) history.endStep(tick);
+        // The scan for the tail counts towards the step that triggered it
+        if (tail.shouldCheck(result.infected(), result.i())) {
+            tail.tryStart(states, layout, baseRandom);
+        }
 
         long elapsed = System.nanoTime() - start;
         return new StepStats(tick, result.infected(), result.recovered(), result.s(), result.i(), result.r(), elapsed);
     }
 
     private class StepTask extends RecursiveTask<StepResult> {
+        private final int tick;
         private final int start;
         private final int end;
         private final SplittableRandom rand;
 
-        StepTask(int start, int end, SplittableRandom rand) {
+        StepTask(int tick, int start, int end, SplittableRandom rand) {
+            this.tick = tick;
             this.start = start;
             this.end = end;
             this.rand = rand;
@@ -75,40 +145,34 @@ public class ForkJoinGridSIRSolver implements SIRSolver {
             // If the task is small enough, process it directly
             if (end - start <= threshold) {
                 int inf = 0, rec = 0, s = 0, i = 0, r = 0;
-                // Process each node in the range
+                int[] neighbors = new int[4];
+                // Process each cell in the range
                 for (int idx = start; idx < end; idx++) {
-                    OptNode node = nodes[idx];
-                    // Check the state of the node
-                    if (node.state == OptNode.INFECTED) {
-                        // Go over the neighbors
-                        for (int d = 0; d < 4; d++) {
-                            int nx = node.x + dx[d];
-                            int ny = node.y + dy[d];
-                            // Check bounds
-                            if (nx >= 0 && nx < gridWidth && ny >= 0 && ny < gridHeight) {
-                                OptNode neighbor = grid[ny * gridWidth + nx];
-                                // Check if the neighbor is susceptible and if it gets infected
-                                if (neighbor.state == OptNode.SUSCEPTIBLE && rand.nextDouble() < infectionProb) {
-                                    // Use synchronized block to ensure thread safety
-                                    synchronized (neighbor) {
-                                        if (neighbor.state == OptNode.SUSCEPTIBLE) {
-                                            neighbor.state = OptNode.INFECTED;
-                                            inf++;
-                                        }
-                                    }
+                    // Check the state of the cell
+                    if (states[idx] == OptNode.INFECTED) {
+                        // Go over the neighbors, -1 marks a neighbor outside the grid
+                        layout.neighbors(idx, neighbors);
+                        for (int neighbor : neighbors) {
+                            // Check if the neighbor is susceptible and if it gets infected
+                            if (neighbor >= 0 && states[neighbor] == OptNode.SUSCEPTIBLE && rand.nextDouble() < infectionProb) {
+                                // Compare-and-set ensures only one task counts the infection
+                                if (STATES.compareAndSet(states, neighbor, OptNode.SUSCEPTIBLE, OptNode.INFECTED)) {
+                                    inf++;
+                                    if (history != null) history.infected(rowMajor(neighbor), tick);
                                 }
                             }
                         }
-                        // Check if the infected node recovers
+                        // Check if the infected cell recovers
                         if (rand.nextDouble() < recoveryProb) {
-                            node.state = OptNode.RECOVERED;
+                            states[idx] = OptNode.RECOVERED;
                             rec++;
+                            if (history != null) history.recovered(rowMajor(idx), tick);
                         }
                     }
                 }
                 // Count the states after processing
                 for (int idx = start; idx < end; idx++) {
-                    switch (nodes[idx].state) {
+                    switch (states[idx]) {
                         case OptNode.SUSCEPTIBLE -> s++;
                         case OptNode.INFECTED -> i++;
                         case OptNode.RECOVERED -> r++;
@@ -117,10 +181,11 @@ public class ForkJoinGridSIRSolver implements SIRSolver {
 
                 return new StepResult(inf, rec, s, i, r);
             } else {
-                // If the task is too large, split it into smaller tasks
-                int mid = (start + end) / 2;
-                StepTask left = new StepTask(start, mid, rand.split());
-                StepTask right = new StepTask(mid, end, rand.split());
+                // If the task is too large, split it into smaller tasks; curve layouts split at tile boundaries,
+                // so every task covers a compact block of the grid
+                int mid = layout.splitPoint(start, end);
+                StepTask left = new StepTask(tick, start, mid, rand.split());
+                StepTask right = new StepTask(tick, mid, end, rand.split());
 
                 // Fork the left task and compute the right task
                 left.fork();
@@ -132,29 +197,64 @@ public class ForkJoinGridSIRSolver implements SIRSolver {
         }
     }
 
+    // The history is row-major whatever the layout of the states
+    private int rowMajor(int index) {
+        return layout.y(index) * layout.width() + layout.x(index);
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, layout.width(), layout.height());
+        if (layout.order() == CellLayout.Order.ROW_MAJOR) {
+            initial.exportStates(states);
+        } else {
+            byte[] row = new byte[layout.width()];
+            for (int y = 0; y < layout.height(); y++) {
+                initial.exportRow(y, row, 0);
+                for (int x = 0; x < row.length; x++) {
+                    states[layout.index(x, y)] = row[x];
+                }
+            }
+        }
+        baseRandom = ResetSupport.random(seed);
+        history = null;
+        tail.clear();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        history = TransitionHistory.of(view);
+        return history;
+    }
+
     @Override
     public boolean isFinished() {
-        for (OptNode node : nodes) {
-            if (node.state == OptNode.INFECTED) return false;
+        if (tail.isActive()) {
+            return tail.isFinished();
+        }
+        for (byte state : states) {
+            if (state == OptNode.INFECTED) return false;
         }
         return true;
     }
 
     @Override
-    public List<Node> getCurrentState() {
-        return java.util.Arrays.stream(nodes)
-                .map(n -> new Node(n.x, n.y, n.state))
-                .toList();
+    public GridView view() {
+        return view;
     }
 
     @Override
     public void shutdown() {
-        pool.shutdown();
+        if (ownsPool) {
+            pool.shutdown();
+        }
     }
 
     @Override
     public String getName() {
-        return "ForkJoin Grid SIR Solver";
+        return layout.order() == CellLayout.Order.ROW_MAJOR
+                ? "ForkJoin Grid SIR Solver"
+                : "ForkJoin Grid SIR Solver (" + layout.order() + " layout)";
     }
 
 }
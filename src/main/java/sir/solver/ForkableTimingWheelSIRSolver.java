@@ -0,0 +1,96 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.grid.PagedStates;
+import sir.grid.TransitionHistory;
+import sir.model.StepStats;
+
+// Variant of TimingWheelGridSIRSolver for what-if studies: the states are kept in copy-on-write pages (PagedStates), so
+// fork() branches a running simulation without copying the grid and hundreds of branches can share one mid-epidemic
+// state. Paged access costs a few percent per step, which is why the benchmarked TimingWheelGridSIRSolver keeps a
+// plain array; both run the same TimingWheelEngine.
+public class ForkableTimingWheelSIRSolver implements SIRSolver {
+    private final PagedStates states;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final double infectionProb;
+    private final double recoveryProb;
+    private final TimingWheelEngine<TimingWheelEngine.PageStates> engine;
+    private final GridView view;
+
+    // Reads the initial states page by page from the view, e.g. GridSupplier.view(), without a full copy of the grid
+    public ForkableTimingWheelSIRSolver(GridView initial, double infectionProb, double recoveryProb, Long seed) {
+        this.states = new PagedStates(initial);
+        this.gridWidth = initial.width();
+        this.gridHeight = initial.height();
+        this.infectionProb = infectionProb;
+        this.recoveryProb = recoveryProb;
+        this.engine = new TimingWheelEngine<>(new TimingWheelEngine.PageStates(states), gridWidth, gridHeight,
+                infectionProb, recoveryProb, ResetSupport.random(seed));
+        this.view = GridView.of(states, gridWidth, gridHeight);
+    }
+
+    // Branch of the parent at its current step, sharing its pages; see fork(...)
+    private ForkableTimingWheelSIRSolver(ForkableTimingWheelSIRSolver parent, double infectionProb, double recoveryProb, Long seed) {
+        this.states = parent.states.fork();
+        this.gridWidth = parent.gridWidth;
+        this.gridHeight = parent.gridHeight;
+        this.infectionProb = infectionProb;
+        this.recoveryProb = recoveryProb;
+        this.engine = new TimingWheelEngine<>(new TimingWheelEngine.PageStates(states), parent.engine,
+                infectionProb, recoveryProb, ResetSupport.random(seed));
+        this.view = GridView.of(states, gridWidth, gridHeight);
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        return engine.step(tick);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return engine.isFinished();
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        states.copyFrom(initial);
+        engine.reset(ResetSupport.random(seed));
+    }
+
+    // Branches the simulation at the current step in O(pages + infected cells): the page table is copied and every
+    // infected cell gets a new recovery step, but no grid state is, so the branch only pays memory for the pages it
+    // changes. Neither the branch nor this solver records into an existing transition history of the other
+    @Override
+    public ForkableTimingWheelSIRSolver fork(Long seed) {
+        return fork(infectionProb, recoveryProb, seed);
+    }
+
+    // Branch that continues with other probabilities, e.g. to compare interventions from one mid-epidemic state
+    public ForkableTimingWheelSIRSolver fork(double infectionProb, double recoveryProb, Long seed) {
+        return new ForkableTimingWheelSIRSolver(this, infectionProb, recoveryProb, seed);
+    }
+
+    // Pages of the grid not shared with any fork
+    public int privatePageCount() {
+        return states.privatePageCount();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        TransitionHistory history = TransitionHistory.of(view);
+        engine.record(history);
+        return history;
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    @Override
+    public String getName() {
+        return "Forkable Timing Wheel SIR Solver";
+    }
+}
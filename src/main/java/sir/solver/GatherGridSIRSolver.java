@@ -0,0 +1,158 @@
+package sir.solver;
+
+import sir.grid.CellLayout;
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Parallel solver formulated as a gather instead of a push: every susceptible cell counts its infected neighbors in
+// the previous state and decides its own infection with one draw (see GatherKernel). Each cell is written only by the
+// strip of rows that owns it, into the second of two buffers, so unlike ForkJoinGridSIRSolver no two tasks ever race
+// for a cell and no compare-and-set is needed. A cell draws at most one random number per tick, against up to four
+// for an infected cell in the push kernel.
+public class GatherGridSIRSolver implements SIRSolver {
+    public static final String NAME = "Gather Grid SIR Solver";
+
+    private final byte[][] buffers;
+    private final GridView[] views;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final GatherStrips strips;
+    private int current = 0;
+    private int infected;
+    private final AbsorbingTail tail;
+    private final CellLayout layout;
+    // Samples the recovery steps of the tail, apart from the strips' streams
+    private SplittableRandom tailRandom;
+    private TransitionHistory history;
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public GatherGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, int threads, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, new ForkJoinPool(threads), true, seed);
+    }
+
+    // Runs on a pool shared with other solvers; shutdown() leaves the pool running
+    public GatherGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, ForkJoinPool pool, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, pool, false, seed);
+    }
+
+    private GatherGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb,
+                                ForkJoinPool pool, boolean ownsPool, Long seed) {
+        if (states.length != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length);
+        }
+        this.buffers = new byte[][]{states, new byte[states.length]};
+        this.views = new GridView[]{GridView.of(buffers[0], gridWidth, gridHeight), GridView.of(buffers[1], gridWidth, gridHeight)};
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+
+        SplittableRandom baseRandom = ResetSupport.random(seed);
+        this.strips = new GatherStrips(gridHeight, pool.getParallelism(), infectionProb, recoveryProb, baseRandom);
+        this.tail = new AbsorbingTail(recoveryProb);
+        this.layout = CellLayout.rowMajor(gridWidth, gridHeight);
+        this.tailRandom = baseRandom.split();
+
+        countInfected();
+    }
+
+    private void countInfected() {
+        infected = 0;
+        for (byte state : buffers[current]) {
+            if (state == OptNode.INFECTED) infected++;
+        }
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        if (tail.isActive()) {
+            byte[] states = buffers[current];
+            StepStats stats = tail.step(tick, cell -> {
+                states[cell] = OptNode.RECOVERED;
+                if (history != null) history.recovered(cell, tick);
+            });
+            infected = stats.totalInfected();
+            if (history != null) history.endStep(tick);
+            return stats;
+        }
+
+        long start = System.nanoTime();
+        byte[] source = buffers[current];
+        byte[] target = buffers[current ^ 1];
+        pool.invoke(ForkJoinTask.adapt(() -> strips.forEachStrip(strip -> stepStrip(strip, source, target, tick))));
+        current ^= 1;
+
+        StepStats counts = strips.stats(tick, 0L);
+        infected = counts.totalInfected();
+        if (history != null) history.endStep(tick);
+        // The scan for the tail counts towards the step that triggered it
+        if (tail.shouldCheck(counts.newlyInfected(), counts.totalInfected())) {
+            tail.tryStart(buffers[current], layout, tailRandom);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, counts.newlyInfected(), counts.newlyRecovered(),
+                counts.totalSusceptible(), counts.totalInfected(), counts.totalRecovered(), elapsed);
+    }
+
+    // Computes the next state of the strip's rows; reads neighbors in any row, writes only its own cells
+    private void stepStrip(int strip, byte[] source, byte[] target, int tick) {
+        GatherKernel kernel = strips.kernels[strip];
+        int[] counts = strips.counts[strip];
+        Arrays.fill(counts, 0);
+        int lastY = gridHeight - 1;
+        for (int y = strips.startRows[strip]; y < strips.startRows[strip + 1]; y++) {
+            kernel.stepRow(source, target, y * gridWidth, gridWidth, y > 0, y < lastY, counts);
+            if (history != null) history.recordChanges(source, target, y * gridWidth, gridWidth, tick);
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return infected == 0;
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        current = 0;
+        initial.exportStates(buffers[current]);
+        SplittableRandom baseRandom = ResetSupport.random(seed);
+        strips.reseed(baseRandom);
+        tailRandom = baseRandom.split();
+        tail.clear();
+        history = null;
+        countInfected();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        history = TransitionHistory.of(view());
+        return history;
+    }
+
+    @Override
+    public GridView view() {
+        return views[current];
+    }
+
+    @Override
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
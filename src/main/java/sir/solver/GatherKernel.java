@@ -0,0 +1,95 @@
+package sir.solver;
+
+import sir.model.OptNode;
+
+import java.util.SplittableRandom;
+
+// Gather formulation of one step of a grid row: every cell reads the previous state of itself and its four neighbors
+// from source and writes only its own next state into target. A susceptible cell with k infected neighbors is infected
+// with probability 1 - (1 - p)^k, the same odds as one transmission attempt per infected neighbor, from a single draw
+// against a precomputed threshold. Only exposed susceptible cells and infected cells consume a draw; the draws come
+// from a buffer refilled in batches by RandomBatch.
+// One instance per worker or strip: it owns the random stream and is not thread-safe.
+public final class GatherKernel {
+    // Layout of the counts array filled by stepRow, the same order StepStats uses
+    public static final int NEWLY_INFECTED = 0;
+    public static final int NEWLY_RECOVERED = 1;
+    public static final int TOTAL_SUSCEPTIBLE = 2;
+    public static final int TOTAL_INFECTED = 3;
+    public static final int TOTAL_RECOVERED = 4;
+    public static final int COUNTS = 5;
+
+    private static final int BATCH_SIZE = 1024;
+
+    // Threshold for a susceptible cell with k infected neighbors, indexed by k
+    private final long[] infectionThresholds = new long[5];
+    private final long recoveryThreshold;
+    private final RandomBatch random;
+    private final int[] draws = new int[BATCH_SIZE];
+    private int position = BATCH_SIZE;
+
+    public GatherKernel(double infectionProb, double recoveryProb, RandomBatch random) {
+        for (int k = 0; k < infectionThresholds.length; k++) {
+            infectionThresholds[k] = RandomBatch.threshold(1.0 - Math.pow(1.0 - infectionProb, k));
+        }
+        this.recoveryThreshold = RandomBatch.threshold(recoveryProb);
+        this.random = random;
+    }
+
+    // Restarts the kernel's random stream, dropping the draws left in the buffer
+    public void reseed(SplittableRandom seedSource) {
+        random.reseed(seedSource);
+        position = BATCH_SIZE;
+    }
+
+    // Computes the row of width cells starting at rowStart; hasUp and hasDown tell whether the rows above and below
+    // exist in source. Adds the newly infected, newly recovered and S/I/R counts of the row into counts (see COUNTS).
+    public void stepRow(byte[] source, byte[] target, int rowStart, int width, boolean hasUp, boolean hasDown, int[] counts) {
+        // The cursor lives in a local for the row, the field is only updated once at the end
+        int[] draws = this.draws;
+        int position = this.position;
+        int inf = 0, rec = 0, s = 0, i = 0, r = 0;
+        int end = rowStart + width;
+        int last = end - 1;
+        for (int idx = rowStart; idx < end; idx++) {
+            byte next = source[idx];
+            if (next == OptNode.SUSCEPTIBLE) {
+                int infectedNeighbors = 0;
+                if (idx > rowStart && source[idx - 1] == OptNode.INFECTED) infectedNeighbors++;
+                if (idx < last && source[idx + 1] == OptNode.INFECTED) infectedNeighbors++;
+                if (hasUp && source[idx - width] == OptNode.INFECTED) infectedNeighbors++;
+                if (hasDown && source[idx + width] == OptNode.INFECTED) infectedNeighbors++;
+                if (infectedNeighbors > 0) {
+                    if (position == BATCH_SIZE) position = refill();
+                    if (RandomBatch.passes(draws[position++], infectionThresholds[infectedNeighbors])) {
+                        next = OptNode.INFECTED;
+                        inf++;
+                    }
+                }
+            } else if (next == OptNode.INFECTED) {
+                if (position == BATCH_SIZE) position = refill();
+                if (RandomBatch.passes(draws[position++], recoveryThreshold)) {
+                    next = OptNode.RECOVERED;
+                    rec++;
+                }
+            }
+            target[idx] = next;
+            switch (next) {
+                case OptNode.SUSCEPTIBLE -> s++;
+                case OptNode.INFECTED -> i++;
+                case OptNode.RECOVERED -> r++;
+            }
+        }
+        this.position = position;
+        counts[NEWLY_INFECTED] += inf;
+        counts[NEWLY_RECOVERED] += rec;
+        counts[TOTAL_SUSCEPTIBLE] += s;
+        counts[TOTAL_INFECTED] += i;
+        counts[TOTAL_RECOVERED] += r;
+    }
+
+    private int refill() {
+        random.fill(draws, 0, BATCH_SIZE);
+        return 0;
+    }
+}
@@ -0,0 +1,68 @@
+package sir.solver;
+
+import sir.model.StepStats;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+// Row strips of a double-buffered grid, each with its own GatherKernel and counts; shared by GatherGridSIRSolver and
+// PipelinedGridSIRSolver. Every strip draws from its own stream split off one base generator, so a seeded run does not
+// depend on the scheduling, only on the number of strips.
+final class GatherStrips {
+    // Strips per worker thread, enough to balance uneven infection fronts
+    private static final int STRIPS_PER_THREAD = 4;
+
+    // First row of every strip, plus the grid height at the end
+    final int[] startRows;
+    final GatherKernel[] kernels;
+    // Counts of every strip, laid out as in GatherKernel
+    final int[][] counts;
+
+    GatherStrips(int gridHeight, int parallelism, double infectionProb, double recoveryProb, SplittableRandom baseRandom) {
+        int strips = Math.max(1, Math.min(gridHeight, parallelism * STRIPS_PER_THREAD));
+        this.startRows = new int[strips + 1];
+        for (int s = 0; s <= strips; s++) {
+            startRows[s] = (int) ((long) s * gridHeight / strips);
+        }
+        this.kernels = new GatherKernel[strips];
+        for (int s = 0; s < strips; s++) {
+            kernels[s] = new GatherKernel(infectionProb, recoveryProb, new RandomBatch(baseRandom.split()));
+        }
+        this.counts = new int[strips][GatherKernel.COUNTS];
+    }
+
+    int count() {
+        return kernels.length;
+    }
+
+    // Gives every kernel a new stream split off the base generator, in the order of construction
+    void reseed(SplittableRandom baseRandom) {
+        for (GatherKernel kernel : kernels) {
+            kernel.reseed(baseRandom.split());
+        }
+    }
+
+    // Runs stepStrip for every strip in parallel; must be called from a task of the pool
+    void forEachStrip(IntConsumer stepStrip) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[kernels.length];
+        for (int s = 0; s < tasks.length; s++) {
+            int strip = s;
+            tasks[s] = ForkJoinTask.adapt(() -> stepStrip.accept(strip));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    // Sum of the counts of all strips after a step
+    StepStats stats(int tick, long elapsedNanos) {
+        int inf = 0, rec = 0, s = 0, i = 0, r = 0;
+        for (int[] strip : counts) {
+            inf += strip[GatherKernel.NEWLY_INFECTED];
+            rec += strip[GatherKernel.NEWLY_RECOVERED];
+            s += strip[GatherKernel.TOTAL_SUSCEPTIBLE];
+            i += strip[GatherKernel.TOTAL_INFECTED];
+            r += strip[GatherKernel.TOTAL_RECOVERED];
+        }
+        return new StepStats(tick, inf, rec, s, i, r, elapsedNanos);
+    }
+}
@@ -0,0 +1,390 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Solver that picks the cheapest engine for every tick. While few cells are infected it visits only the infected
+// cells from a list, sequentially or split across the pool; once the infection covers a large part of the grid it
+// sweeps the whole grid in parallel row bands and drops the list, which is rebuilt by one parallel scan when the
+// infection dies down again. The choice is made from a cost model per engine (fixed overhead plus cost per visited
+// cell) that starts from rough priors and is corrected by the measured step times.
+// Random draws are derived from the seed, the tick and the cell instead of a stream, so a seeded run is the same
+// whichever engine handled each tick and however the work was split.
+public class HybridGridSIRSolver implements SIRSolver {
+    public static final String NAME = "Hybrid Grid SIR Solver";
+
+    public enum Engine { SEQUENTIAL_SPARSE, PARALLEL_SPARSE, PARALLEL_DENSE }
+
+    // Marks cells infected during the current step, so they do not spread or recover before the next one
+    private static final byte JUST_INFECTED = 3;
+    private static final int TASKS_PER_THREAD = 4;
+    // Fewer infected cells than this per task are not worth a task of their own
+    private static final int MIN_CELLS_PER_TASK = 2048;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Prior costs in nanoseconds per visited cell on one thread, replaced by measurements as the engines run
+    private static final double SPARSE_NANOS_PER_CELL = 25.0;
+    private static final double DENSE_NANOS_PER_CELL = 1.0;
+    private static final double SCAN_NANOS_PER_CELL = 0.5;
+    // Weight of the newest measurement in the running cost estimates
+    private static final double LEARNING_RATE = 0.2;
+    // An engine with fewer runs than EXPLORE_RUNS is tried whenever its prediction is within EXPLORE_FACTOR of the
+    // best one. Its first run is JIT-cold and does not count as a measurement.
+    private static final double EXPLORE_FACTOR = 1.5;
+    private static final int EXPLORE_RUNS = 3;
+    private static final int CALIBRATION_ROUNDS = 5;
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final byte[] states;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final long infectionThreshold;
+    private final long recoveryThreshold;
+    private long seed;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final GridView view;
+    private final int[] bandStartRows;
+    private final Chunk[] chunks;
+    private TransitionHistory history;
+
+    // Cells infected at the start of the step; only up to date while activeValid
+    private IntList active = new IntList();
+    private IntList nextActive = new IntList();
+    private boolean activeValid;
+
+    // Cost model: predicted nanos = overhead + nanosPerCell * visited cells
+    private final double parallelOverheadNanos;
+    private final double[] nanosPerCell = new double[Engine.values().length];
+    private double scanNanosPerCell;
+    // Ticks handled by each engine
+    private final int[] engineTicks = new int[Engine.values().length];
+
+    private int s, i, r;
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public HybridGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, int threads, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, new ForkJoinPool(threads), true, seed);
+    }
+
+    // Runs on a pool shared with other solvers; shutdown() leaves the pool running
+    public HybridGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, ForkJoinPool pool, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, pool, false, seed);
+    }
+
+    private HybridGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb,
+                                ForkJoinPool pool, boolean ownsPool, Long seed) {
+        if (states.length != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length);
+        }
+        this.states = states;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.infectionThreshold = RandomBatch.threshold(infectionProb);
+        this.recoveryThreshold = RandomBatch.threshold(recoveryProb);
+        this.seed = (seed == null) ? new SplittableRandom().nextLong() : seed;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.view = GridView.of(states, gridWidth, gridHeight);
+
+        int threads = pool.getParallelism();
+        int bands = Math.max(1, Math.min(gridHeight, threads * TASKS_PER_THREAD));
+        this.bandStartRows = new int[bands + 1];
+        for (int b = 0; b <= bands; b++) {
+            bandStartRows[b] = (int) ((long) b * gridHeight / bands);
+        }
+        this.chunks = new Chunk[bands];
+        for (int c = 0; c < bands; c++) {
+            chunks[c] = new Chunk();
+        }
+
+        nanosPerCell[Engine.SEQUENTIAL_SPARSE.ordinal()] = SPARSE_NANOS_PER_CELL;
+        nanosPerCell[Engine.PARALLEL_SPARSE.ordinal()] = SPARSE_NANOS_PER_CELL / threads;
+        nanosPerCell[Engine.PARALLEL_DENSE.ordinal()] = DENSE_NANOS_PER_CELL / threads;
+        scanNanosPerCell = SCAN_NANOS_PER_CELL / threads;
+        this.parallelOverheadNanos = calibrateOverhead();
+        start();
+    }
+
+    // Counts the states and lists the infected cells of the grid before the first step
+    private void start() {
+        s = i = r = 0;
+        active.clear();
+        for (int cell = 0; cell < states.length; cell++) {
+            switch (states[cell]) {
+                case OptNode.SUSCEPTIBLE -> s++;
+                case OptNode.INFECTED -> {
+                    i++;
+                    active.add(cell);
+                }
+                case OptNode.RECOVERED -> r++;
+            }
+        }
+        activeValid = true;
+    }
+
+    // Time of handing a round of empty tasks to the pool, the fixed cost of every parallel step
+    private double calibrateOverhead() {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            long start = System.nanoTime();
+            invokeAll(chunks.length, c -> { });
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        long start = System.nanoTime();
+        Engine engine = chooseEngine();
+        if (engine != Engine.PARALLEL_DENSE && !activeValid) {
+            rebuildActive();
+        }
+
+        for (Chunk chunk : chunks) {
+            chunk.clear();
+        }
+        int visited = engine == Engine.PARALLEL_DENSE ? states.length : active.size();
+        long engineStart = System.nanoTime();
+        switch (engine) {
+            case SEQUENTIAL_SPARSE -> sweepActive(tick, 0, active.size(), chunks[0], false);
+            case PARALLEL_SPARSE -> {
+                int tasks = Math.max(1, Math.min(chunks.length, active.size() / MIN_CELLS_PER_TASK));
+                int size = active.size();
+                invokeAll(tasks, c -> sweepActive(tick, (int) ((long) c * size / tasks), (int) ((long) (c + 1) * size / tasks), chunks[c], true));
+            }
+            case PARALLEL_DENSE -> invokeAll(chunks.length, c -> sweepBand(tick, c));
+        }
+        learn(engine, visited, System.nanoTime() - engineStart);
+
+        // Newly infected cells become regular infected cells; the sparse engines also carry the survivors over
+        int newlyInfected = 0, newlyRecovered = 0;
+        nextActive.clear();
+        for (Chunk chunk : chunks) {
+            newlyRecovered += chunk.recovered;
+            newlyInfected += chunk.infections.size();
+            for (int k = 0; k < chunk.infections.size(); k++) {
+                int cell = chunk.infections.get(k);
+                states[cell] = OptNode.INFECTED;
+                if (history != null) history.infected(cell, tick);
+            }
+            if (engine != Engine.PARALLEL_DENSE) {
+                append(nextActive, chunk.survivors);
+                append(nextActive, chunk.infections);
+            }
+        }
+        if (engine != Engine.PARALLEL_DENSE) {
+            IntList swap = active;
+            active = nextActive;
+            nextActive = swap;
+        }
+        activeValid = engine != Engine.PARALLEL_DENSE;
+
+        s -= newlyInfected;
+        i += newlyInfected - newlyRecovered;
+        r += newlyRecovered;
+        if (history != null) history.endStep(tick);
+
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, newlyInfected, newlyRecovered, s, i, r, elapsed);
+    }
+
+    // The engine with the lowest predicted cost; the sparse engines pay for rebuilding the list after dense steps
+    private Engine chooseEngine() {
+        double rebuild = activeValid ? 0 : parallelOverheadNanos + scanNanosPerCell * states.length;
+        double[] predicted = new double[Engine.values().length];
+        predicted[Engine.SEQUENTIAL_SPARSE.ordinal()] = rebuild + nanosPerCell[Engine.SEQUENTIAL_SPARSE.ordinal()] * i;
+        predicted[Engine.PARALLEL_SPARSE.ordinal()] = rebuild + parallelOverheadNanos + nanosPerCell[Engine.PARALLEL_SPARSE.ordinal()] * i;
+        predicted[Engine.PARALLEL_DENSE.ordinal()] = parallelOverheadNanos + nanosPerCell[Engine.PARALLEL_DENSE.ordinal()] * states.length;
+
+        Engine best = Engine.SEQUENTIAL_SPARSE;
+        for (Engine engine : Engine.values()) {
+            if (predicted[engine.ordinal()] < predicted[best.ordinal()]) best = engine;
+        }
+        for (Engine engine : Engine.values()) {
+            if (engineTicks[engine.ordinal()] < EXPLORE_RUNS && predicted[engine.ordinal()] <= EXPLORE_FACTOR * predicted[best.ordinal()]) {
+                return engine;
+            }
+        }
+        return best;
+    }
+
+    private void learn(Engine engine, int visited, long nanos) {
+        int e = engine.ordinal();
+        int runs = ++engineTicks[e];
+        if (visited == 0 || runs == 1) return;
+        double overhead = engine == Engine.SEQUENTIAL_SPARSE ? 0 : parallelOverheadNanos;
+        double perCell = Math.max(0, nanos - overhead) / visited;
+        nanosPerCell[e] = runs == 2 ? perCell : nanosPerCell[e] + LEARNING_RATE * (perCell - nanosPerCell[e]);
+    }
+
+    // Collects the infected cells after dense steps, band by band in parallel
+    private void rebuildActive() {
+        long start = System.nanoTime();
+        for (Chunk chunk : chunks) {
+            chunk.clear();
+        }
+        invokeAll(chunks.length, c -> {
+            IntList found = chunks[c].survivors;
+            int end = bandStartRows[c + 1] * gridWidth;
+            for (int cell = bandStartRows[c] * gridWidth; cell < end; cell++) {
+                if (states[cell] == OptNode.INFECTED) found.add(cell);
+            }
+        });
+        active.clear();
+        for (Chunk chunk : chunks) {
+            append(active, chunk.survivors);
+        }
+        activeValid = true;
+        scanNanosPerCell += LEARNING_RATE * ((double) Math.max(0, System.nanoTime() - start - (long) parallelOverheadNanos) / states.length - scanNanosPerCell);
+    }
+
+    private void sweepActive(int tick, int from, int to, Chunk chunk, boolean concurrent) {
+        for (int k = from; k < to; k++) {
+            int cell = active.get(k);
+            if (!spread(cell, tick, chunk, concurrent)) {
+                chunk.survivors.add(cell);
+            }
+        }
+    }
+
+    private void sweepBand(int tick, int band) {
+        Chunk chunk = chunks[band];
+        int end = bandStartRows[band + 1] * gridWidth;
+        for (int cell = bandStartRows[band] * gridWidth; cell < end; cell++) {
+            if (states[cell] == OptNode.INFECTED) {
+                spread(cell, tick, chunk, true);
+            }
+        }
+    }
+
+    // Infection attempts on the four neighbors of an infected cell and its recovery draw; returns whether it recovered
+    private boolean spread(int cell, int tick, Chunk chunk, boolean concurrent) {
+        long key = mix(seed ^ (((long) tick << 32) | (cell & 0xFFFFFFFFL)));
+        long vertical = mix(key);
+        long horizontal = mix(key + GOLDEN_GAMMA);
+        int x = cell % gridWidth;
+        int y = cell / gridWidth;
+        if (y + 1 < gridHeight) infect(cell + gridWidth, (int) vertical, chunk, concurrent);
+        if (y > 0) infect(cell - gridWidth, (int) (vertical >>> 32), chunk, concurrent);
+        if (x + 1 < gridWidth) infect(cell + 1, (int) horizontal, chunk, concurrent);
+        if (x > 0) infect(cell - 1, (int) (horizontal >>> 32), chunk, concurrent);
+
+        if (RandomBatch.passes((int) mix(key + 2 * GOLDEN_GAMMA), recoveryThreshold)) {
+            states[cell] = OptNode.RECOVERED;
+            chunk.recovered++;
+            if (history != null) history.recovered(cell, tick);
+            return true;
+        }
+        return false;
+    }
+
+    private void infect(int neighbor, int draw, Chunk chunk, boolean concurrent) {
+        if (states[neighbor] != OptNode.SUSCEPTIBLE || !RandomBatch.passes(draw, infectionThreshold)) {
+            return;
+        }
+        // Two tasks may pass the draw for the same cell, compare-and-set lets only one of them count it
+        if (concurrent) {
+            if (STATES.compareAndSet(states, neighbor, OptNode.SUSCEPTIBLE, JUST_INFECTED)) {
+                chunk.infections.add(neighbor);
+            }
+        } else {
+            states[neighbor] = JUST_INFECTED;
+            chunk.infections.add(neighbor);
+        }
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void append(IntList target, IntList source) {
+        for (int k = 0; k < source.size(); k++) {
+            target.add(source.get(k));
+        }
+    }
+
+    private void invokeAll(int tasks, IntConsumer task) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask<?>[] all = new ForkJoinTask<?>[tasks];
+                for (int t = 0; t < tasks; t++) {
+                    int index = t;
+                    all[t] = ForkJoinTask.adapt(() -> task.accept(index));
+                }
+                invokeAll(all);
+            }
+        });
+    }
+
+    // Number of ticks each engine has handled so far
+    public int engineTicks(Engine engine) {
+        return engineTicks[engine.ordinal()];
+    }
+
+    // The learned costs are kept, they still describe this grid and machine
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        initial.exportStates(states);
+        this.seed = (seed == null) ? new SplittableRandom().nextLong() : seed;
+        history = null;
+        start();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        history = TransitionHistory.of(view);
+        return history;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return i == 0;
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    @Override
+    public void shutdown() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // Output of one task: cells it infected, infected cells it visited that stay infected and its recoveries
+    private static final class Chunk {
+        final IntList infections = new IntList();
+        final IntList survivors = new IntList();
+        int recovered;
+
+        void clear() {
+            infections.clear();
+            survivors.clear();
+            recovered = 0;
+        }
+    }
+}
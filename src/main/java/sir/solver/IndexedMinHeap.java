@@ -0,0 +1,118 @@
+package sir.solver;
+
+import java.util.Arrays;
+
+// Binary min-heap of cells keyed by event time, stored in primitive arrays.
+// Every cell is in the heap at most once and its position is tracked, so its key can be lowered in place.
+final class IndexedMinHeap {
+    private int[] heapCells;
+    private double[] heapTimes;
+    // Position of each cell in the heap or -1 when the cell has no pending event
+    private final int[] positions;
+    private int size;
+
+    IndexedMinHeap(int cellCount) {
+        this.heapCells = new int[16];
+        this.heapTimes = new double[16];
+        this.positions = new int[cellCount];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int peekCell() {
+        return heapCells[0];
+    }
+
+    double peekTime() {
+        return heapTimes[0];
+    }
+
+    // Inserts the cell, or moves its event earlier if it is already present with a later time
+    void offerEarlier(int cell, double time) {
+        int position = positions[cell];
+        if (position < 0) {
+            if (size == heapCells.length) {
+                heapCells = Arrays.copyOf(heapCells, size * 2);
+                heapTimes = Arrays.copyOf(heapTimes, size * 2);
+            }
+            heapCells[size] = cell;
+            heapTimes[size] = time;
+            positions[cell] = size;
+            siftUp(size++);
+        } else if (time < heapTimes[position]) {
+            heapTimes[position] = time;
+            siftUp(position);
+        }
+    }
+
+    int poll() {
+        int cell = heapCells[0];
+        positions[cell] = -1;
+        size--;
+        if (size > 0) {
+            heapCells[0] = heapCells[size];
+            heapTimes[0] = heapTimes[size];
+            positions[heapCells[0]] = 0;
+            siftDown(0);
+        }
+        return cell;
+    }
+
+    void clear() {
+        for (int k = 0; k < size; k++) {
+            positions[heapCells[k]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int cell = heapCells[position];
+        double time = heapTimes[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heapTimes[parent] <= time) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(cell, time, position);
+    }
+
+    private void siftDown(int position) {
+        int cell = heapCells[position];
+        double time = heapTimes[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heapTimes[child + 1] < heapTimes[child]) {
+                child++;
+            }
+            if (time <= heapTimes[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(cell, time, position);
+    }
+
+    private void move(int from, int to) {
+        heapCells[to] = heapCells[from];
+        heapTimes[to] = heapTimes[from];
+        positions[heapCells[to]] = to;
+    }
+
+    private void place(int cell, double time, int position) {
+        heapCells[position] = cell;
+        heapTimes[position] = time;
+        positions[cell] = position;
+    }
+}
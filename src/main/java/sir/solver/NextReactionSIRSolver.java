@@ -0,0 +1,155 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.SplittableRandom;
+
+// Continuous-time, event-driven solver based on the next-reaction method.
+// Per-step probabilities are turned into rates (rate = -ln(1 - p)), so one unit of time matches one step of the
+// grid solvers. Every cell has at most one pending event in an indexed heap: a susceptible cell holds its earliest
+// infection time and an infected cell its recovery time. Handling an event only touches the cell's neighborhood,
+// and events are binned into unit-time steps so the usual StepStats are still produced.
+public class NextReactionSIRSolver implements SIRSolver {
+    public static final String NAME = "Next Reaction SIR Solver";
+
+    private final byte[] states;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final double infectionRate;
+    private final double recoveryRate;
+    private SplittableRandom randomGenerator;
+    private final IndexedMinHeap events;
+    private final GridView view;
+    private TransitionHistory history;
+    private double binEnd = 0.0;
+    private int s, i, r;
+
+    private static final int[] dx = {0, 0, 1, -1};
+    private static final int[] dy = {1, -1, 0, 0};
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public NextReactionSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, Long seed) {
+        if (states.length != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length);
+        }
+        this.states = states;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.infectionRate = -Math.log1p(-infectionProb);
+        this.recoveryRate = -Math.log1p(-recoveryProb);
+        this.randomGenerator = (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
+        this.events = new IndexedMinHeap(states.length);
+        this.view = GridView.of(states, gridWidth, gridHeight);
+        start();
+    }
+
+    // Counts the states and schedules the events of the cells infected before the first step
+    private void start() {
+        s = i = r = 0;
+        binEnd = 0.0;
+        events.clear();
+        for (int cell = 0; cell < states.length; cell++) {
+            switch (states[cell]) {
+                case OptNode.SUSCEPTIBLE -> s++;
+                case OptNode.INFECTED -> i++;
+                case OptNode.RECOVERED -> r++;
+            }
+        }
+        for (int cell = 0; cell < states.length; cell++) {
+            if (states[cell] == OptNode.INFECTED) {
+                scheduleInfectedCell(cell, 0.0);
+            }
+        }
+    }
+
+    private double exponential(double rate) {
+        return -Math.log(1.0 - randomGenerator.nextDouble()) / rate;
+    }
+
+    // Schedules the recovery of a cell infected at the given time and the transmissions it makes before that
+    private void scheduleInfectedCell(int cell, double time) {
+        double recoveryTime = time + exponential(recoveryRate);
+        events.offerEarlier(cell, recoveryTime);
+
+        int x = cell % gridWidth;
+        int y = cell / gridWidth;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + dx[d];
+            int ny = y + dy[d];
+            if (nx >= 0 && nx < gridWidth && ny >= 0 && ny < gridHeight) {
+                int neighbor = ny * gridWidth + nx;
+                if (states[neighbor] == OptNode.SUSCEPTIBLE) {
+                    // A transmission only happens if it fires before the infected cell recovers
+                    double transmissionTime = time + exponential(infectionRate);
+                    if (transmissionTime < recoveryTime) {
+                        events.offerEarlier(neighbor, transmissionTime);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        long start = System.nanoTime();
+        binEnd += 1.0;
+
+        int newlyInfected = 0, newlyRecovered = 0;
+        // Process every event that falls into the current unit-time bin
+        while (!events.isEmpty() && events.peekTime() < binEnd) {
+            double time = events.peekTime();
+            int cell = events.poll();
+            if (states[cell] == OptNode.SUSCEPTIBLE) {
+                states[cell] = OptNode.INFECTED;
+                newlyInfected++;
+                scheduleInfectedCell(cell, time);
+                if (history != null) history.infected(cell, tick);
+            } else {
+                states[cell] = OptNode.RECOVERED;
+                newlyRecovered++;
+                if (history != null) history.recovered(cell, tick);
+            }
+        }
+
+        s -= newlyInfected;
+        i += newlyInfected - newlyRecovered;
+        r += newlyRecovered;
+        if (history != null) history.endStep(tick);
+
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, newlyInfected, newlyRecovered, s, i, r, elapsed);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return i == 0;
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        initial.exportStates(states);
+        randomGenerator = ResetSupport.random(seed);
+        history = null;
+        start();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        history = TransitionHistory.of(view);
+        return history;
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
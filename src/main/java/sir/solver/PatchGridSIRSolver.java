@@ -0,0 +1,450 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+// Multi-resolution solver for grids far larger than the infection front. The grid is split into square patches of
+// PATCH x PATCH cells and only the patches the front passes through are simulated cell by cell:
+//   SUSCEPTIBLE_BULK   every cell susceptible; nothing is stored and nothing is computed
+//   FINE               one state per cell, stepped like the other grid solvers
+//   RECOVERING_BULK    no susceptible cell left; only the infected and recovered counts are kept. Recoveries are drawn
+//                      as a binomial of the infected count and the patch infects the neighboring cells of fine patches
+//                      with its infected density as the chance that the cell next to them is infected (mean field)
+// A susceptible patch is refined once an infected cell sits on the edge it shares with a fine patch, or once a
+// neighboring bulk patch still has infected cells. A fine patch is coarsened as soon as it has no susceptible cell left,
+// and a refined patch that the infection never entered goes back to bulk. Every step visits only the patches with
+// infected cells, so the work follows the length of the front and the burned-out area behind it, never the whole grid.
+// Inside a recovering bulk patch the positions of the infected cells are not tracked; view() shows its first infected
+// count of cells (row by row) as infected and the rest as recovered.
+public class PatchGridSIRSolver implements SIRSolver {
+    public static final String NAME = "Patch Grid SIR Solver";
+
+    private static final int PATCH_SHIFT = 4;
+    private static final int PATCH = 1 << PATCH_SHIFT;
+    private static final int PATCH_MASK = PATCH - 1;
+    private static final int PATCH_CELLS = PATCH * PATCH;
+    // Marks cells infected during the current step, so they do not spread or recover before the next one
+    private static final byte JUST_INFECTED = 3;
+
+    private static final byte SUSCEPTIBLE_BULK = 0;
+    private static final byte FINE = 1;
+    private static final byte RECOVERING_BULK = 2;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int patchesX;
+    private final int patchesY;
+    private final double infectionProb;
+    private final double recoveryProb;
+    private final double logNoRecovery;
+    private SplittableRandom random;
+
+    private final byte[] kinds;
+    // States of the fine patches, PATCH_CELLS per patch row by row; cells past the grid edge stay unused
+    private final byte[][] cells;
+    private final int[] susceptible;
+    private final int[] infected;
+    private final int[] recovered;
+
+    // Patches with infected cells, the only ones a step visits
+    private IntList activeFine = new IntList();
+    private IntList nextActiveFine = new IntList();
+    private IntList recovering = new IntList();
+    private IntList nextRecovering = new IntList();
+    // Whether a patch is already in one of the next lists
+    private final boolean[] listed;
+    // Cells infected during the step, as patch and position in the patch
+    private final IntList newPatches = new IntList();
+    private final IntList newCells = new IntList();
+    // Patches refined during the step, classified at its end so the ones the infection did not enter go back to bulk
+    private final IntList refinedPatches = new IntList();
+
+    private final GridView view;
+    private int s, i, r;
+
+    // Reads the initial states; the array is not kept
+    public PatchGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, Long seed) {
+        this(gridWidth, gridHeight, infectionProb, recoveryProb, seed);
+        if (states.length != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length);
+        }
+        load(GridView.of(states, gridWidth, gridHeight));
+    }
+
+    // Starts from an all-susceptible grid with the given row-major cells infected, e.g. from
+    // GridSupplier.sampleInitialInfected, so grids too large to hold one byte per cell never have to be materialized
+    public PatchGridSIRSolver(int gridWidth, int gridHeight, int[] infectedCells, double infectionProb, double recoveryProb, Long seed) {
+        this(gridWidth, gridHeight, infectionProb, recoveryProb, seed);
+        clear();
+        for (int cell : infectedCells) {
+            setCell(cell % gridWidth, cell / gridWidth, OptNode.INFECTED);
+        }
+        finishLoad();
+    }
+
+    private PatchGridSIRSolver(int gridWidth, int gridHeight, double infectionProb, double recoveryProb, Long seed) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.patchesX = (gridWidth + PATCH - 1) >> PATCH_SHIFT;
+        this.patchesY = (gridHeight + PATCH - 1) >> PATCH_SHIFT;
+        this.infectionProb = infectionProb;
+        this.recoveryProb = recoveryProb;
+        this.logNoRecovery = Math.log1p(-recoveryProb);
+        this.random = ResetSupport.random(seed);
+
+        int patches = patchesX * patchesY;
+        this.kinds = new byte[patches];
+        this.cells = new byte[patches][];
+        this.susceptible = new int[patches];
+        this.infected = new int[patches];
+        this.recovered = new int[patches];
+        this.listed = new boolean[patches];
+        this.view = new PatchView();
+    }
+
+    private int patchWidth(int patch) {
+        return Math.min(PATCH, gridWidth - ((patch % patchesX) << PATCH_SHIFT));
+    }
+
+    private int patchHeight(int patch) {
+        return Math.min(PATCH, gridHeight - ((patch / patchesX) << PATCH_SHIFT));
+    }
+
+    private int area(int patch) {
+        return patchWidth(patch) * patchHeight(patch);
+    }
+
+    // Every patch susceptible bulk
+    private void clear() {
+        Arrays.fill(kinds, SUSCEPTIBLE_BULK);
+        Arrays.fill(cells, null);
+        Arrays.fill(infected, 0);
+        Arrays.fill(recovered, 0);
+        for (int patch = 0; patch < kinds.length; patch++) {
+            susceptible[patch] = area(patch);
+        }
+        activeFine.clear();
+        recovering.clear();
+        Arrays.fill(listed, false);
+    }
+
+    private void load(GridView initial) {
+        clear();
+        byte[] row = new byte[gridWidth];
+        for (int y = 0; y < gridHeight; y++) {
+            initial.exportRow(y, row, 0);
+            for (int x = 0; x < gridWidth; x++) {
+                if (row[x] != OptNode.SUSCEPTIBLE) {
+                    setCell(x, y, row[x]);
+                }
+            }
+        }
+        finishLoad();
+    }
+
+    // Sets a cell of a still susceptible grid while loading
+    private void setCell(int x, int y, byte state) {
+        int patch = (y >> PATCH_SHIFT) * patchesX + (x >> PATCH_SHIFT);
+        if (kinds[patch] != FINE) {
+            refine(patch);
+        }
+        int local = ((y & PATCH_MASK) << PATCH_SHIFT) | (x & PATCH_MASK);
+        if (cells[patch][local] != OptNode.SUSCEPTIBLE) return;
+        cells[patch][local] = state;
+        susceptible[patch]--;
+        if (state == OptNode.INFECTED) infected[patch]++;
+        else recovered[patch]++;
+    }
+
+    // Sorts the loaded patches into the lists and totals
+    private void finishLoad() {
+        refinedPatches.clear();
+        s = i = r = 0;
+        for (int patch = 0; patch < kinds.length; patch++) {
+            s += susceptible[patch];
+            i += infected[patch];
+            r += recovered[patch];
+            if (kinds[patch] == FINE) {
+                classify(patch, activeFine, recovering);
+            }
+        }
+        for (int k = 0; k < activeFine.size(); k++) listed[activeFine.get(k)] = false;
+        for (int k = 0; k < recovering.size(); k++) listed[recovering.get(k)] = false;
+    }
+
+    private void refine(int patch) {
+        cells[patch] = new byte[PATCH_CELLS];
+        kinds[patch] = FINE;
+        refinedPatches.add(patch);
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        long start = System.nanoTime();
+
+        // Refine the susceptible patches the infection can reach during this step
+        refinedPatches.clear();
+        for (int k = 0; k < activeFine.size(); k++) {
+            refineAroundFine(activeFine.get(k));
+        }
+        for (int k = 0; k < recovering.size(); k++) {
+            int patch = recovering.get(k);
+            forEachNeighborPatch(patch, neighbor -> {
+                if (kinds[neighbor] == SUSCEPTIBLE_BULK) refine(neighbor);
+            });
+        }
+
+        int newlyRecovered = 0;
+        newPatches.clear();
+        newCells.clear();
+        for (int k = 0; k < activeFine.size(); k++) {
+            newlyRecovered += stepFine(activeFine.get(k));
+        }
+        for (int k = 0; k < recovering.size(); k++) {
+            newlyRecovered += stepBulk(recovering.get(k));
+        }
+
+        // Newly infected cells become regular infected cells and wake their patches
+        int newlyInfected = newPatches.size();
+        nextActiveFine.clear();
+        nextRecovering.clear();
+        for (int k = 0; k < newlyInfected; k++) {
+            int patch = newPatches.get(k);
+            cells[patch][newCells.get(k)] = OptNode.INFECTED;
+            susceptible[patch]--;
+            infected[patch]++;
+        }
+        for (int k = 0; k < newlyInfected; k++) {
+            classify(newPatches.get(k), nextActiveFine, nextRecovering);
+        }
+        for (int k = 0; k < activeFine.size(); k++) {
+            classify(activeFine.get(k), nextActiveFine, nextRecovering);
+        }
+        for (int k = 0; k < recovering.size(); k++) {
+            classify(recovering.get(k), nextActiveFine, nextRecovering);
+        }
+        for (int k = 0; k < refinedPatches.size(); k++) {
+            classify(refinedPatches.get(k), nextActiveFine, nextRecovering);
+        }
+        for (int k = 0; k < nextActiveFine.size(); k++) listed[nextActiveFine.get(k)] = false;
+        for (int k = 0; k < nextRecovering.size(); k++) listed[nextRecovering.get(k)] = false;
+        IntList swap = activeFine;
+        activeFine = nextActiveFine;
+        nextActiveFine = swap;
+        swap = recovering;
+        recovering = nextRecovering;
+        nextRecovering = swap;
+
+        s -= newlyInfected;
+        i += newlyInfected - newlyRecovered;
+        r += newlyRecovered;
+
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, newlyInfected, newlyRecovered, s, i, r, elapsed);
+    }
+
+    // Coarsens the patch if it can be and adds it to the list it belongs in, at most once per step
+    private void classify(int patch, IntList fine, IntList bulk) {
+        if (listed[patch]) return;
+        if (kinds[patch] == FINE) {
+            if (susceptible[patch] == 0) {
+                cells[patch] = null;
+                kinds[patch] = RECOVERING_BULK;
+            } else if (infected[patch] == 0 && recovered[patch] == 0) {
+                cells[patch] = null;
+                kinds[patch] = SUSCEPTIBLE_BULK;
+            }
+        }
+        if (infected[patch] == 0 || kinds[patch] == SUSCEPTIBLE_BULK) return;
+        listed[patch] = true;
+        if (kinds[patch] == FINE) fine.add(patch);
+        else bulk.add(patch);
+    }
+
+    // Refines the susceptible neighbors that share an edge holding an infected cell with the fine patch
+    private void refineAroundFine(int patch) {
+        byte[] c = cells[patch];
+        int px = patch % patchesX;
+        int py = patch / patchesX;
+        int w = patchWidth(patch);
+        int h = patchHeight(patch);
+        if (py > 0 && kinds[patch - patchesX] == SUSCEPTIBLE_BULK && edgeInfected(c, 0, 1, w)) {
+            refine(patch - patchesX);
+        }
+        if (py + 1 < patchesY && kinds[patch + patchesX] == SUSCEPTIBLE_BULK && edgeInfected(c, (h - 1) * PATCH, 1, w)) {
+            refine(patch + patchesX);
+        }
+        if (px > 0 && kinds[patch - 1] == SUSCEPTIBLE_BULK && edgeInfected(c, 0, PATCH, h)) {
+            refine(patch - 1);
+        }
+        if (px + 1 < patchesX && kinds[patch + 1] == SUSCEPTIBLE_BULK && edgeInfected(c, w - 1, PATCH, h)) {
+            refine(patch + 1);
+        }
+    }
+
+    private static boolean edgeInfected(byte[] c, int first, int stride, int length) {
+        for (int k = 0, local = first; k < length; k++, local += stride) {
+            if (c[local] == OptNode.INFECTED) return true;
+        }
+        return false;
+    }
+
+    // Infection attempts and recovery draws of the infected cells of a fine patch; returns the recoveries
+    private int stepFine(int patch) {
+        byte[] c = cells[patch];
+        int gx0 = (patch % patchesX) << PATCH_SHIFT;
+        int gy0 = (patch / patchesX) << PATCH_SHIFT;
+        int w = patchWidth(patch);
+        int h = patchHeight(patch);
+        int recoveries = 0;
+        for (int ly = 0; ly < h; ly++) {
+            for (int lx = 0; lx < w; lx++) {
+                int local = (ly << PATCH_SHIFT) | lx;
+                if (c[local] != OptNode.INFECTED) continue;
+
+                if (ly > 0) infect(patch, local - PATCH);
+                else if (gy0 > 0) infect(patch - patchesX, local + (PATCH - 1) * PATCH);
+                if (ly + 1 < h) infect(patch, local + PATCH);
+                else if (gy0 + h < gridHeight) infect(patch + patchesX, lx);
+                if (lx > 0) infect(patch, local - 1);
+                else if (gx0 > 0) infect(patch - 1, local + PATCH - 1);
+                if (lx + 1 < w) infect(patch, local + 1);
+                else if (gx0 + w < gridWidth) infect(patch + 1, local - lx);
+
+                if (random.nextDouble() < recoveryProb) {
+                    c[local] = OptNode.RECOVERED;
+                    infected[patch]--;
+                    recovered[patch]++;
+                    recoveries++;
+                }
+            }
+        }
+        return recoveries;
+    }
+
+    // One transmission attempt on a cell; only fine patches still have susceptible cells next to the infection
+    private void infect(int patch, int local) {
+        if (kinds[patch] != FINE) return;
+        infectWith(patch, local, infectionProb);
+    }
+
+    private void infectWith(int patch, int local, double probability) {
+        byte[] c = cells[patch];
+        if (c[local] == OptNode.SUSCEPTIBLE && random.nextDouble() < probability) {
+            c[local] = JUST_INFECTED;
+            newPatches.add(patch);
+            newCells.add(local);
+        }
+    }
+
+    // Mean-field step of a recovering bulk patch: infection pressure on the edges of fine neighbors, then recoveries
+    private int stepBulk(int patch) {
+        double pressure = infectionProb * infected[patch] / area(patch);
+        int px = patch % patchesX;
+        int py = patch / patchesX;
+        int w = patchWidth(patch);
+        int h = patchHeight(patch);
+        if (py > 0 && kinds[patch - patchesX] == FINE) {
+            for (int lx = 0; lx < w; lx++) infectWith(patch - patchesX, (PATCH - 1) * PATCH + lx, pressure);
+        }
+        if (py + 1 < patchesY && kinds[patch + patchesX] == FINE) {
+            for (int lx = 0; lx < w; lx++) infectWith(patch + patchesX, lx, pressure);
+        }
+        if (px > 0 && kinds[patch - 1] == FINE) {
+            for (int ly = 0; ly < h; ly++) infectWith(patch - 1, (ly << PATCH_SHIFT) + PATCH - 1, pressure);
+        }
+        if (px + 1 < patchesX && kinds[patch + 1] == FINE) {
+            for (int ly = 0; ly < h; ly++) infectWith(patch + 1, ly << PATCH_SHIFT, pressure);
+        }
+
+        int recoveries = binomial(infected[patch]);
+        infected[patch] -= recoveries;
+        recovered[patch] += recoveries;
+        return recoveries;
+    }
+
+    // Number of recoveries among n infected cells, drawn by jumping from one recovery to the next with geometric gaps,
+    // so the cost follows the number of recoveries rather than n
+    private int binomial(int n) {
+        if (n == 0 || recoveryProb <= 0) return 0;
+        if (recoveryProb >= 1) return n;
+        int count = 0;
+        double position = 0;
+        while (true) {
+            position += 1 + Math.floor(Math.log(1.0 - random.nextDouble()) / logNoRecovery);
+            if (position > n) return count;
+            count++;
+        }
+    }
+
+    private void forEachNeighborPatch(int patch, IntConsumer action) {
+        int px = patch % patchesX;
+        int py = patch / patchesX;
+        if (py > 0) action.accept(patch - patchesX);
+        if (py + 1 < patchesY) action.accept(patch + patchesX);
+        if (px > 0) action.accept(patch - 1);
+        if (px + 1 < patchesX) action.accept(patch + 1);
+    }
+
+    // Number of patches simulated cell by cell right now
+    public int finePatchCount() {
+        int count = 0;
+        for (byte kind : kinds) {
+            if (kind == FINE) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        random = ResetSupport.random(seed);
+        load(initial);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return i == 0;
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    // Row-major view over the patches, see the class comment for recovering bulk patches
+    private final class PatchView implements GridView {
+        @Override
+        public int width() {
+            return gridWidth;
+        }
+
+        @Override
+        public int height() {
+            return gridHeight;
+        }
+
+        @Override
+        public byte stateAt(int index) {
+            int x = index % gridWidth;
+            int y = index / gridWidth;
+            int patch = (y >> PATCH_SHIFT) * patchesX + (x >> PATCH_SHIFT);
+            return switch (kinds[patch]) {
+                case FINE -> cells[patch][((y & PATCH_MASK) << PATCH_SHIFT) | (x & PATCH_MASK)];
+                case RECOVERING_BULK -> (y & PATCH_MASK) * patchWidth(patch) + (x & PATCH_MASK) < infected[patch]
+                        ? OptNode.INFECTED : OptNode.RECOVERED;
+                default -> OptNode.SUSCEPTIBLE;
+            };
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Parallel solver on a double-buffered grid. Every tick reads the previous state and writes the next one, and each
+// cell is written only by the strip that owns it, so no tick needs atomics. The S/I/R totals are counted while the
+// cells are written, which leaves only a sum over the strips at the end of a tick. Rows without an infected cell in
+// or next to them cannot change and are copied together with their counts; the others go through GatherKernel. Ticks
+// run in the background (see PipelinedSIRSolver), so the runner can log and check tick t while tick t+1 is computed.
+public class PipelinedGridSIRSolver implements PipelinedSIRSolver {
+    public static final String NAME = "Pipelined Grid SIR Solver";
+
+    private final byte[][] buffers;
+    // S/I/R counts of every row, one array per buffer
+    private final int[][] rowCounts;
+    private final GridView[] views;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final GatherStrips strips;
+    // Per strip: the counts of the row being computed, laid out as in GatherKernel
+    private final int[][] stripRowCounts;
+    private int current = 0;
+    private int infected;
+    private TransitionHistory history;
+
+    private ForkJoinTask<?> inFlight;
+    private int inFlightTick;
+    private long inFlightStart;
+    private long inFlightEnd;
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public PipelinedGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, int threads, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, new ForkJoinPool(threads), true, seed);
+    }
+
+    // Runs on a pool shared with other solvers; shutdown() leaves the pool running
+    public PipelinedGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, ForkJoinPool pool, Long seed) {
+        this(states, gridWidth, gridHeight, infectionProb, recoveryProb, pool, false, seed);
+    }
+
+    private PipelinedGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb,
+                                   ForkJoinPool pool, boolean ownsPool, Long seed) {
+        if (states.length != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length);
+        }
+        this.buffers = new byte[][]{states, new byte[states.length]};
+        this.views = new GridView[]{GridView.of(buffers[0], gridWidth, gridHeight), GridView.of(buffers[1], gridWidth, gridHeight)};
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+
+        this.strips = new GatherStrips(gridHeight, pool.getParallelism(), infectionProb, recoveryProb, ResetSupport.random(seed));
+        this.stripRowCounts = new int[strips.count()][GatherKernel.COUNTS];
+
+        this.rowCounts = new int[2][gridHeight * 3];
+        countRows();
+    }
+
+    // Per-row counts of the current buffer, which the first tick needs to find the quiet rows
+    private void countRows() {
+        byte[] states = buffers[current];
+        int[] counts = rowCounts[current];
+        Arrays.fill(counts, 0);
+        for (int idx = 0; idx < states.length; idx++) {
+            counts[(idx / gridWidth) * 3 + states[idx]]++;
+        }
+        infected = 0;
+        for (int y = 0; y < gridHeight; y++) {
+            infected += counts[y * 3 + OptNode.INFECTED];
+        }
+    }
+
+    @Override
+    public void beginStep(int tick) {
+        if (inFlight != null) {
+            throw new IllegalStateException("Tick " + inFlightTick + " is still in flight");
+        }
+        inFlightTick = tick;
+        inFlightStart = System.nanoTime();
+        byte[] source = buffers[current];
+        byte[] target = buffers[current ^ 1];
+        int[] sourceRows = rowCounts[current];
+        int[] targetRows = rowCounts[current ^ 1];
+        inFlight = pool.submit(ForkJoinTask.adapt(() -> {
+            strips.forEachStrip(strip -> stepStrip(strip, source, target, sourceRows, targetRows, tick));
+            inFlightEnd = System.nanoTime();
+        }));
+    }
+
+    @Override
+    public StepStats awaitStep() {
+        joinInFlight();
+        current ^= 1;
+        StepStats stats = strips.stats(inFlightTick, inFlightEnd - inFlightStart);
+        infected = stats.totalInfected();
+        if (history != null) history.endStep(inFlightTick);
+        return stats;
+    }
+
+    @Override
+    public void discardStep() {
+        joinInFlight();
+        // The strips already recorded the discarded tick
+        if (history != null) {
+            byte[] source = buffers[current];
+            history.forgetChanges(source, buffers[current ^ 1], 0, source.length);
+        }
+    }
+
+    private void joinInFlight() {
+        if (inFlight == null) {
+            throw new IllegalStateException("No step in flight");
+        }
+        try {
+            inFlight.join();
+        } finally {
+            inFlight = null;
+        }
+    }
+
+    // Computes the next state of the strip's rows; reads neighbors in any row, writes only its own cells
+    private void stepStrip(int strip, byte[] source, byte[] target, int[] sourceRows, int[] targetRows, int tick) {
+        GatherKernel kernel = strips.kernels[strip];
+        int[] stripTotals = strips.counts[strip];
+        int[] row = stripRowCounts[strip];
+        Arrays.fill(stripTotals, 0);
+        int lastY = gridHeight - 1;
+        for (int y = strips.startRows[strip]; y < strips.startRows[strip + 1]; y++) {
+            int rowStart = y * gridWidth;
+            int counts = y * 3;
+            boolean quiet = sourceRows[counts + OptNode.INFECTED] == 0
+                    && (y == 0 || sourceRows[counts - 3 + OptNode.INFECTED] == 0)
+                    && (y == lastY || sourceRows[counts + 3 + OptNode.INFECTED] == 0);
+            if (quiet) {
+                System.arraycopy(source, rowStart, target, rowStart, gridWidth);
+                targetRows[counts + OptNode.SUSCEPTIBLE] = sourceRows[counts + OptNode.SUSCEPTIBLE];
+                targetRows[counts + OptNode.INFECTED] = 0;
+                targetRows[counts + OptNode.RECOVERED] = sourceRows[counts + OptNode.RECOVERED];
+                stripTotals[GatherKernel.TOTAL_SUSCEPTIBLE] += sourceRows[counts + OptNode.SUSCEPTIBLE];
+                stripTotals[GatherKernel.TOTAL_RECOVERED] += sourceRows[counts + OptNode.RECOVERED];
+                continue;
+            }
+            Arrays.fill(row, 0);
+            kernel.stepRow(source, target, rowStart, gridWidth, y > 0, y < lastY, row);
+            if (history != null) history.recordChanges(source, target, rowStart, gridWidth, tick);
+            targetRows[counts + OptNode.SUSCEPTIBLE] = row[GatherKernel.TOTAL_SUSCEPTIBLE];
+            targetRows[counts + OptNode.INFECTED] = row[GatherKernel.TOTAL_INFECTED];
+            targetRows[counts + OptNode.RECOVERED] = row[GatherKernel.TOTAL_RECOVERED];
+            for (int c = 0; c < GatherKernel.COUNTS; c++) {
+                stripTotals[c] += row[c];
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return infected == 0;
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        if (inFlight != null) {
+            discardStep();
+        }
+        current = 0;
+        initial.exportStates(buffers[current]);
+        strips.reseed(ResetSupport.random(seed));
+        history = null;
+        countRows();
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        if (inFlight != null) {
+            throw new IllegalStateException("Tick " + inFlightTick + " is still in flight");
+        }
+        history = TransitionHistory.of(view());
+        return history;
+    }
+
+    @Override
+    public GridView view() {
+        return views[current];
+    }
+
+    @Override
+    public void shutdown() {
+        if (inFlight != null) {
+            discardStep();
+        }
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
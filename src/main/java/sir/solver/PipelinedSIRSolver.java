@@ -0,0 +1,24 @@
+package sir.solver;
+
+import sir.model.StepStats;
+
+// Solver whose steps run in the background, so the caller can log and check the previous tick meanwhile.
+// At most one step is in flight. A step becomes the current state once it is awaited and can be discarded instead,
+// e.g. a tick started speculatively before the previous one turned out to be the last.
+public interface PipelinedSIRSolver extends SIRSolver {
+
+    // Starts computing the given tick from the current state and returns immediately
+    void beginStep(int tick);
+
+    // Waits for the step in flight, makes it the current state and returns its stats
+    StepStats awaitStep();
+
+    // Waits for the step in flight and throws its result away; the current state stays as it was
+    void discardStep();
+
+    @Override
+    default StepStats step(int tick) {
+        beginStep(tick);
+        return awaitStep();
+    }
+}
@@ -0,0 +1,69 @@
+package sir.solver;
+
+import java.util.SplittableRandom;
+
+// Per-worker source of uniform 32-bit random numbers. Instead of calling the generator for every decision, a kernel
+// fills a reusable int buffer in a tight xoroshiro128++ loop and then only reads the buffer (see GatherKernel).
+// Probabilities are turned into integer thresholds once (see threshold), so a Bernoulli decision is a single integer
+// comparison (see passes).
+// Not thread-safe: every strip, worker or process owns its own instance.
+public final class RandomBatch {
+    // Number of distinct 32-bit draws
+    private static final double DRAWS = 0x1p32;
+
+    private long s0;
+    private long s1;
+
+    // Seeds the generator from two draws of the given stream, e.g. a split of the solver's seeded base random
+    public RandomBatch(SplittableRandom seedSource) {
+        reseed(seedSource);
+    }
+
+    // Restarts the generator from two draws of the given stream
+    public void reseed(SplittableRandom seedSource) {
+        long a = seedSource.nextLong();
+        long b = seedSource.nextLong();
+        // The all-zero state would only ever produce zeros
+        if ((a | b) == 0) {
+            b = 0x9E3779B97F4A7C15L;
+        }
+        this.s0 = a;
+        this.s1 = b;
+    }
+
+    // Threshold t such that a uniform draw passes t with probability p, to within 2^-32
+    public static long threshold(double p) {
+        if (!(p > 0)) return 0;
+        if (p >= 1) return 1L << 32;
+        return Math.round(p * DRAWS);
+    }
+
+    // True with the probability the threshold was made from
+    public static boolean passes(int draw, long threshold) {
+        return (draw & 0xFFFFFFFFL) < threshold;
+    }
+
+    // Fills dest[from, to) with uniform 32-bit values; every output of the generator yields two of them
+    public void fill(int[] dest, int from, int to) {
+        long a = s0;
+        long b = s1;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            long result = Long.rotateLeft(a + b, 17) + a;
+            b ^= a;
+            a = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+            b = Long.rotateLeft(b, 28);
+            dest[i] = (int) result;
+            dest[i + 1] = (int) (result >>> 32);
+        }
+        if (i < to) {
+            long result = Long.rotateLeft(a + b, 17) + a;
+            b ^= a;
+            a = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+            b = Long.rotateLeft(b, 28);
+            dest[i] = (int) (result >>> 32);
+        }
+        s0 = a;
+        s1 = b;
+    }
+}
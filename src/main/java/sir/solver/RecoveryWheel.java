@@ -0,0 +1,110 @@
+package sir.solver;
+
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+// Bucketed timing wheel of infected cells, indexed by the step at which each cell recovers.
+// The recovery step is drawn once at infection time from the geometric distribution, which is exactly
+// the distribution produced by drawing nextDouble() < recoveryProb on every step until it succeeds.
+final class RecoveryWheel {
+    private static final int MIN_WHEEL_SIZE = 64;
+    private static final int MAX_WHEEL_SIZE = 1 << 16;
+
+    private final double recoveryProb;
+    private final double logNoRecovery;
+    private final IntList[] buckets;
+    private final int mask;
+    // Recoveries too far ahead for the wheel, moved into the buckets once per wheel turn
+    private final IntList overflowCells = new IntList();
+    private final IntList overflowSteps = new IntList();
+    private int pending;
+
+    RecoveryWheel(double recoveryProb) {
+        this.recoveryProb = recoveryProb;
+        this.logNoRecovery = Math.log1p(-recoveryProb);
+
+        // Size the wheel to cover several mean infection durations so the overflow is rarely used
+        double meanDuration = recoveryProb > 0 ? 1.0 / recoveryProb : MAX_WHEEL_SIZE;
+        int size = MIN_WHEEL_SIZE;
+        while (size < 4 * meanDuration && size < MAX_WHEEL_SIZE) {
+            size <<= 1;
+        }
+        this.buckets = new IntList[size];
+        for (int b = 0; b < size; b++) {
+            buckets[b] = new IntList();
+        }
+        this.mask = size - 1;
+    }
+
+    // Number of steps until recovery, counted from the step of infection (always at least 1)
+    int sampleDuration(SplittableRandom random) {
+        if (recoveryProb >= 1.0) {
+            return 1;
+        }
+        double u = 1.0 - random.nextDouble();
+        double extra = Math.floor(Math.log(u) / logNoRecovery);
+        return 1 + (int) Math.min(extra, Integer.MAX_VALUE / 2.0);
+    }
+
+    // Samples the recovery step of a cell infected during infectionStep and schedules it
+    void schedule(int cell, int infectionStep, SplittableRandom random) {
+        if (recoveryProb <= 0.0) {
+            // Cells never recover, same as the per-step draw that never succeeds
+            return;
+        }
+        int recoveryStep = infectionStep + sampleDuration(random);
+        if (recoveryStep - infectionStep < buckets.length) {
+            buckets[recoveryStep & mask].add(cell);
+        } else {
+            overflowCells.add(cell);
+            overflowSteps.add(recoveryStep);
+        }
+        pending++;
+    }
+
+    // Passes every cell recovering at the given step to the action and returns how many there were
+    int drain(int step, IntConsumer action) {
+        if ((step & mask) == 0 && !overflowCells.isEmpty()) {
+            migrateOverflow(step);
+        }
+        IntList bucket = buckets[step & mask];
+        int count = bucket.size();
+        for (int k = 0; k < count; k++) {
+            action.accept(bucket.get(k));
+        }
+        bucket.clear();
+        pending -= count;
+        return count;
+    }
+
+    // Moves overflow entries that fall within the next wheel turn into their buckets
+    private void migrateOverflow(int step) {
+        int kept = 0;
+        for (int k = 0; k < overflowCells.size(); k++) {
+            int cell = overflowCells.get(k);
+            int recoveryStep = overflowSteps.get(k);
+            if (recoveryStep - step < buckets.length) {
+                buckets[recoveryStep & mask].add(cell);
+            } else {
+                overflowCells.set(kept, cell);
+                overflowSteps.set(kept, recoveryStep);
+                kept++;
+            }
+        }
+        overflowCells.truncate(kept);
+        overflowSteps.truncate(kept);
+    }
+
+    int pending() {
+        return pending;
+    }
+
+    void clear() {
+        for (IntList bucket : buckets) {
+            bucket.clear();
+        }
+        overflowCells.clear();
+        overflowSteps.clear();
+        pending = 0;
+    }
+}
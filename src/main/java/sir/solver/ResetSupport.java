@@ -0,0 +1,34 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.model.Node;
+import sir.model.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Shared parts of SIRSolver.reset: checking the new grid and copying it into the solver's own storage
+final class ResetSupport {
+    private static final State[] STATES = State.values();
+
+    private ResetSupport() {
+    }
+
+    static void checkSize(GridView initial, int gridWidth, int gridHeight) {
+        if (initial.width() != gridWidth || initial.height() != gridHeight) {
+            throw new IllegalArgumentException("Expected a " + gridWidth + "x" + gridHeight + " grid, got "
+                    + initial.width() + "x" + initial.height());
+        }
+    }
+
+    static SplittableRandom random(Long seed) {
+        return (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
+    }
+
+    // Sets the state of every node in place, the nodes and the grid referencing them are kept
+    static void copyInto(GridView initial, List<Node> nodes) {
+        for (Node node : nodes) {
+            node.state = STATES[initial.stateAt(node.x, node.y)];
+        }
+    }
+}
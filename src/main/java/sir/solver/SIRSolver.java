@@ -1,5 +1,7 @@
 package sir.solver;
 
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
 import sir.model.Node;
 import sir.model.StepStats;
 
@@ -10,7 +12,33 @@ public interface SIRSolver {
     String getName();
     StepStats step(int tick);
     boolean isFinished();
-    List<Node> getCurrentState();
+
+    // Read-only view backed directly by the solver's internal storage
+    GridView view();
+
+    // Starts recording every state change of the following steps into the returned history. Call it before the
+    // first step; solvers that cannot record their transitions throw UnsupportedOperationException
+    default TransitionHistory recordTransitions() {
+        throw new UnsupportedOperationException(getName() + " does not record transitions");
+    }
+
+    // Puts the solver back to the given row-major grid and reseeds its random numbers, as if it had just been built
+    // from them, but keeps its pools and buffers, so one solver can run many repeats. Solvers that cannot be reset
+    // throw UnsupportedOperationException
+    default void reset(GridView initial, Long seed) {
+        throw new UnsupportedOperationException(getName() + " cannot be reset");
+    }
+
+    // Branches the simulation at its current step: the returned solver starts from the same grid and continues with
+    // its own random numbers, independently of this one. Solvers that cannot be forked throw
+    // UnsupportedOperationException
+    default SIRSolver fork(Long seed) {
+        throw new UnsupportedOperationException(getName() + " cannot be forked");
+    }
+
+    default List<Node> getCurrentState() {
+        return view().asNodeList();
+    }
 
     default void shutdown() {}
 }
@@ -1,5 +1,6 @@
 package sir.solver;
 
+import sir.grid.GridView;
 import sir.model.Node;
 import sir.model.State;
 import sir.model.StepStats;
@@ -19,10 +20,11 @@ public class SimpleParallelGridSIRSolver implements SIRSolver {
     private final int gridHeight;
     private final double infectionProb;
     private final double recoveryProb;
-    private final SplittableRandom randomGenerator;
+    private SplittableRandom randomGenerator;
     private final ExecutorService executor;
     private final int threads;
     private final Node[][] grid;
+    private final GridView view;
     private static final int[] dx = {0, 0, 1, -1};
     private static final int[] dy = {1, -1, 0, 0};
     public SimpleParallelGridSIRSolver(List<Node> nodes, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, int threads, Long seed) {
@@ -39,6 +41,7 @@ public class SimpleParallelGridSIRSolver implements SIRSolver {
         for (Node node : nodes) {
             this.grid[node.y][node.x] = node;
         }
+        this.view = GridView.of(grid);
     }
 
     @Override
@@ -133,6 +136,18 @@ public class SimpleParallelGridSIRSolver implements SIRSolver {
         return nodes.stream().noneMatch(n -> n.state == State.INFECTED);
     }
 
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        ResetSupport.copyInto(initial, nodes);
+        randomGenerator = ResetSupport.random(seed);
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
     @Override
     public List<Node> getCurrentState() {
         return nodes;
@@ -1,5 +1,6 @@
 package sir.solver;
 
+import sir.grid.GridView;
 import sir.model.Node;
 import sir.model.State;
 import sir.model.StepStats;
@@ -9,13 +10,16 @@ import java.util.List;
 import java.util.SplittableRandom;
 
 public class SimpleSequentialGridSIRSolver implements SIRSolver {
+    public static final String NAME = "Simple Sequential Grid SIR Solver";
+
     private final List<Node> nodes;
     private final int gridWidth;
     private final int gridHeight;
     private final double infectionProb;
     private final double recoveryProb;
-    private final SplittableRandom randomGenerator;
+    private SplittableRandom randomGenerator;
     private final Node[][] grid;
+    private final GridView view;
     private static final int[] dx = {0, 0, 1, -1};
     private static final int[] dy = {1, -1, 0, 0};
 
@@ -31,6 +35,7 @@ public class SimpleSequentialGridSIRSolver implements SIRSolver {
         for (Node node : nodes) {
             this.grid[node.y][node.x] = node;
         }
+        this.view = GridView.of(grid);
     }
 
     @Override
@@ -97,6 +102,18 @@ public class SimpleSequentialGridSIRSolver implements SIRSolver {
         return nodes.stream().noneMatch(n -> n.state == State.INFECTED);
     }
 
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        ResetSupport.copyInto(initial, nodes);
+        randomGenerator = ResetSupport.random(seed);
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
     @Override
     public List<Node> getCurrentState() {
         return nodes;
@@ -109,6 +126,6 @@ public class SimpleSequentialGridSIRSolver implements SIRSolver {
 
     @Override
     public String getName() {
-        return "Simple Sequential Grid SIR Solver";
+        return NAME;
     }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package sir.solver;
+
+import sir.grid.PagedStates;
+import sir.grid.TransitionHistory;
+import sir.model.OptNode;
+import sir.model.StepStats;
+
+import java.util.SplittableRandom;
+
+// The timing wheel algorithm of TimingWheelGridSIRSolver and ForkableTimingWheelSIRSolver, which differ only in how
+// they store the states. Each cell's recovery step is sampled once, at infection time, and the pending recoveries
+// wait in a RecoveryWheel, so only the infected cells are visited and no per-step recovery draws are made.
+// Both storages are small final classes; a run that only uses the plain array, like the benchmark, keeps the calls
+// through States monomorphic, and the JIT inlines them to array accesses.
+final class TimingWheelEngine<S extends TimingWheelEngine.States> {
+    interface States {
+        int length();
+
+        byte get(int cell);
+
+        void set(int cell, byte state);
+    }
+
+    static final class ArrayStates implements States {
+        private final byte[] states;
+
+        ArrayStates(byte[] states) {
+            this.states = states;
+        }
+
+        @Override
+        public int length() {
+            return states.length;
+        }
+
+        @Override
+        public byte get(int cell) {
+            return states[cell];
+        }
+
+        @Override
+        public void set(int cell, byte state) {
+            states[cell] = state;
+        }
+    }
+
+    static final class PageStates implements States {
+        private final PagedStates pages;
+
+        PageStates(PagedStates pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public int length() {
+            return pages.length();
+        }
+
+        @Override
+        public byte get(int cell) {
+            return pages.get(cell);
+        }
+
+        @Override
+        public void set(int cell, byte state) {
+            pages.set(cell, state);
+        }
+    }
+
+    private static final int[] dx = {0, 0, 1, -1};
+    private static final int[] dy = {1, -1, 0, 0};
+
+    private final S states;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final double infectionProb;
+    private final RecoveryWheel recoveryWheel;
+    private SplittableRandom randomGenerator;
+    private TransitionHistory history;
+    // Cells infected at the start of the current step and cells infected during it
+    private IntList infected = new IntList();
+    private IntList nextInfected = new IntList();
+    private int step;
+    private int s, i, r;
+
+    TimingWheelEngine(S states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, SplittableRandom random) {
+        if (states.length() != gridWidth * gridHeight) {
+            throw new IllegalArgumentException("Expected " + gridWidth * gridHeight + " states, got " + states.length());
+        }
+        this.states = states;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.infectionProb = infectionProb;
+        this.recoveryWheel = new RecoveryWheel(recoveryProb);
+        this.randomGenerator = random;
+        start();
+    }
+
+    // Continues the parent's run at its current step on the given states, which must equal the parent's
+    TimingWheelEngine(S states, TimingWheelEngine<?> parent, double infectionProb, double recoveryProb, SplittableRandom random) {
+        this.states = states;
+        this.gridWidth = parent.gridWidth;
+        this.gridHeight = parent.gridHeight;
+        this.infectionProb = infectionProb;
+        this.recoveryWheel = new RecoveryWheel(recoveryProb);
+        this.randomGenerator = random;
+        this.step = parent.step;
+        this.s = parent.s;
+        this.i = parent.i;
+        this.r = parent.r;
+        // Recovery is memoryless, so the remaining infection of every infected cell is sampled again as if the cell
+        // had been infected just before the fork, which also lets the branch change the recovery probability
+        for (int k = 0; k < parent.infected.size(); k++) {
+            int cell = parent.infected.get(k);
+            infected.add(cell);
+            recoveryWheel.schedule(cell, step - 1, randomGenerator);
+        }
+    }
+
+    // Counts the states and schedules the recoveries of the cells infected before the first step
+    private void start() {
+        s = i = r = 0;
+        step = 0;
+        infected.clear();
+        recoveryWheel.clear();
+        for (int cell = 0; cell < states.length(); cell++) {
+            switch (states.get(cell)) {
+                case OptNode.SUSCEPTIBLE -> s++;
+                case OptNode.INFECTED -> {
+                    i++;
+                    infected.add(cell);
+                    // Initially infected cells count as infected just before the first step
+                    recoveryWheel.schedule(cell, -1, randomGenerator);
+                }
+                case OptNode.RECOVERED -> r++;
+            }
+        }
+    }
+
+    StepStats step(int tick) {
+        long start = System.nanoTime();
+        int current = step++;
+
+        // Infection attempts from every cell that was infected at the start of the step
+        nextInfected.clear();
+        int newlyInfected = 0;
+        for (int k = 0; k < infected.size(); k++) {
+            int cell = infected.get(k);
+            int x = cell % gridWidth;
+            int y = cell / gridWidth;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + dx[d];
+                int ny = y + dy[d];
+                if (nx >= 0 && nx < gridWidth && ny >= 0 && ny < gridHeight) {
+                    int neighbor = ny * gridWidth + nx;
+                    // Newly infected cells are marked right away, they only start spreading next step
+                    if (states.get(neighbor) == OptNode.SUSCEPTIBLE && randomGenerator.nextDouble() < infectionProb) {
+                        states.set(neighbor, OptNode.INFECTED);
+                        recoveryWheel.schedule(neighbor, current, randomGenerator);
+                        nextInfected.add(neighbor);
+                        newlyInfected++;
+                        if (history != null) history.infected(neighbor, tick);
+                    }
+                }
+            }
+        }
+
+        // Apply the recoveries that are due in bulk
+        int newlyRecovered = recoveryWheel.drain(current, cell -> {
+            states.set(cell, OptNode.RECOVERED);
+            if (history != null) history.recovered(cell, tick);
+        });
+
+        // Carry over the cells that are still infected
+        for (int k = 0; k < infected.size(); k++) {
+            int cell = infected.get(k);
+            if (states.get(cell) == OptNode.INFECTED) {
+                nextInfected.add(cell);
+            }
+        }
+        IntList swap = infected;
+        infected = nextInfected;
+        nextInfected = swap;
+
+        s -= newlyInfected;
+        i += newlyInfected - newlyRecovered;
+        r += newlyRecovered;
+        if (history != null) history.endStep(tick);
+
+        long elapsed = System.nanoTime() - start;
+        return new StepStats(tick, newlyInfected, newlyRecovered, s, i, r, elapsed);
+    }
+
+    boolean isFinished() {
+        return infected.isEmpty();
+    }
+
+    // Starts over from the states, which the caller has already overwritten with the new initial grid
+    void reset(SplittableRandom random) {
+        randomGenerator = random;
+        history = null;
+        start();
+    }
+
+    void record(TransitionHistory history) {
+        this.history = history;
+    }
+}
@@ -0,0 +1,62 @@
+package sir.solver;
+
+import sir.grid.GridView;
+import sir.grid.TransitionHistory;
+import sir.model.StepStats;
+
+// Sequential solver that samples each cell's recovery step once, at infection time, and keeps the pending
+// recoveries in a timing wheel. Only the currently infected cells are visited, so recovery handling costs
+// O(recoveries) per step and no per-step recovery draws are made. The algorithm is in TimingWheelEngine.
+public class TimingWheelGridSIRSolver implements SIRSolver {
+    public static final String NAME = "Timing Wheel Grid SIR Solver";
+
+    private final byte[] states;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final TimingWheelEngine<TimingWheelEngine.ArrayStates> engine;
+    private final GridView view;
+
+    // Takes ownership of the given states array, e.g. a copy from GridSupplier.copyStates()
+    public TimingWheelGridSIRSolver(byte[] states, int gridWidth, int gridHeight, double infectionProb, double recoveryProb, Long seed) {
+        this.states = states;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.engine = new TimingWheelEngine<>(new TimingWheelEngine.ArrayStates(states), gridWidth, gridHeight,
+                infectionProb, recoveryProb, ResetSupport.random(seed));
+        this.view = GridView.of(states, gridWidth, gridHeight);
+    }
+
+    @Override
+    public StepStats step(int tick) {
+        return engine.step(tick);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return engine.isFinished();
+    }
+
+    @Override
+    public void reset(GridView initial, Long seed) {
+        ResetSupport.checkSize(initial, gridWidth, gridHeight);
+        initial.exportStates(states);
+        engine.reset(ResetSupport.random(seed));
+    }
+
+    @Override
+    public TransitionHistory recordTransitions() {
+        TransitionHistory history = TransitionHistory.of(view);
+        engine.record(history);
+        return history;
+    }
+
+    @Override
+    public GridView view() {
+        return view;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,77 @@
+package sir.store;
+
+// One aggregated output column of a query. All aggregates except count skip NaN values; an aggregate over no values
+// is NaN, except for the sum, which is 0.
+public final class Aggregate {
+    enum Kind { COUNT, SUM, MEAN, MIN, MAX, QUANTILE }
+
+    private final Kind kind;
+    private final String column;
+    private final double q;
+
+    private Aggregate(Kind kind, String column, double q) {
+        this.kind = kind;
+        this.column = column;
+        this.q = q;
+    }
+
+    // Number of selected rows in the group
+    public static Aggregate count() {
+        return new Aggregate(Kind.COUNT, null, 0);
+    }
+
+    public static Aggregate sum(String column) {
+        return new Aggregate(Kind.SUM, column, 0);
+    }
+
+    public static Aggregate mean(String column) {
+        return new Aggregate(Kind.MEAN, column, 0);
+    }
+
+    public static Aggregate min(String column) {
+        return new Aggregate(Kind.MIN, column, 0);
+    }
+
+    public static Aggregate max(String column) {
+        return new Aggregate(Kind.MAX, column, 0);
+    }
+
+    // Exact quantile with linear interpolation between the two closest values, q in [0, 1]
+    public static Aggregate quantile(String column, double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1], got " + q);
+        }
+        return new Aggregate(Kind.QUANTILE, column, q);
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    String column() {
+        return column;
+    }
+
+    double q() {
+        return q;
+    }
+
+    // Name of the output column, e.g. "mean(StepTimeNanos)" or "p99(StepTimeNanos)"
+    public String label() {
+        return switch (kind) {
+            case COUNT -> "count";
+            case QUANTILE -> "p" + formatQuantile(q) + "(" + column + ")";
+            default -> kind.name().toLowerCase() + "(" + column + ")";
+        };
+    }
+
+    private static String formatQuantile(double q) {
+        double percent = q * 100;
+        return percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+    }
+
+    @Override
+    public String toString() {
+        return label();
+    }
+}
@@ -0,0 +1,16 @@
+package sir.store;
+
+public record ColumnSpec(String name, ColumnType type) {
+
+    public static ColumnSpec longs(String name) {
+        return new ColumnSpec(name, ColumnType.LONG);
+    }
+
+    public static ColumnSpec doubles(String name) {
+        return new ColumnSpec(name, ColumnType.DOUBLE);
+    }
+
+    public static ColumnSpec strings(String name) {
+        return new ColumnSpec(name, ColumnType.STRING);
+    }
+}
@@ -0,0 +1,19 @@
+package sir.store;
+
+// Storage of a column: 64-bit integers, 64-bit floating point values, or strings dictionary-encoded as 32-bit codes
+public enum ColumnType {
+    LONG(Long.BYTES),
+    DOUBLE(Double.BYTES),
+    STRING(Integer.BYTES);
+
+    private final int width;
+
+    ColumnType(int width) {
+        this.width = width;
+    }
+
+    // Bytes per row in the column file
+    int width() {
+        return width;
+    }
+}
@@ -0,0 +1,64 @@
+package sir.store;
+
+import java.util.Arrays;
+
+// Open-addressing map from long keys to dense ids 0, 1, 2, ... in order of first insertion.
+// Used to number the distinct group keys of a query without boxing every row.
+final class LongIndex {
+    private long[] keys;
+    private int[] ids;
+    private int size;
+
+    LongIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.ids = new int[capacity];
+        Arrays.fill(ids, -1);
+    }
+
+    // Id of the key, assigning the next free id to a key not seen before
+    int idOf(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (ids[slot] >= 0) {
+            if (keys[slot] == key) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        ids[slot] = size;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return size - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        ids = new int[oldIds.length * 2];
+        Arrays.fill(ids, -1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldIds[i] >= 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (ids[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,351 @@
+package sir.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.LongPredicate;
+
+// Filter / group-by / aggregate query over a Table, e.g.
+//   table.query().whereEquals("Solver", "gather").groupBy("Width", "Height")
+//        .aggregate(Aggregate.count(), Aggregate.quantile("StepTimeNanos", 0.99)).run()
+// Filters narrow an array of row numbers, so later filters and the aggregation only touch the selected rows.
+// Grouping numbers the values of every group-by column densely (string columns already are, by their codes) and
+// combines the numbers into one long key per row, so no row allocates and a group is a single table or hash lookup.
+// Quantiles are exact, found by selection within each group instead of sorting it.
+public class Query {
+    private final Table table;
+    private final List<RowFilter> filters = new ArrayList<>();
+    private final List<String> groupColumns = new ArrayList<>();
+    private final List<Aggregate> aggregates = new ArrayList<>();
+
+    Query(Table table) {
+        this.table = table;
+    }
+
+    private interface RowFilter {
+        boolean test(int row);
+    }
+
+    public Query whereEquals(String column, String value) {
+        StringColumn strings = table.strings(column);
+        int[] codes = strings.codes();
+        // -1 when no row holds the value, which then matches no row
+        int code = strings.codeOf(value);
+        filters.add(row -> codes[row] == code);
+        return this;
+    }
+
+    public Query where(String column, LongPredicate predicate) {
+        long[] values = table.longArray(column);
+        filters.add(row -> predicate.test(values[row]));
+        return this;
+    }
+
+    public Query whereDouble(String column, DoublePredicate predicate) {
+        double[] values = table.doubleArray(column);
+        filters.add(row -> predicate.test(values[row]));
+        return this;
+    }
+
+    public Query groupBy(String... columns) {
+        for (String column : columns) {
+            table.type(column);
+            groupColumns.add(column);
+        }
+        return this;
+    }
+
+    public Query aggregate(Aggregate... aggregates) {
+        for (Aggregate aggregate : aggregates) {
+            if (aggregate.column() != null && table.type(aggregate.column()) == ColumnType.STRING) {
+                throw new IllegalArgumentException("Cannot aggregate string column " + aggregate.column());
+            }
+            this.aggregates.add(aggregate);
+        }
+        return this;
+    }
+
+    // Without group-by columns the result is a single row over all selected rows
+    public QueryResult run() {
+        int[] selection = select();
+        int[] groupOf = new int[selection.length];
+        int[] firstRows = groupColumns.isEmpty() ? new int[]{-1} : group(selection, groupOf);
+        int groups = firstRows.length;
+
+        double[][] values = new double[aggregates.size()][];
+        for (int a = 0; a < values.length; a++) {
+            values[a] = aggregate(aggregates.get(a), selection, groupOf, groups);
+        }
+
+        List<QueryResult.Row> rows = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            Object[] keys = new Object[groupColumns.size()];
+            for (int c = 0; c < keys.length; c++) {
+                keys[c] = keyValue(groupColumns.get(c), firstRows[g]);
+            }
+            double[] groupValues = new double[values.length];
+            for (int a = 0; a < values.length; a++) {
+                groupValues[a] = values[a][g];
+            }
+            rows.add(new QueryResult.Row(keys, groupValues));
+        }
+        return new QueryResult(groupColumns, aggregates, rows);
+    }
+
+    private int[] select() {
+        int rows = table.rowCount();
+        int[] selection = new int[rows];
+        if (filters.isEmpty()) {
+            for (int row = 0; row < rows; row++) {
+                selection[row] = row;
+            }
+            return selection;
+        }
+        RowFilter first = filters.get(0);
+        int n = 0;
+        for (int row = 0; row < rows; row++) {
+            if (first.test(row)) selection[n++] = row;
+        }
+        for (int f = 1; f < filters.size(); f++) {
+            RowFilter filter = filters.get(f);
+            int kept = 0;
+            for (int k = 0; k < n; k++) {
+                if (filter.test(selection[k])) selection[kept++] = selection[k];
+            }
+            n = kept;
+        }
+        return Arrays.copyOf(selection, n);
+    }
+
+    // Fills groupOf with the group of every selected row and returns the first row of every group.
+    // Column by column, the group so far and the number of the row's value in the next column are combined and
+    // renumbered densely, so the numbers never grow beyond the number of rows.
+    private int[] group(int[] selection, int[] groupOf) {
+        int[] ids = new int[selection.length];
+        int[] firstRows = new int[16];
+        int groups = 1;
+        for (String column : groupColumns) {
+            int cardinality = columnIds(column, selection, ids);
+            long combinations = (long) groups * cardinality;
+            groups = 0;
+            // Unless there are far more combinations than rows, a plain array maps them to groups
+            if (combinations <= Math.max(1 << 16, selection.length)) {
+                int[] groupIds = new int[(int) combinations];
+                Arrays.fill(groupIds, -1);
+                for (int k = 0; k < selection.length; k++) {
+                    int key = groupOf[k] * cardinality + ids[k];
+                    int group = groupIds[key];
+                    if (group < 0) {
+                        group = groups++;
+                        groupIds[key] = group;
+                        firstRows = addFirstRow(firstRows, group, selection[k]);
+                    }
+                    groupOf[k] = group;
+                }
+            } else {
+                LongIndex groupIds = new LongIndex(16);
+                for (int k = 0; k < selection.length; k++) {
+                    int group = groupIds.idOf((long) groupOf[k] * cardinality + ids[k]);
+                    if (group == groups) {
+                        groups++;
+                        firstRows = addFirstRow(firstRows, group, selection[k]);
+                    }
+                    groupOf[k] = group;
+                }
+            }
+        }
+        return Arrays.copyOf(firstRows, groups);
+    }
+
+    private static int[] addFirstRow(int[] firstRows, int group, int row) {
+        if (group == firstRows.length) {
+            firstRows = Arrays.copyOf(firstRows, group * 2);
+        }
+        firstRows[group] = row;
+        return firstRows;
+    }
+
+    // Numbers the column's value of every selected row densely into ids and returns how many numbers were used
+    private int columnIds(String column, int[] selection, int[] ids) {
+        switch (table.type(column)) {
+            case STRING -> {
+                StringColumn strings = table.strings(column);
+                int[] codes = strings.codes();
+                for (int k = 0; k < selection.length; k++) {
+                    ids[k] = codes[selection[k]];
+                }
+                return strings.dictionarySize();
+            }
+            case LONG -> {
+                return numberValues(table.longArray(column), selection, ids);
+            }
+            default -> {
+                double[] values = table.doubleArray(column);
+                long[] bits = new long[selection.length];
+                for (int k = 0; k < selection.length; k++) {
+                    bits[k] = Double.doubleToLongBits(values[selection[k]]);
+                }
+                return numberValues(bits, null, ids);
+            }
+        }
+    }
+
+    // Logged rows come in long runs of equal values, so the previous value is checked before the hash index.
+    // A null selection reads values in order.
+    private static int numberValues(long[] values, int[] selection, int[] ids) {
+        LongIndex index = new LongIndex(16);
+        long previous = 0;
+        int previousId = -1;
+        for (int k = 0; k < ids.length; k++) {
+            long value = values[selection == null ? k : selection[k]];
+            if (previousId < 0 || value != previous) {
+                previous = value;
+                previousId = index.idOf(value);
+            }
+            ids[k] = previousId;
+        }
+        return index.size();
+    }
+
+    private double[] aggregate(Aggregate aggregate, int[] selection, int[] groupOf, int groups) {
+        double[] result = new double[groups];
+        if (aggregate.kind() == Aggregate.Kind.COUNT) {
+            for (int group : groupOf) {
+                result[group]++;
+            }
+            return result;
+        }
+        double[] values = selectedValues(aggregate.column(), selection);
+        if (aggregate.kind() == Aggregate.Kind.QUANTILE) {
+            return quantiles(values, aggregate.q(), groupOf, groups);
+        }
+
+        long[] counts = new long[groups];
+        switch (aggregate.kind()) {
+            case MIN -> {
+                Arrays.fill(result, Double.POSITIVE_INFINITY);
+                for (int k = 0; k < values.length; k++) {
+                    if (values[k] < result[groupOf[k]]) result[groupOf[k]] = values[k];
+                    if (!Double.isNaN(values[k])) counts[groupOf[k]]++;
+                }
+            }
+            case MAX -> {
+                Arrays.fill(result, Double.NEGATIVE_INFINITY);
+                for (int k = 0; k < values.length; k++) {
+                    if (values[k] > result[groupOf[k]]) result[groupOf[k]] = values[k];
+                    if (!Double.isNaN(values[k])) counts[groupOf[k]]++;
+                }
+            }
+            default -> {
+                for (int k = 0; k < values.length; k++) {
+                    if (Double.isNaN(values[k])) continue;
+                    result[groupOf[k]] += values[k];
+                    counts[groupOf[k]]++;
+                }
+            }
+        }
+        for (int g = 0; g < groups; g++) {
+            if (aggregate.kind() == Aggregate.Kind.MEAN) {
+                result[g] = counts[g] == 0 ? Double.NaN : result[g] / counts[g];
+            } else if (aggregate.kind() != Aggregate.Kind.SUM && counts[g] == 0) {
+                result[g] = Double.NaN;
+            }
+        }
+        return result;
+    }
+
+    // Values of the column in the selected rows, in selection order
+    private double[] selectedValues(String column, int[] selection) {
+        double[] selected = new double[selection.length];
+        if (table.type(column) == ColumnType.LONG) {
+            long[] values = table.longArray(column);
+            for (int k = 0; k < selection.length; k++) {
+                selected[k] = values[selection[k]];
+            }
+        } else {
+            double[] values = table.doubleArray(column);
+            for (int k = 0; k < selection.length; k++) {
+                selected[k] = values[selection[k]];
+            }
+        }
+        return selected;
+    }
+
+    // Moves the values of every group into its own slice of one array and selects the quantile within the slice
+    private static double[] quantiles(double[] values, double q, int[] groupOf, int groups) {
+        int[] offsets = new int[groups + 1];
+        for (int k = 0; k < values.length; k++) {
+            if (!Double.isNaN(values[k])) offsets[groupOf[k] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        double[] grouped = new double[offsets[groups]];
+        int[] next = Arrays.copyOf(offsets, groups);
+        for (int k = 0; k < values.length; k++) {
+            if (!Double.isNaN(values[k])) grouped[next[groupOf[k]]++] = values[k];
+        }
+
+        double[] result = new double[groups];
+        for (int g = 0; g < groups; g++) {
+            int from = offsets[g];
+            int to = offsets[g + 1];
+            if (from == to) {
+                result[g] = Double.NaN;
+                continue;
+            }
+            double position = q * (to - from - 1);
+            int lower = from + (int) position;
+            select(grouped, from, to, lower);
+            double lowerValue = grouped[lower];
+            if (lower + 1 == to || position == (int) position) {
+                result[g] = lowerValue;
+                continue;
+            }
+            // After the selection every value right of lower is at least as large, the next one is their minimum
+            double upperValue = Double.POSITIVE_INFINITY;
+            for (int k = lower + 1; k < to; k++) {
+                upperValue = Math.min(upperValue, grouped[k]);
+            }
+            result[g] = lowerValue + (position - (int) position) * (upperValue - lowerValue);
+        }
+        return result;
+    }
+
+    // Quickselect: rearranges values[from, to) so that values[n] is the value a sort would put there, with no larger
+    // value left of it and no smaller value right of it
+    private static void select(double[] values, int from, int to, int n) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = values[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (n <= j) {
+                hi = j;
+            } else if (n >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Object keyValue(String column, int row) {
+        return switch (table.type(column)) {
+            case STRING -> table.strings(column).get(row);
+            case LONG -> table.longArray(column)[row];
+            case DOUBLE -> table.doubleArray(column)[row];
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package sir.store;
+
+import java.util.List;
+
+// Rows of a query result: the values of the group-by columns followed by the aggregates, in the order they were
+// requested. Groups appear in the order their first row appears in the table.
+public final class QueryResult {
+    private final List<String> keyColumns;
+    private final List<Aggregate> aggregates;
+    private final List<Row> rows;
+
+    QueryResult(List<String> keyColumns, List<Aggregate> aggregates, List<Row> rows) {
+        this.keyColumns = List.copyOf(keyColumns);
+        this.aggregates = List.copyOf(aggregates);
+        this.rows = List.copyOf(rows);
+    }
+
+    public List<String> keyColumns() {
+        return keyColumns;
+    }
+
+    public List<Aggregate> aggregates() {
+        return aggregates;
+    }
+
+    public List<Row> rows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // Key values are String for string columns, Long for long columns and Double for double columns
+    public static final class Row {
+        private final Object[] keys;
+        private final double[] values;
+
+        Row(Object[] keys, double[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        public Object key(int index) {
+            return keys[index];
+        }
+
+        public String stringKey(int index) {
+            return (String) keys[index];
+        }
+
+        public long longKey(int index) {
+            return (Long) keys[index];
+        }
+
+        public double doubleKey(int index) {
+            return (Double) keys[index];
+        }
+
+        // Value of the index-th aggregate
+        public double value(int index) {
+            return values[index];
+        }
+    }
+}
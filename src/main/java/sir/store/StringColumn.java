@@ -0,0 +1,47 @@
+package sir.store;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dictionary-encoded string column: every row holds the code of its string in the dictionary.
+// Comparing codes instead of strings keeps filters and grouping on strings as cheap as on numbers.
+public final class StringColumn {
+    private final int[] codes;
+    private final String[] dictionary;
+    private final Map<String, Integer> codeByValue = new HashMap<>();
+
+    StringColumn(int[] codes, List<String> dictionary) {
+        this.codes = codes;
+        this.dictionary = dictionary.toArray(String[]::new);
+        for (int code = 0; code < this.dictionary.length; code++) {
+            codeByValue.put(this.dictionary[code], code);
+        }
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    public String get(int row) {
+        return dictionary[codes[row]];
+    }
+
+    // Codes of all rows for Query, which never modifies them
+    int[] codes() {
+        return codes;
+    }
+
+    public String value(int code) {
+        return dictionary[code];
+    }
+
+    // Code of the given string, -1 when no row holds it
+    public int codeOf(String value) {
+        return codeByValue.getOrDefault(value, -1);
+    }
+
+    public int dictionarySize() {
+        return dictionary.length;
+    }
+}
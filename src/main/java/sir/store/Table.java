@@ -0,0 +1,145 @@
+package sir.store;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read-only view of a table written by TableWriter. Opening a table reads only the schema and the string
+// dictionaries; a column file is memory-mapped and bulk-copied into a primitive array the first time a query touches
+// it, so queries run over plain arrays and columns that are never queried cost nothing.
+public class Table {
+    private final Path dir;
+    private final int rows;
+    private final List<ColumnSpec> columns = new ArrayList<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final List<List<String>> dictionaries = new ArrayList<>();
+    // Per column, once loaded: long[], double[] or StringColumn
+    private final Object[] data;
+
+    private Table(Path dir, int rows, int columnCount) {
+        this.dir = dir;
+        this.rows = rows;
+        this.data = new Object[columnCount];
+    }
+
+    public static Table open(Path dir) throws IOException {
+        List<String> schema = Files.readAllLines(dir.resolve(TableWriter.SCHEMA_FILE), StandardCharsets.UTF_8);
+        if (schema.isEmpty() || !schema.get(0).startsWith("rows\t")) {
+            throw new IOException("Malformed schema in " + dir);
+        }
+        long rowCount = Long.parseLong(schema.get(0).substring("rows\t".length()));
+        if (rowCount > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IOException("Table in " + dir + " has too many rows to load: " + rowCount);
+        }
+        Table table = new Table(dir, (int) rowCount, schema.size() - 1);
+        for (int c = 0; c < schema.size() - 1; c++) {
+            String[] parts = schema.get(c + 1).split("\t");
+            ColumnSpec spec = new ColumnSpec(parts[0], ColumnType.valueOf(parts[1]));
+            table.columns.add(spec);
+            table.columnIndex.put(spec.name(), c);
+            table.dictionaries.add(spec.type() == ColumnType.STRING
+                    ? Files.readAllLines(dir.resolve(c + ".dict"), StandardCharsets.UTF_8)
+                    : List.of());
+        }
+        return table;
+    }
+
+    public int rowCount() {
+        return rows;
+    }
+
+    public List<ColumnSpec> columns() {
+        return List.copyOf(columns);
+    }
+
+    public ColumnType type(String column) {
+        return columns.get(index(column)).type();
+    }
+
+    public LongBuffer longs(String column) {
+        return LongBuffer.wrap(longArray(column)).asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer doubles(String column) {
+        return DoubleBuffer.wrap(doubleArray(column)).asReadOnlyBuffer();
+    }
+
+    public StringColumn strings(String column) {
+        return (StringColumn) load(column, ColumnType.STRING);
+    }
+
+    public Query query() {
+        return new Query(this);
+    }
+
+    // Loaded values for Query, which never modifies them
+    long[] longArray(String column) {
+        return (long[]) load(column, ColumnType.LONG);
+    }
+
+    double[] doubleArray(String column) {
+        return (double[]) load(column, ColumnType.DOUBLE);
+    }
+
+    private synchronized Object load(String column, ColumnType type) {
+        int c = index(column);
+        if (columns.get(c).type() != type) {
+            throw new IllegalArgumentException("Column " + column + " is " + columns.get(c).type() + ", not " + type);
+        }
+        if (data[c] == null) {
+            try {
+                MappedByteBuffer bytes = map(dir.resolve(c + ".bin"), (long) rows * type.width());
+                bytes.order(ByteOrder.LITTLE_ENDIAN);
+                data[c] = switch (type) {
+                    case LONG -> {
+                        long[] values = new long[rows];
+                        bytes.asLongBuffer().get(values);
+                        yield values;
+                    }
+                    case DOUBLE -> {
+                        double[] values = new double[rows];
+                        bytes.asDoubleBuffer().get(values);
+                        yield values;
+                    }
+                    case STRING -> {
+                        int[] codes = new int[rows];
+                        bytes.asIntBuffer().get(codes);
+                        yield new StringColumn(codes, dictionaries.get(c));
+                    }
+                };
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load column " + column + " from " + dir, e);
+            }
+        }
+        return data[c];
+    }
+
+    private static MappedByteBuffer map(Path file, long expectedBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != expectedBytes) {
+                throw new IOException("Expected " + expectedBytes + " bytes in " + file + ", found " + channel.size());
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, expectedBytes);
+        }
+    }
+
+    private int index(String column) {
+        Integer index = columnIndex.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown column " + column);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,169 @@
+package sir.store;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Writes a table row by row into a directory with one file of fixed-width little-endian values per column.
+// Rows are streamed to disk through small buffers, so memory stays flat no matter how many rows are written; only
+// the string dictionaries are kept in memory. The schema and dictionaries are written on close, and a directory
+// without a schema file is not a complete table.
+//   schema.txt    "rows<TAB>n", then "name<TAB>type" per column
+//   <i>.bin       values of column i
+//   <i>.dict      strings of column i, one per line, in code order
+public class TableWriter implements Closeable {
+    static final String SCHEMA_FILE = "schema.txt";
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path dir;
+    private final List<ColumnSpec> columns;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final FileChannel[] channels;
+    private final ByteBuffer[] buffers;
+    // Values of the row being built: longs as is, doubles as raw bits, strings as dictionary codes
+    private final long[] row;
+    private final long[] emptyRow;
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    private final List<List<String>> dictionaryValues = new ArrayList<>();
+    private long rows;
+
+    public TableWriter(Path dir, List<ColumnSpec> columns) throws IOException {
+        this.dir = dir;
+        this.columns = List.copyOf(columns);
+        Files.createDirectories(dir);
+        // Start from an empty directory, files of an older table would otherwise be left behind
+        try (Stream<Path> old = Files.list(dir)) {
+            for (Path file : old.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        this.channels = new FileChannel[columns.size()];
+        this.buffers = new ByteBuffer[columns.size()];
+        this.emptyRow = new long[columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            ColumnSpec spec = columns.get(c);
+            if (columnIndex.put(spec.name(), c) != null) {
+                throw new IllegalArgumentException("Duplicate column " + spec.name());
+            }
+            channels[c] = FileChannel.open(dir.resolve(c + ".bin"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffers[c] = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            dictionaries.add(new HashMap<>());
+            dictionaryValues.add(new ArrayList<>());
+            emptyRow[c] = switch (spec.type()) {
+                case LONG -> 0;
+                case DOUBLE -> Double.doubleToRawLongBits(Double.NaN);
+                case STRING -> code(c, "");
+            };
+        }
+        this.row = emptyRow.clone();
+    }
+
+    // Index of the named column, for the set methods
+    public int column(String name) {
+        Integer index = columnIndex.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown column " + name);
+        }
+        return index;
+    }
+
+    public TableWriter set(int column, long value) {
+        requireType(column, ColumnType.LONG);
+        row[column] = value;
+        return this;
+    }
+
+    public TableWriter set(int column, double value) {
+        requireType(column, ColumnType.DOUBLE);
+        row[column] = Double.doubleToRawLongBits(value);
+        return this;
+    }
+
+    public TableWriter set(int column, String value) {
+        requireType(column, ColumnType.STRING);
+        row[column] = code(column, value);
+        return this;
+    }
+
+    // Appends the row built by the set calls; columns that were not set get 0, NaN or ""
+    public void endRow() throws IOException {
+        for (int c = 0; c < row.length; c++) {
+            ByteBuffer buffer = buffers[c];
+            if (buffer.remaining() < Long.BYTES) {
+                flush(c);
+            }
+            if (columns.get(c).type() == ColumnType.STRING) {
+                buffer.putInt((int) row[c]);
+            } else {
+                buffer.putLong(row[c]);
+            }
+        }
+        System.arraycopy(emptyRow, 0, row, 0, row.length);
+        rows++;
+    }
+
+    public long rowCount() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int c = 0; c < channels.length; c++) {
+            flush(c);
+            channels[c].close();
+        }
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.get(c).type() == ColumnType.STRING) {
+                Files.write(dir.resolve(c + ".dict"), dictionaryValues.get(c), StandardCharsets.UTF_8);
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(SCHEMA_FILE))) {
+            writer.write("rows\t" + rows);
+            writer.newLine();
+            for (ColumnSpec spec : columns) {
+                writer.write(spec.name() + "\t" + spec.type());
+                writer.newLine();
+            }
+        }
+    }
+
+    private int code(int column, String value) {
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Line breaks are not supported in string values: " + value);
+        }
+        return dictionaries.get(column).computeIfAbsent(value, v -> {
+            List<String> values = dictionaryValues.get(column);
+            values.add(v);
+            return values.size() - 1;
+        });
+    }
+
+    private void requireType(int column, ColumnType type) {
+        if (columns.get(column).type() != type) {
+            throw new IllegalArgumentException("Column " + columns.get(column).name() + " is " + columns.get(column).type() + ", not " + type);
+        }
+    }
+
+    private void flush(int column) throws IOException {
+        ByteBuffer buffer = buffers[column];
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channels[column].write(buffer);
+        }
+        buffer.clear();
+    }
+}